@@ -0,0 +1,36 @@
+--liquibase formatted sql
+
+--changeset hiu:data-request-status
+CREATE TABLE IF NOT EXISTS data_request_status (
+    data_request_id uuid PRIMARY KEY,
+    hip_id text NOT NULL,
+    patient_id text NOT NULL,
+    patient_data_requested_at timestamp NOT NULL,
+    consent_request_id text,
+    consent_artefact_id text,
+    transaction_id text,
+    data_flow_requested_at timestamp,
+    data_part_statuses jsonb NOT NULL DEFAULT '{}'
+);
+CREATE INDEX IF NOT EXISTS data_request_status_consent_request_id_idx ON data_request_status (consent_request_id);
+CREATE INDEX IF NOT EXISTS data_request_status_consent_artefact_id_idx ON data_request_status (consent_artefact_id);
+CREATE INDEX IF NOT EXISTS data_request_status_transaction_id_idx ON data_request_status (transaction_id);
+CREATE INDEX IF NOT EXISTS data_request_status_patient_id_idx ON data_request_status (patient_id);
+--rollback DROP TABLE data_request_status;
+
+--changeset hiu:data-request-status-backfill
+-- A consent request can have several artefacts and an artefact several data flow requests; the latest of each
+-- is the one the status reflects.
+INSERT INTO data_request_status
+SELECT DISTINCT ON (pcr.data_request_id) pcr.data_request_id, pcr.hip_id, pcr.patient_id, pcr.date_created,
+       pcr.consent_request_id::text, ca.consent_artefact_id,
+       dfr.transaction_id, dfr.date_created,
+       COALESCE((SELECT jsonb_object_agg(dfp.part_number, dfp.status)
+                 FROM data_flow_parts dfp
+                 WHERE dfp.transaction_id = dfr.transaction_id), '{}')
+FROM patient_consent_request pcr
+LEFT JOIN consent_artefact ca ON ca.consent_request_id = pcr.consent_request_id::text
+LEFT JOIN data_flow_request dfr ON dfr.consent_artefact_id = ca.consent_artefact_id
+ORDER BY pcr.data_request_id, ca.date_created DESC NULLS LAST, dfr.date_created DESC NULLS LAST
+ON CONFLICT (data_request_id) DO NOTHING;
+--rollback DELETE FROM data_request_status;
@@ -0,0 +1,17 @@
+--liquibase formatted sql
+
+--changeset hiu:data-flow-parts-unique-part
+DELETE FROM data_flow_parts placeholder
+USING data_flow_parts recorded
+WHERE placeholder.transaction_id = recorded.transaction_id
+  AND placeholder.part_number = recorded.part_number
+  AND placeholder.ctid <> recorded.ctid
+  AND placeholder.status IS NULL;
+DELETE FROM data_flow_parts duplicate
+USING data_flow_parts kept
+WHERE duplicate.transaction_id = kept.transaction_id
+  AND duplicate.part_number = kept.part_number
+  AND duplicate.ctid > kept.ctid;
+CREATE UNIQUE INDEX IF NOT EXISTS data_flow_parts_transaction_part_idx
+    ON data_flow_parts (transaction_id, part_number);
+--rollback DROP INDEX data_flow_parts_transaction_part_idx;
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset hiu:data-flow-request-transfer-notified
+ALTER TABLE data_flow_request ADD COLUMN IF NOT EXISTS transfer_notified_at timestamp;
+--rollback ALTER TABLE data_flow_request DROP COLUMN transfer_notified_at;
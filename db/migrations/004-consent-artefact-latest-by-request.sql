@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset hiu:consent-artefact-latest-by-request
+CREATE INDEX IF NOT EXISTS consent_artefact_request_created_idx
+    ON consent_artefact (consent_request_id, date_created DESC);
+--rollback DROP INDEX consent_artefact_request_created_idx;
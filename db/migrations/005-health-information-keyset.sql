@@ -0,0 +1,36 @@
+--liquibase formatted sql
+
+-- Adding the column with a default (bigserial) would rewrite health_information under an ACCESS EXCLUSIVE lock.
+-- It is added without one instead, which only touches the catalog; rows written from then on take the id from the
+-- sequence, and existing rows are filled in batches that commit one by one.
+
+--changeset hiu:health-information-id
+--preconditions onFail:MARK_RAN
+--precondition-sql-check expectedResult:0 SELECT count(*) FROM information_schema.columns WHERE table_name = 'health_information' AND column_name = 'id'
+ALTER TABLE health_information ADD COLUMN id bigint;
+CREATE SEQUENCE IF NOT EXISTS health_information_id_seq OWNED BY health_information.id;
+ALTER TABLE health_information ALTER COLUMN id SET DEFAULT nextval('health_information_id_seq');
+--rollback ALTER TABLE health_information DROP COLUMN id;
+
+--changeset hiu:health-information-id-backfill runInTransaction:false splitStatements:false
+--preconditions onFail:MARK_RAN
+--precondition-sql-check expectedResult:1 SELECT count(*) FROM (SELECT 1 FROM health_information WHERE id IS NULL LIMIT 1) pending
+DO $$
+DECLARE
+    updated integer;
+BEGIN
+    LOOP
+        UPDATE health_information SET id = nextval('health_information_id_seq')
+        WHERE ctid = ANY (ARRAY(SELECT ctid FROM health_information WHERE id IS NULL LIMIT 10000));
+        GET DIAGNOSTICS updated = ROW_COUNT;
+        EXIT WHEN updated = 0;
+        COMMIT;
+    END LOOP;
+END
+$$;
+--rollback SELECT 1;
+
+--changeset hiu:health-information-keyset-idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS health_information_transaction_res_date_id_idx
+    ON health_information (transaction_id, latest_res_date DESC NULLS LAST, id);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS health_information_transaction_res_date_id_idx;
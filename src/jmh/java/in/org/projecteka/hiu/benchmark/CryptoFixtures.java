@@ -0,0 +1,109 @@
+package in.org.projecteka.hiu.benchmark;
+
+import in.org.projecteka.hiu.dataflow.Decryptor;
+import in.org.projecteka.hiu.dataflow.model.DataFlowRequestKeyMaterial;
+import in.org.projecteka.hiu.dataflow.model.KeyMaterial;
+import in.org.projecteka.hiu.dataflow.model.KeyStructure;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.generators.HKDFBytesGenerator;
+import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.HKDFParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+
+import javax.crypto.KeyAgreement;
+import java.security.KeyPair;
+import java.util.Arrays;
+
+/**
+ * Plays the HIP side of the data transfer: encrypts content for an HIU key pair the same way the data pushed to
+ * /data/notification is encrypted, so that {@link Decryptor#decrypt} can be measured on realistic input.
+ */
+public final class CryptoFixtures {
+    private CryptoFixtures() {
+    }
+
+    public static EncryptionContext encryptionContext(Decryptor decryptor) throws Exception {
+        KeyPair hiuKeyPair = decryptor.generateKeyPair();
+        KeyPair hipKeyPair = decryptor.generateKeyPair();
+        String hiuNonce = decryptor.generateRandomKey();
+        String hipNonce = decryptor.generateRandomKey();
+
+        var savedKeyMaterial = DataFlowRequestKeyMaterial.builder()
+                .privateKey(decryptor.getBase64String(decryptor.getEncodedPrivateKey(hiuKeyPair.getPrivate())))
+                .publicKey(decryptor.getBase64String(decryptor.getEncodedPublicKey(hiuKeyPair.getPublic())))
+                .randomKey(hiuNonce)
+                .build();
+        var receivedKeyMaterial = KeyMaterial.builder()
+                .cryptoAlg(Decryptor.ALGORITHM)
+                .curve(Decryptor.CURVE)
+                .dhPublicKey(KeyStructure.builder()
+                        .keyValue(decryptor.getBase64String(hipKeyPair.getPublic().getEncoded()))
+                        .parameters(Decryptor.EH_PUBLIC_KEY_PARAMETER)
+                        .build())
+                .nonce(hipNonce)
+                .build();
+
+        KeyAgreement keyAgreement = KeyAgreement.getInstance(Decryptor.ALGORITHM, Decryptor.PROVIDER);
+        keyAgreement.init(hipKeyPair.getPrivate());
+        keyAgreement.doPhase(hiuKeyPair.getPublic(), true);
+        byte[] sharedSecret = keyAgreement.generateSecret();
+
+        byte[] xorOfNonces = xor(decryptor.getBytesForBase64String(hipNonce),
+                decryptor.getBytesForBase64String(hiuNonce));
+        byte[] iv = Arrays.copyOfRange(xorOfNonces, xorOfNonces.length - 12, xorOfNonces.length);
+        byte[] salt = Arrays.copyOfRange(xorOfNonces, 0, 20);
+        HKDFBytesGenerator hkdf = new HKDFBytesGenerator(new SHA256Digest());
+        hkdf.init(new HKDFParameters(sharedSecret, salt, null));
+        byte[] aesKey = new byte[32];
+        hkdf.generateBytes(aesKey, 0, aesKey.length);
+
+        return new EncryptionContext(decryptor, receivedKeyMaterial, savedKeyMaterial, aesKey, iv);
+    }
+
+    private static byte[] xor(byte[] sender, byte[] receiver) {
+        byte[] out = new byte[sender.length];
+        for (int i = 0; i < sender.length; i++) {
+            out[i] = (byte) (sender[i] ^ receiver[i % receiver.length]);
+        }
+        return out;
+    }
+
+    public static class EncryptionContext {
+        private final Decryptor decryptor;
+        private final KeyMaterial receivedKeyMaterial;
+        private final DataFlowRequestKeyMaterial savedKeyMaterial;
+        private final byte[] aesKey;
+        private final byte[] iv;
+
+        EncryptionContext(Decryptor decryptor,
+                          KeyMaterial receivedKeyMaterial,
+                          DataFlowRequestKeyMaterial savedKeyMaterial,
+                          byte[] aesKey,
+                          byte[] iv) {
+            this.decryptor = decryptor;
+            this.receivedKeyMaterial = receivedKeyMaterial;
+            this.savedKeyMaterial = savedKeyMaterial;
+            this.aesKey = aesKey;
+            this.iv = iv;
+        }
+
+        public KeyMaterial getReceivedKeyMaterial() {
+            return receivedKeyMaterial;
+        }
+
+        public DataFlowRequestKeyMaterial getSavedKeyMaterial() {
+            return savedKeyMaterial;
+        }
+
+        public String encrypt(byte[] content) throws Exception {
+            GCMBlockCipher cipher = new GCMBlockCipher(new AESEngine());
+            cipher.init(true, new AEADParameters(new KeyParameter(aesKey), 128, iv, null));
+            byte[] encrypted = new byte[cipher.getOutputSize(content.length)];
+            int length = cipher.processBytes(content, 0, content.length, encrypted, 0);
+            cipher.doFinal(encrypted, length);
+            return decryptor.getBase64String(encrypted);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package in.org.projecteka.hiu.benchmark;
+
+import org.hl7.fhir.r4.model.Attachment;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Condition;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Resource;
+
+import java.util.Base64;
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * Generates deterministic FHIR collection bundles of the sizes used by the benchmarks (10, 100 and 1000 entries),
+ * mixing Observations and Conditions the way a typical lab or OP consultation transfer does.
+ */
+public final class FhirBundleFixtures {
+    private static final Date RECORDED_ON = new Date(1596240000000L);
+
+    private FhirBundleFixtures() {
+    }
+
+    public static Bundle bundleOf(int numberOfEntries) {
+        Bundle bundle = new Bundle();
+        bundle.setId(String.format("bundle-%d", numberOfEntries));
+        bundle.setType(Bundle.BundleType.COLLECTION);
+        bundle.setTimestamp(RECORDED_ON);
+        bundle.getMeta().setVersionId("1");
+        for (int i = 0; i < numberOfEntries; i++) {
+            Resource resource = i % 3 == 0 ? condition(i) : observation(i);
+            bundle.addEntry()
+                    .setFullUrl(String.format("%s/%s", resource.getResourceType(), resource.getId()))
+                    .setResource(resource);
+        }
+        return bundle;
+    }
+
+    public static Attachment attachmentOf(int sizeInBytes) {
+        byte[] content = new byte[sizeInBytes];
+        new Random(sizeInBytes).nextBytes(content);
+        Attachment attachment = new Attachment();
+        attachment.setContentType("application/pdf");
+        attachment.getDataElement().setValueAsString(Base64.getEncoder().encodeToString(content));
+        return attachment;
+    }
+
+    private static Observation observation(int index) {
+        Observation observation = new Observation();
+        observation.setId(String.format("observation-%d", index));
+        observation.setStatus(Observation.ObservationStatus.FINAL);
+        observation.setCode(concept("http://loinc.org", "8867-4", "Heart rate"));
+        observation.setIssued(RECORDED_ON);
+        observation.setValue(new Quantity()
+                .setValue(60 + index % 40)
+                .setUnit("beats/minute")
+                .setSystem("http://unitsofmeasure.org")
+                .setCode("/min"));
+        return observation;
+    }
+
+    private static Condition condition(int index) {
+        Condition condition = new Condition();
+        condition.setId(String.format("condition-%d", index));
+        condition.setCode(concept("http://snomed.info/sct", "38341003", "Hypertension"));
+        condition.setRecordedDate(RECORDED_ON);
+        return condition;
+    }
+
+    private static CodeableConcept concept(String system, String code, String display) {
+        return new CodeableConcept()
+                .addCoding(new Coding(system, code, display))
+                .setText(display);
+    }
+}
@@ -0,0 +1,51 @@
+package in.org.projecteka.hiu.dataflow;
+
+import in.org.projecteka.hiu.benchmark.CryptoFixtures;
+import in.org.projecteka.hiu.benchmark.CryptoFixtures.EncryptionContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DecryptorBenchmark {
+    @Param({"1024", "65536", "1048576"})
+    private int payloadSize;
+
+    private Decryptor decryptor;
+    private EncryptionContext encryptionContext;
+    private String encryptedContent;
+    private DecryptionSession decryptionSession;
+
+    @Setup
+    public void setUp() throws Exception {
+        decryptor = new Decryptor();
+        encryptionContext = CryptoFixtures.encryptionContext(decryptor);
+        byte[] content = new byte[payloadSize];
+        new Random(payloadSize).nextBytes(content);
+        encryptedContent = encryptionContext.encrypt(content);
+        decryptionSession = decryptor.session(encryptionContext.getReceivedKeyMaterial(),
+                encryptionContext.getSavedKeyMaterial());
+    }
+
+    @Benchmark
+    public String decrypt() throws Exception {
+        return decryptor.decrypt(encryptionContext.getReceivedKeyMaterial(),
+                encryptionContext.getSavedKeyMaterial(),
+                encryptedContent);
+    }
+
+    @Benchmark
+    public byte[] decryptWithSession() throws Exception {
+        return decryptionSession.decrypt(encryptedContent);
+    }
+}
@@ -0,0 +1,44 @@
+package in.org.projecteka.hiu.dataflow;
+
+import ca.uhn.fhir.context.FhirContext;
+import in.org.projecteka.hiu.benchmark.FhirBundleFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures HealthInformationRepository#toHealthInfo, which every health_information row fetched for the
+ * health information APIs goes through.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HealthInformationRowMappingBenchmark {
+    @Param({"10", "100", "1000"})
+    private int numberOfEntries;
+
+    private Map<String, String> row;
+
+    @Setup
+    public void setUp() {
+        var bundle = FhirBundleFixtures.bundleOf(numberOfEntries);
+        row = Map.of("data", FhirContext.forR4().newJsonParser().encodeResourceToString(bundle),
+                "status", "SUCCEEDED",
+                "transaction_id", "c9b5e0e3-5f5c-4b5f-a6d7-39b6c8c6a3d2",
+                "doc_id", "bundle-" + numberOfEntries,
+                "doc_origin", "10000005");
+    }
+
+    @Benchmark
+    public Map<String, Object> toHealthInfo() throws Exception {
+        return HealthInformationRepository.toHealthInfo(row::get);
+    }
+}
@@ -0,0 +1,95 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import in.org.projecteka.hiu.benchmark.FhirBundleFixtures;
+import org.hl7.fhir.r4.model.Attachment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures decoding an inline base64 attachment and writing it to local storage. The processor clears the
+ * attachment data once saved, so every invocation gets a fresh copy, and the files saved are released after every
+ * invocation, which removes the stored copy too unless another transaction links to it. saveNewAttachment so
+ * measures hashing and writing content the store has not seen, and saveKnownAttachment, with the content kept
+ * stored through a link from another transaction, measures hashing and linking to the stored copy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AttachmentDataTypeProcessorBenchmark {
+    @Param({"16384", "1048576", "8388608"})
+    private int attachmentSize;
+
+    private ContentAddressedStore attachmentStore;
+    private AttachmentDataTypeProcessor attachmentProcessor;
+    private Attachment template;
+    private Attachment attachment;
+    private Path localStorePath;
+    private Path transactionPath;
+
+    @Setup
+    public void setUp() throws IOException {
+        template = FhirBundleFixtures.attachmentOf(attachmentSize);
+        localStorePath = Files.createTempDirectory("hiu-attachment-benchmark");
+        transactionPath = Files.createDirectory(localStorePath.resolve("transaction"));
+        attachmentStore = new ContentAddressedStore(localStorePath.resolve(".attachments"));
+        attachmentProcessor = new AttachmentDataTypeProcessor(attachmentStore);
+    }
+
+    @Setup(Level.Invocation)
+    public void copyAttachment() {
+        attachment = template.copy();
+    }
+
+    @Benchmark
+    public Path saveNewAttachment() {
+        return attachmentProcessor.process(attachment, transactionPath);
+    }
+
+    @Benchmark
+    public Path saveKnownAttachment(KnownContent knownContent) {
+        return attachmentProcessor.process(attachment, transactionPath);
+    }
+
+    @TearDown(Level.Invocation)
+    public void releaseSavedFiles() throws IOException {
+        try (Stream<Path> paths = Files.list(transactionPath)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                attachmentStore.release(path);
+            }
+        }
+    }
+
+    @TearDown
+    public void deleteLocalStore() throws IOException {
+        try (Stream<Path> paths = Files.walk(localStorePath)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Keeps the attachment content stored for the whole run, through a link from a transaction of its own.
+     */
+    @State(Scope.Benchmark)
+    public static class KnownContent {
+        @Setup
+        public void store(AttachmentDataTypeProcessorBenchmark benchmark) throws IOException {
+            var otherTransactionPath = Files.createDirectory(benchmark.localStorePath.resolve("other-transaction"));
+            benchmark.attachmentProcessor.process(benchmark.template.copy(), otherTransactionPath);
+        }
+    }
+}
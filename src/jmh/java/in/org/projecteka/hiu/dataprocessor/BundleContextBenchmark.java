@@ -0,0 +1,57 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import in.org.projecteka.hiu.benchmark.FhirBundleFixtures;
+import in.org.projecteka.hiu.dataprocessor.model.BundleContext;
+import in.org.projecteka.hiu.dataprocessor.model.DataContext;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.ResourceType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Walks a parsed bundle through the resource processors the same way HealthDataProcessor does for each entry,
+ * without the decryption and parsing around it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BundleContextBenchmark {
+    @Param({"10", "100", "1000"})
+    private int numberOfEntries;
+
+    private Bundle bundle;
+    private DataContext dataContext;
+    private final Map<ResourceType, HITypeResourceProcessor> resourceProcessors = new EnumMap<>(ResourceType.class);
+
+    @Setup
+    public void setUp() {
+        bundle = FhirBundleFixtures.bundleOf(numberOfEntries);
+        dataContext = DataContext.builder().build();
+        resourceProcessors.put(ResourceType.Observation, new ObservationResourceProcessor());
+        resourceProcessors.put(ResourceType.Condition, new ConditionResourceProcessor());
+    }
+
+    @Benchmark
+    public BundleContext process() {
+        BundleContext bundleContext = new BundleContext(bundle, resourceProcessors::get);
+        bundle.getEntry().forEach(entry -> {
+            HITypeResourceProcessor processor = resourceProcessors.get(entry.getResource().getResourceType());
+            if (processor != null) {
+                processor.process(entry.getResource(), dataContext, bundleContext, null);
+            }
+        });
+        bundleContext.getBundleUniqueId();
+        bundleContext.getDocumentType();
+        return bundleContext;
+    }
+}
@@ -0,0 +1,56 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import ca.uhn.fhir.context.FhirContext;
+import in.org.projecteka.hiu.benchmark.FhirBundleFixtures;
+import org.hl7.fhir.r4.model.Bundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FhirParserBenchmark {
+    @Param({"10", "100", "1000"})
+    private int numberOfEntries;
+
+    private FhirContext fhirContext;
+    private Bundle bundle;
+    private String bundleAsJson;
+    private String bundleAsXml;
+
+    @Setup
+    public void setUp() {
+        fhirContext = FhirContext.forR4();
+        bundle = FhirBundleFixtures.bundleOf(numberOfEntries);
+        bundleAsJson = fhirContext.newJsonParser().encodeResourceToString(bundle);
+        bundleAsXml = fhirContext.newXmlParser().encodeResourceToString(bundle);
+    }
+
+    @Benchmark
+    public Bundle parseJson() {
+        return fhirContext.newJsonParser().parseResource(Bundle.class, bundleAsJson);
+    }
+
+    @Benchmark
+    public Bundle parseXml() {
+        return fhirContext.newXmlParser().parseResource(Bundle.class, bundleAsXml);
+    }
+
+    @Benchmark
+    public String encodeJson() {
+        return fhirContext.newJsonParser().encodeResourceToString(bundle);
+    }
+
+    @Benchmark
+    public String encodeXml() {
+        return fhirContext.newXmlParser().encodeResourceToString(bundle);
+    }
+}
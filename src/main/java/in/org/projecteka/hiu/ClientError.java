@@ -12,6 +12,7 @@ import static in.org.projecteka.hiu.ErrorCode.INVALID_TOKEN;
 import static in.org.projecteka.hiu.ErrorCode.NETWORK_SERVICE_ERROR;
 import static in.org.projecteka.hiu.ErrorCode.NO_RESULT_FROM_GATEWAY;
 import static in.org.projecteka.hiu.ErrorCode.QUEUE_NOT_FOUND;
+import static in.org.projecteka.hiu.ErrorCode.SERVICE_DOWN;
 import static in.org.projecteka.hiu.ErrorCode.UNAUTHORIZED_REQUESTER;
 import static in.org.projecteka.hiu.ErrorCode.UNKNOWN_ERROR;
 import static in.org.projecteka.hiu.ErrorCode.VALIDATION_FAILED;
@@ -19,6 +20,8 @@ import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.GATEWAY_TIMEOUT;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.PAYLOAD_TOO_LARGE;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 import static org.springframework.http.HttpStatus.UNAUTHORIZED;
 
 @Getter
@@ -127,8 +130,29 @@ public class ClientError extends Throwable {
                 new ErrorRepresentation(new Error(NETWORK_SERVICE_ERROR, CANNOT_PROCESS_REQUEST_TRY_LATER)));
     }
 
-    public static ClientError paginationNotSupported() {
+    public static ClientError tooManyHealthInformationStreams() {
+        return new ClientError(SERVICE_UNAVAILABLE,
+                new ErrorRepresentation(new Error(SERVICE_DOWN, CANNOT_PROCESS_REQUEST_TRY_LATER)));
+    }
+
+    public static ClientError invalidPageNumber() {
+        return new ClientError(BAD_REQUEST,
+                new ErrorRepresentation(new Error(INVALID_REQUEST, "Page number must be between 1 and page count.")));
+    }
+
+    public static ClientError invalidContinuationToken() {
         return new ClientError(BAD_REQUEST,
-                new ErrorRepresentation(new Error(INVALID_REQUEST, "Multi page data transfer is not supported yet.")));
+                new ErrorRepresentation(new Error(INVALID_REQUEST, "Continuation token is not valid.")));
+    }
+
+    public static ClientError invalidDataPart() {
+        return new ClientError(BAD_REQUEST,
+                new ErrorRepresentation(new Error(INVALID_REQUEST, "Data part is not a valid JSON object.")));
+    }
+
+    public static ClientError dataPartTooLarge(int maxSizeInMB) {
+        return new ClientError(PAYLOAD_TOO_LARGE,
+                new ErrorRepresentation(new Error(INVALID_REQUEST,
+                        String.format("Data part must not be larger than %d MB.", maxSizeInMB))));
     }
 }
@@ -8,6 +8,9 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 @ConfigurationProperties(prefix = "hiu.database")
 @Getter
@@ -15,6 +18,12 @@ import org.springframework.context.annotation.Configuration;
 @NoArgsConstructor(access = AccessLevel.PACKAGE)
 @AllArgsConstructor
 public class DatabaseProperties {
+    private static final int DEFAULT_PIPELINING_LIMIT = 256;
+    private static final int DEFAULT_PREPARED_STATEMENT_CACHE_SIZE = 256;
+    private static final int UNBOUNDED_WAIT_QUEUE = -1;
+    private static final int DEFAULT_MAX_REPLICA_LAG_IN_SECONDS = 30;
+    private static final int DEFAULT_REPLICA_LAG_CHECK_INTERVAL_IN_SECONDS = 5;
+
     private String host;
     private int port;
     private String schema;
@@ -23,6 +32,22 @@ public class DatabaseProperties {
     private int poolSize;
     private boolean replicaReadEnabled;
     private Replica replica;
+    // further replicas, reads are spread over all of them round-robin
+    private List<Replica> replicas;
+    private int maxReplicaLagInSeconds;
+    // bound for reads of data transfer status, which patients poll right after the data arrives; 0 reads the primary
+    private int maxStatusReplicaLagInSeconds;
+    private int replicaLagCheckIntervalInSeconds;
+    private int pipeliningLimit;
+    private int preparedStatementCacheSize;
+    // 0 leaves the queue of requests waiting for a connection unbounded
+    private int maxWaitQueueSize;
+    // 0 keeps idle connections open
+    private int idleTimeoutInSeconds;
+    // 0 uses the vertx default of twice the number of cores
+    private int eventLoopSize;
+    // meters every pool call through a proxy, see MeteredPgPool
+    private boolean poolMetricsEnabled;
 
     public Replica getReplica() {
         return replica != null && replicaReadEnabled
@@ -30,13 +55,53 @@ public class DatabaseProperties {
                 : new Replica(host, port, user, password, getReadPoolSize());
     }
 
+    public List<Replica> getReadReplicas() {
+        if (!isReadingFromReplicas()) {
+            return List.of(getReplica());
+        }
+        var readReplicas = new ArrayList<Replica>();
+        if (replica != null) {
+            readReplicas.add(replica);
+        }
+        if (replicas != null) {
+            readReplicas.addAll(replicas);
+        }
+        return readReplicas;
+    }
+
+    public boolean isReadingFromReplicas() {
+        return replicaReadEnabled && (replica != null || (replicas != null && !replicas.isEmpty()));
+    }
+
     private int getReadPoolSize() {
         return poolSize / 2 + poolSize % 2;
     }
 
     public int getPoolSize() {
-        return replica != null && replicaReadEnabled
+        return isReadingFromReplicas()
                 ? poolSize
                 : poolSize / 2;
     }
+
+    public int getPipeliningLimit() {
+        return pipeliningLimit > 0 ? pipeliningLimit : DEFAULT_PIPELINING_LIMIT;
+    }
+
+    public int getPreparedStatementCacheSize() {
+        return preparedStatementCacheSize > 0 ? preparedStatementCacheSize : DEFAULT_PREPARED_STATEMENT_CACHE_SIZE;
+    }
+
+    public int getMaxWaitQueueSize() {
+        return maxWaitQueueSize > 0 ? maxWaitQueueSize : UNBOUNDED_WAIT_QUEUE;
+    }
+
+    public int getMaxReplicaLagInSeconds() {
+        return maxReplicaLagInSeconds > 0 ? maxReplicaLagInSeconds : DEFAULT_MAX_REPLICA_LAG_IN_SECONDS;
+    }
+
+    public int getReplicaLagCheckIntervalInSeconds() {
+        return replicaLagCheckIntervalInSeconds > 0
+               ? replicaLagCheckIntervalInSeconds
+               : DEFAULT_REPLICA_LAG_CHECK_INTERVAL_IN_SECONDS;
+    }
 }
@@ -19,4 +19,9 @@ public class GatewayProperties {
     private String clientSecret;
     private String jwkUrl;
     private int accessTokenExpiryInMinutes;
+    private int accessTokenRefreshBeforeExpiryInSeconds;
+
+    public int getAccessTokenRefreshBeforeExpiryInSeconds() {
+        return accessTokenRefreshBeforeExpiryInSeconds > 0 ? accessTokenRefreshBeforeExpiryInSeconds : 60;
+    }
 }
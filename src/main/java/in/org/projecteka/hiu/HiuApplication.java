@@ -2,6 +2,7 @@ package in.org.projecteka.hiu;
 
 import in.org.projecteka.hiu.auth.IDPProperties;
 import in.org.projecteka.hiu.common.CacheMethodProperty;
+import in.org.projecteka.hiu.common.GuavaCacheOptions;
 import in.org.projecteka.hiu.common.KeyPairConfig;
 import in.org.projecteka.hiu.common.RedisOptions;
 import in.org.projecteka.hiu.common.heartbeat.RabbitMQOptions;
@@ -15,6 +16,7 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
                                 RabbitMQOptions.class,
                                 CacheMethodProperty.class,
                                 RedisOptions.class,
+                                GuavaCacheOptions.class,
                                 WebClientOptions.class,
                                 IDPProperties.class,
                                 KeyPairConfig.class})
@@ -1,11 +1,10 @@
 package in.org.projecteka.hiu;
 
+import ca.uhn.fhir.context.FhirContext;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.crypto.RSASSAVerifier;
 import com.nimbusds.jose.jwk.JWKSet;
@@ -26,13 +25,21 @@ import in.org.projecteka.hiu.common.CMPatientAuthenticator;
 import in.org.projecteka.hiu.common.CacheMethodProperty;
 import in.org.projecteka.hiu.common.Gateway;
 import in.org.projecteka.hiu.common.GatewayTokenVerifier;
+import in.org.projecteka.hiu.common.GuavaCacheOptions;
 import in.org.projecteka.hiu.common.KeyPairConfig;
 import in.org.projecteka.hiu.common.RabbitQueueNames;
 import in.org.projecteka.hiu.common.RedisOptions;
 import in.org.projecteka.hiu.common.UserAuthenticator;
 import in.org.projecteka.hiu.common.cache.CacheAdapter;
-import in.org.projecteka.hiu.common.cache.LoadingCacheGenericAdapter;
+import in.org.projecteka.hiu.common.cache.CacheMetricsRegistry;
+import in.org.projecteka.hiu.common.cache.GuavaCacheAdapter;
 import in.org.projecteka.hiu.common.cache.RedisGenericAdapter;
+import in.org.projecteka.hiu.common.cache.TieredCacheAdapter;
+import in.org.projecteka.hiu.common.correlation.CorrelationRegistry;
+import in.org.projecteka.hiu.common.correlation.LocalCorrelationRegistry;
+import in.org.projecteka.hiu.common.correlation.RedisCorrelationRegistry;
+import in.org.projecteka.hiu.common.database.PoolMetricsRegistry;
+import in.org.projecteka.hiu.common.database.ReplicaRouter;
 import in.org.projecteka.hiu.common.heartbeat.CacheHealth;
 import in.org.projecteka.hiu.common.heartbeat.Heartbeat;
 import in.org.projecteka.hiu.common.heartbeat.RabbitMQOptions;
@@ -46,6 +53,7 @@ import in.org.projecteka.hiu.consent.HealthInformationPublisher;
 import in.org.projecteka.hiu.consent.PatientHIUCertService;
 import in.org.projecteka.hiu.consent.PatientConsentRepository;
 import in.org.projecteka.hiu.consent.PatientConsentService;
+import in.org.projecteka.hiu.dataflow.AttachmentHandler;
 import in.org.projecteka.hiu.dataflow.DataAvailabilityPublisher;
 import in.org.projecteka.hiu.dataflow.DataFlowClient;
 import in.org.projecteka.hiu.dataflow.DataFlowDeleteListener;
@@ -53,14 +61,33 @@ import in.org.projecteka.hiu.dataflow.DataFlowRepository;
 import in.org.projecteka.hiu.dataflow.DataFlowRequestListener;
 import in.org.projecteka.hiu.dataflow.DataFlowService;
 import in.org.projecteka.hiu.dataflow.DataFlowServiceProperties;
+import in.org.projecteka.hiu.dataflow.DataRequestStatusBroadcaster;
+import in.org.projecteka.hiu.dataflow.DataRequestStatusNotifier;
 import in.org.projecteka.hiu.dataflow.Decryptor;
 import in.org.projecteka.hiu.dataflow.HealthInfoManager;
 import in.org.projecteka.hiu.dataflow.HealthInformationRepository;
+import in.org.projecteka.hiu.dataflow.LocalDataRequestStatusBroadcaster;
 import in.org.projecteka.hiu.dataflow.LocalDataStore;
+import in.org.projecteka.hiu.dataflow.RedisDataRequestStatusBroadcaster;
+import in.org.projecteka.hiu.dataflow.TransactionKeyStore;
 import in.org.projecteka.hiu.dataflow.model.DataFlowRequestKeyMaterial;
 import in.org.projecteka.hiu.dataflow.model.PatientHealthInfoStatus;
+import in.org.projecteka.hiu.dataprocessor.BinaryResourceProcessor;
+import in.org.projecteka.hiu.dataprocessor.CompositionResourceProcessor;
+import in.org.projecteka.hiu.dataprocessor.ConditionResourceProcessor;
+import in.org.projecteka.hiu.dataprocessor.ContentAddressedStore;
 import in.org.projecteka.hiu.dataprocessor.DataAvailabilityListener;
+import in.org.projecteka.hiu.dataprocessor.DataProcessorProperties;
+import in.org.projecteka.hiu.dataprocessor.DiagnosticReportResourceProcessor;
+import in.org.projecteka.hiu.dataprocessor.DocumentReferenceResourceProcessor;
+import in.org.projecteka.hiu.dataprocessor.HITypeResourceProcessor;
+import in.org.projecteka.hiu.dataprocessor.HealthDataProcessor;
 import in.org.projecteka.hiu.dataprocessor.HealthDataRepository;
+import in.org.projecteka.hiu.dataprocessor.ImmunizationRecommendationProcessor;
+import in.org.projecteka.hiu.dataprocessor.ImmunizationResourceProcessor;
+import in.org.projecteka.hiu.dataprocessor.MedicationRequestResourceProcessor;
+import in.org.projecteka.hiu.dataprocessor.ObservationResourceProcessor;
+import in.org.projecteka.hiu.dicomweb.OrthancDicomWebServer;
 import in.org.projecteka.hiu.patient.PatientService;
 import in.org.projecteka.hiu.patient.model.PatientSearchGatewayResponse;
 import in.org.projecteka.hiu.user.JWTGenerator;
@@ -71,10 +98,13 @@ import io.lettuce.core.SocketOptions;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
 import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.PoolOptions;
 import lombok.SneakyThrows;
+import org.hl7.fhir.r4.model.ResourceType;
 import org.springframework.amqp.core.AmqpAdmin;
 import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.amqp.core.Binding;
@@ -127,6 +157,7 @@ import reactor.netty.resources.ConnectionProvider;
 import javax.net.ssl.SSLException;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Paths;
 import java.security.KeyFactory;
 import java.security.KeyPair;
 import java.security.NoSuchAlgorithmException;
@@ -135,16 +166,19 @@ import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
 import java.text.ParseException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 
-import static in.org.projecteka.hiu.common.Constants.EMPTY_STRING;
 import static io.lettuce.core.ReadFrom.MASTER_PREFERRED;
 import static java.time.Duration.ofDays;
+import static java.time.Duration.ofHours;
 import static java.time.Duration.ofMinutes;
 
 @Configuration
@@ -153,8 +187,24 @@ public class HiuConfiguration {
     public static final String HIU_DEAD_LETTER_ROUTING_KEY = "deadLetter";
     public static final String EXCHANGE = "exchange";
 
+    @Bean(value = "databaseVertx", destroyMethod = "close")
+    public Vertx databaseVertx(DatabaseProperties dbProps) {
+        var vertxOptions = new VertxOptions();
+        if (dbProps.getEventLoopSize() > 0) {
+            vertxOptions.setEventLoopPoolSize(dbProps.getEventLoopSize());
+        }
+        return Vertx.vertx(vertxOptions);
+    }
+
+    @Bean
+    public PoolMetricsRegistry poolMetricsRegistry(DatabaseProperties dbProps) {
+        return new PoolMetricsRegistry(dbProps.isPoolMetricsEnabled());
+    }
+
     @Bean("readWriteClient")
-    public PgPool readWriteClient(DatabaseProperties dbProps) {
+    public PgPool readWriteClient(DatabaseProperties dbProps,
+                                  @Qualifier("databaseVertx") Vertx vertx,
+                                  PoolMetricsRegistry poolMetricsRegistry) {
         PgConnectOptions connectOptions = new PgConnectOptions()
                 .setPort(dbProps.getPort())
                 .setHost(dbProps.getHost())
@@ -162,21 +212,62 @@ public class HiuConfiguration {
                 .setUser(dbProps.getUser())
                 .setPassword(dbProps.getPassword());
 
-        PoolOptions poolOptions = new PoolOptions().setMaxSize(dbProps.getPoolSize());
-        return PgPool.pool(connectOptions, poolOptions);
+        PoolOptions poolOptions = poolOptions(dbProps, dbProps.getPoolSize());
+        return poolMetricsRegistry.metered("readWriteClient",
+                PgPool.pool(vertx, tuned(connectOptions, dbProps), poolOptions),
+                poolOptions.getMaxSize());
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ReplicaRouter replicaRouter(DatabaseProperties dbProps,
+                                       @Qualifier("readWriteClient") PgPool readWriteClient,
+                                       @Qualifier("databaseVertx") Vertx vertx,
+                                       PoolMetricsRegistry poolMetricsRegistry) {
+        var readReplicas = dbProps.getReadReplicas();
+        var replicaPools = new ArrayList<PgPool>();
+        for (int i = 0; i < readReplicas.size(); i++) {
+            var replica = readReplicas.get(i);
+            PgConnectOptions connectOptions = new PgConnectOptions()
+                    .setPort(replica.getPort())
+                    .setHost(replica.getHost())
+                    .setDatabase(dbProps.getSchema())
+                    .setUser(replica.getUser())
+                    .setPassword(replica.getPassword());
+
+            PoolOptions poolOptions = poolOptions(dbProps, replica.getPoolSize());
+            var name = readReplicas.size() == 1 ? "readOnlyClient" : "readOnlyClient-" + i;
+            replicaPools.add(poolMetricsRegistry.metered(name,
+                    PgPool.pool(vertx, tuned(connectOptions, dbProps), poolOptions),
+                    poolOptions.getMaxSize()));
+        }
+        return new ReplicaRouter(readWriteClient,
+                replicaPools,
+                dbProps.isReadingFromReplicas(),
+                Duration.ofSeconds(dbProps.getReplicaLagCheckIntervalInSeconds()));
     }
 
     @Bean("readOnlyClient")
-    public PgPool readOnlyClient(DatabaseProperties dbProps) {
-        PgConnectOptions connectOptions = new PgConnectOptions()
-                .setPort(dbProps.getReplica().getPort())
-                .setHost(dbProps.getReplica().getHost())
-                .setDatabase(dbProps.getSchema())
-                .setUser(dbProps.getReplica().getUser())
-                .setPassword(dbProps.getReplica().getPassword());
+    public PgPool readOnlyClient(ReplicaRouter replicaRouter, DatabaseProperties dbProps) {
+        return replicaRouter.pool(Duration.ofSeconds(dbProps.getMaxReplicaLagInSeconds()));
+    }
+
+    @Bean("statusReadClient")
+    public PgPool statusReadClient(ReplicaRouter replicaRouter, DatabaseProperties dbProps) {
+        return replicaRouter.pool(Duration.ofSeconds(dbProps.getMaxStatusReplicaLagInSeconds()));
+    }
 
-        PoolOptions poolOptions = new PoolOptions().setMaxSize(dbProps.getReplica().getPoolSize());
-        return PgPool.pool(connectOptions, poolOptions);
+    private static PgConnectOptions tuned(PgConnectOptions connectOptions, DatabaseProperties dbProps) {
+        connectOptions.setPipeliningLimit(dbProps.getPipeliningLimit());
+        connectOptions.setCachePreparedStatements(true);
+        connectOptions.setPreparedStatementCacheMaxSize(dbProps.getPreparedStatementCacheSize());
+        connectOptions.setIdleTimeout(dbProps.getIdleTimeoutInSeconds());
+        return connectOptions;
+    }
+
+    private static PoolOptions poolOptions(DatabaseProperties dbProps, int poolSize) {
+        return new PoolOptions()
+                .setMaxSize(poolSize)
+                .setMaxWaitQueueSize(dbProps.getMaxWaitQueueSize());
     }
 
     @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "redis")
@@ -200,36 +291,69 @@ public class HiuConfiguration {
         return new LettuceConnectionFactory(configuration, clientConfiguration);
     }
 
-    @Bean
+    @Bean({"accessToken", "blockListedTokens"})
     @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "guava", matchIfMissing = true)
-    public LoadingCache<String, String> loadingCacheForAccessToken() {
-        return CacheBuilder
-                .newBuilder()
-                .expireAfterWrite(5, TimeUnit.MINUTES)
-                .build(new CacheLoader<>() {
-                    public String load(String key) {
-                        return EMPTY_STRING;
-                    }
-                });
+    public CacheAdapter<String, String> accessTokenCacheAdapter(GuavaCacheOptions guavaCacheOptions,
+                                                                GatewayProperties gatewayProperties,
+                                                                CacheMetricsRegistry cacheMetricsRegistry) {
+        return cacheMetricsRegistry.inMemory("accessToken",
+                inMemoryCache(guavaCacheOptions.maximumSizeOf("accessToken", 10000),
+                        ofMinutes(gatewayProperties.getAccessTokenExpiryInMinutes())));
     }
 
-    @Bean({"accessToken", "blockListedTokens"})
-    @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "guava", matchIfMissing = true)
-    public CacheAdapter<String, String> accessTokenCacheAdapter(
-            LoadingCache<String, String> loadingCacheForAccessToken) {
-        return new LoadingCacheGenericAdapter<>(loadingCacheForAccessToken, EMPTY_STRING);
+    private static <T> GuavaCacheAdapter<T> inMemoryCache(long maximumSize, Duration expiration) {
+        return new GuavaCacheAdapter<>(CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expiration)
+                .recordStats()
+                .build());
     }
 
     @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "redis")
-    @Bean({"accessToken", "blockListedTokens"})
+    @Bean(value = "accessToken", initMethod = "start", destroyMethod = "stop")
     public CacheAdapter<String, String> redisAccessTokenCacheAdapter(
             ReactiveRedisOperations<String, String> stringReactiveRedisOperations,
             RedisOptions redisOptions,
-            GatewayProperties gatewayProperties) {
-        return new RedisGenericAdapter<>(stringReactiveRedisOperations,
-                ofMinutes(gatewayProperties.getAccessTokenExpiryInMinutes()),
+            GatewayProperties gatewayProperties,
+            CacheMetricsRegistry cacheMetricsRegistry) {
+        var expiration = ofMinutes(gatewayProperties.getAccessTokenExpiryInMinutes());
+        var remoteCache = new RedisGenericAdapter<>(stringReactiveRedisOperations,
+                expiration,
                 "hiu-gateway-accessToken",
                 redisOptions.getRetry());
+        return cacheMetricsRegistry.tiered("accessToken",
+                tieredCache(redisOptions, expiration, remoteCache, stringReactiveRedisOperations,
+                        "hiu-gateway-accessToken-changes"));
+    }
+
+    // block listings are written to redis by the identity provider, with no announcement to drop a near copy by
+    @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "redis")
+    @Bean("blockListedTokens")
+    public CacheAdapter<String, String> redisBlockListedTokensCacheAdapter(
+            ReactiveRedisOperations<String, String> stringReactiveRedisOperations,
+            RedisOptions redisOptions,
+            GatewayProperties gatewayProperties,
+            CacheMetricsRegistry cacheMetricsRegistry) {
+        return cacheMetricsRegistry.metered("blockListedTokens",
+                new RedisGenericAdapter<>(stringReactiveRedisOperations,
+                        ofMinutes(gatewayProperties.getAccessTokenExpiryInMinutes()),
+                        "hiu-gateway-accessToken",
+                        redisOptions.getRetry()));
+    }
+
+    // entries put through the tier expire near no later than in redis, entries read from redis near no later than
+    // redis had them expire when they were read
+    private static <T> TieredCacheAdapter<T> tieredCache(RedisOptions redisOptions,
+                                                         Duration expiration,
+                                                         RedisGenericAdapter<T> remoteCache,
+                                                         ReactiveRedisOperations<String, String> redisOperations,
+                                                         String channel) {
+        var nearExpiry = Duration.ofSeconds(redisOptions.getNearCacheExpiryInSeconds());
+        return new TieredCacheAdapter<>(redisOptions.getNearCacheMaximumSize(),
+                nearExpiry.compareTo(expiration) < 0 ? nearExpiry : expiration,
+                remoteCache,
+                redisOperations,
+                channel);
     }
 
     @Bean
@@ -327,44 +451,54 @@ public class HiuConfiguration {
                                          CacheAdapter<String, Patient> cache,
                                          HiuProperties hiuProperties,
                                          GatewayProperties gatewayProperties,
-                                         CacheAdapter<String, PatientSearchGatewayResponse> patientSearchCache) {
+                                         CacheAdapter<String, PatientSearchGatewayResponse> patientSearchCache,
+                                         CorrelationRegistry<PatientSearchGatewayResponse> findPatientResponses) {
         return new PatientService(
                 gatewayServiceClient,
                 cache,
                 hiuProperties,
                 gatewayProperties,
-                patientSearchCache);
+                patientSearchCache,
+                findPatientResponses);
     }
 
     @Bean
     @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "guava", matchIfMissing = true)
-    public LoadingCache<String, Patient> patientCache() {
-        return CacheBuilder
-                .newBuilder()
-                .maximumSize(50)
-                .expireAfterWrite(1, TimeUnit.HOURS)
-                .build(new CacheLoader<>() {
-                    public Patient load(String anyKey) {
-                        return Patient.empty();
-                    }
-                });
+    public CorrelationRegistry<PatientSearchGatewayResponse> findPatientResponses() {
+        return new LocalCorrelationRegistry<>();
+    }
+
+    @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "redis")
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public CorrelationRegistry<PatientSearchGatewayResponse> redisFindPatientResponses(
+            ReactiveRedisOperations<String, PatientSearchGatewayResponse> patientResponseReactiveOperations) {
+        return new RedisCorrelationRegistry<>(patientResponseReactiveOperations,
+                "hiu-find-patient-responses",
+                response -> response.getResp().getRequestId());
     }
 
     @Bean
     @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "guava", matchIfMissing = true)
-    public CacheAdapter<String, Patient> patientCacheAdapter(LoadingCache<String, Patient> patientCache) {
-        return new LoadingCacheGenericAdapter<>(patientCache, Patient.empty());
+    public CacheAdapter<String, Patient> patientCacheAdapter(GuavaCacheOptions guavaCacheOptions,
+                                                             CacheMetricsRegistry cacheMetricsRegistry) {
+        return cacheMetricsRegistry.inMemory("patients",
+                inMemoryCache(guavaCacheOptions.maximumSizeOf("patients", 50), ofHours(1)));
     }
 
     @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "redis")
-    @Bean
+    @Bean(initMethod = "start", destroyMethod = "stop")
     public CacheAdapter<String, Patient> redisPatientGatewayResponse(
-            ReactiveRedisOperations<String, Patient> stringReactiveRedisOperations,
-            RedisOptions redisOptions) {
-        return new RedisGenericAdapter<>(stringReactiveRedisOperations,
+            ReactiveRedisOperations<String, Patient> redisPatientOperations,
+            ReactiveRedisOperations<String, String> stringReactiveRedisOperations,
+            RedisOptions redisOptions,
+            CacheMetricsRegistry cacheMetricsRegistry) {
+        var remoteCache = new RedisGenericAdapter<>(redisPatientOperations,
                 ofDays(1),
                 "hiu-patient",
                 redisOptions.getRetry());
+        return cacheMetricsRegistry.tiered("patients",
+                tieredCache(redisOptions, ofDays(1), remoteCache, stringReactiveRedisOperations,
+                        "hiu-patient-changes"));
     }
 
     @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "redis")
@@ -377,29 +511,17 @@ public class HiuConfiguration {
         return new ReactiveRedisTemplate<>(factory, builder.value(valueSerializer).build());
     }
 
-    @Bean
-    @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "guava", matchIfMissing = true)
-    public LoadingCache<String, DataFlowRequestKeyMaterial> dataFlowCache() {
-        return CacheBuilder
-                .newBuilder()
-                .maximumSize(50)
-                .expireAfterWrite(1, TimeUnit.HOURS)
-                .build(new CacheLoader<>() {
-                    public DataFlowRequestKeyMaterial load(String anyKey) {
-                        return DataFlowRequestKeyMaterial.empty();
-                    }
-                });
-    }
-
-    @Bean
+    @Bean("dataFlowRequestKeyCache")
     @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "guava", matchIfMissing = true)
     public CacheAdapter<String, DataFlowRequestKeyMaterial> dataFlowCacheAdapter(
-            LoadingCache<String, DataFlowRequestKeyMaterial> dataFlowCache) {
-        return new LoadingCacheGenericAdapter<>(dataFlowCache, DataFlowRequestKeyMaterial.empty());
+            GuavaCacheOptions guavaCacheOptions,
+            CacheMetricsRegistry cacheMetricsRegistry) {
+        return cacheMetricsRegistry.inMemory("dataFlowRequestKeys",
+                inMemoryCache(guavaCacheOptions.maximumSizeOf("dataFlowRequestKeys", 50), ofHours(1)));
     }
 
     @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "redis")
-    @Bean
+    @Bean("dataFlowRequestKeyCache")
     public CacheAdapter<String, DataFlowRequestKeyMaterial> redisDataFlowAdapter(
             ReactiveRedisOperations<String, DataFlowRequestKeyMaterial> stringReactiveRedisOperations,
             RedisOptions redisOptions) {
@@ -409,6 +531,48 @@ public class HiuConfiguration {
                 redisOptions.getRetry());
     }
 
+    @Bean
+    public CacheMetricsRegistry cacheMetricsRegistry() {
+        return new CacheMetricsRegistry();
+    }
+
+    @Bean("transactionKeyCache")
+    @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "guava", matchIfMissing = true)
+    public CacheAdapter<String, DataFlowRequestKeyMaterial> transactionKeyCacheAdapter(
+            DataFlowProperties dataFlowProperties,
+            GuavaCacheOptions guavaCacheOptions,
+            CacheMetricsRegistry cacheMetricsRegistry) {
+        return cacheMetricsRegistry.inMemory("transactionKeys",
+                inMemoryCache(guavaCacheOptions.maximumSizeOf("transactionKeys", 1000),
+                        ofDays(keyExpiryInDays(dataFlowProperties))));
+    }
+
+    @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "redis")
+    @Bean("transactionKeyCache")
+    public CacheAdapter<String, DataFlowRequestKeyMaterial> redisTransactionKeyAdapter(
+            ReactiveRedisOperations<String, DataFlowRequestKeyMaterial> stringReactiveRedisOperations,
+            RedisOptions redisOptions,
+            DataFlowProperties dataFlowProperties,
+            CacheMetricsRegistry cacheMetricsRegistry) {
+        return cacheMetricsRegistry.metered("transactionKeys",
+                new RedisGenericAdapter<>(stringReactiveRedisOperations,
+                        ofDays(keyExpiryInDays(dataFlowProperties)),
+                        "hiu-transaction-key",
+                        redisOptions.getRetry()));
+    }
+
+    // keys are of no use once the data flow request they were generated for has expired
+    private static int keyExpiryInDays(DataFlowProperties dataFlowProperties) {
+        return Math.max(dataFlowProperties.getOffsetInDays(), 1);
+    }
+
+    @Bean
+    public TransactionKeyStore transactionKeyStore(
+            DataFlowRepository dataFlowRepository,
+            @Qualifier("transactionKeyCache") CacheAdapter<String, DataFlowRequestKeyMaterial> transactionKeyCache) {
+        return new TransactionKeyStore(dataFlowRepository, transactionKeyCache);
+    }
+
     @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "redis")
     @Bean
     ReactiveRedisOperations<String, DataFlowRequestKeyMaterial> dataFlowReactiveOperations(
@@ -419,20 +583,6 @@ public class HiuConfiguration {
         return new ReactiveRedisTemplate<>(factory, builder.value(valueSerializer).build());
     }
 
-    @Bean
-    @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "guava", matchIfMissing = true)
-    public LoadingCache<String, String> stringStringLoadingCache() {
-        return CacheBuilder
-                .newBuilder()
-                .maximumSize(50)
-                .expireAfterWrite(1, TimeUnit.HOURS)
-                .build(new CacheLoader<>() {
-                    public String load(String key) {
-                        return EMPTY_STRING;
-                    }
-                });
-    }
-
     @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "redis")
     @Bean("gatewayResponseCache")
     public CacheAdapter<String, String> redisGatewayResponseAdapter(
@@ -453,9 +603,10 @@ public class HiuConfiguration {
 
     @Bean({"gatewayResponseCache", "patientRequestCache"})
     @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "guava", matchIfMissing = true)
-    public CacheAdapter<String, String> patientRequestCacheAdapter(
-            LoadingCache<String, String> stringStringLoadingCache) {
-        return new LoadingCacheGenericAdapter<>(stringStringLoadingCache, EMPTY_STRING);
+    public CacheAdapter<String, String> patientRequestCacheAdapter(GuavaCacheOptions guavaCacheOptions,
+                                                                   CacheMetricsRegistry cacheMetricsRegistry) {
+        return cacheMetricsRegistry.inMemory("patientRequests",
+                inMemoryCache(guavaCacheOptions.maximumSizeOf("patientRequests", 50), ofHours(1)));
     }
 
     @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "redis")
@@ -470,22 +621,10 @@ public class HiuConfiguration {
     @Bean
     @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "guava", matchIfMissing = true)
     public CacheAdapter<String, PatientSearchGatewayResponse> patientSearchCacheAdapter(
-            LoadingCache<String, PatientSearchGatewayResponse> patientSearchCache) {
-        return new LoadingCacheGenericAdapter<>(patientSearchCache, PatientSearchGatewayResponse.empty());
-    }
-
-    @Bean
-    @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "guava", matchIfMissing = true)
-    public LoadingCache<String, PatientSearchGatewayResponse> patientSearchCache() {
-        return CacheBuilder
-                .newBuilder()
-                .maximumSize(50)
-                .expireAfterWrite(1, TimeUnit.HOURS)
-                .build(new CacheLoader<>() {
-                    public PatientSearchGatewayResponse load(String anyKey) {
-                        return PatientSearchGatewayResponse.empty();
-                    }
-                });
+            GuavaCacheOptions guavaCacheOptions,
+            CacheMetricsRegistry cacheMetricsRegistry) {
+        return cacheMetricsRegistry.inMemory("patientSearches",
+                inMemoryCache(guavaCacheOptions.maximumSizeOf("patientSearches", 50), ofHours(1)));
     }
 
     @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "redis")
@@ -596,8 +735,14 @@ public class HiuConfiguration {
     @Bean
     public MessageListenerContainerFactory messageListenerContainerFactory(
             ConnectionFactory connectionFactory,
-            Jackson2JsonMessageConverter jackson2JsonMessageConverter) {
-        return new MessageListenerContainerFactory(connectionFactory, jackson2JsonMessageConverter);
+            Jackson2JsonMessageConverter jackson2JsonMessageConverter,
+            ListenerContainerProperties listenerContainerProperties,
+            RabbitQueueNames queueNames) {
+        var containerSettings = Map.of(
+                queueNames.getDataFlowRequestQueue(), listenerContainerProperties.getDataFlowRequest(),
+                queueNames.getDataFlowProcessQueue(), listenerContainerProperties.getDataFlowProcess(),
+                queueNames.getDataFlowDeleteQueue(), listenerContainerProperties.getDataFlowDelete());
+        return new MessageListenerContainerFactory(connectionFactory, jackson2JsonMessageConverter, containerSettings);
     }
 
     @Bean
@@ -608,14 +753,20 @@ public class HiuConfiguration {
 
     @Bean
     public DataFlowRepository dataFlowRequestRepository(@Qualifier("readWriteClient") PgPool readWriteClient,
-                                                        @Qualifier("readOnlyClient") PgPool readOnlyClient) {
-        return new DataFlowRepository(readWriteClient, readOnlyClient);
+                                                        @Qualifier("readOnlyClient") PgPool readOnlyClient,
+                                                        @Qualifier("statusReadClient") PgPool statusReadClient) {
+        return new DataFlowRepository(readWriteClient, readOnlyClient, statusReadClient);
     }
 
     @Bean
     public HealthInformationRepository healthInformationRepository(@Qualifier("readWriteClient") PgPool readWriteClient,
-                                                                   @Qualifier("readOnlyClient") PgPool readOnlyClient) {
-        return new HealthInformationRepository(readWriteClient, readOnlyClient);
+                                                                   @Qualifier("readOnlyClient") PgPool readOnlyClient,
+                                                                   DataFlowServiceProperties serviceProperties) {
+        return new HealthInformationRepository(readWriteClient,
+                readOnlyClient,
+                serviceProperties.getStreamFetchSize(),
+                Duration.ofSeconds(serviceProperties.getStreamIdleTimeoutInSeconds()),
+                serviceProperties.getMaxOpenStreams());
     }
 
     @Bean
@@ -632,7 +783,7 @@ public class HiuConfiguration {
             Decryptor decryptor,
             DataFlowProperties dataFlowProperties,
             Gateway gateway,
-            CacheAdapter<String, DataFlowRequestKeyMaterial> dataFlowCache,
+            @Qualifier("dataFlowRequestKeyCache") CacheAdapter<String, DataFlowRequestKeyMaterial> dataFlowCache,
             ConsentRepository consentRepository,
             RabbitQueueNames queueNames) {
         return new DataFlowRequestListener(
@@ -668,8 +819,13 @@ public class HiuConfiguration {
     }
 
     @Bean
-    public LocalDataStore localDataStore() {
-        return new LocalDataStore();
+    public ContentAddressedStore attachmentStore(DataFlowServiceProperties serviceProperties) {
+        return new ContentAddressedStore(Paths.get(serviceProperties.getLocalStoragePath(), ".attachments"));
+    }
+
+    @Bean
+    public LocalDataStore localDataStore(ContentAddressedStore attachmentStore) {
+        return new LocalDataStore(attachmentStore);
     }
 
     @Bean
@@ -677,13 +833,37 @@ public class HiuConfiguration {
                                            DataAvailabilityPublisher dataAvailabilityPublisher,
                                            DataFlowServiceProperties properties,
                                            LocalDataStore localDataStore,
-                                           CacheAdapter<String, DataFlowRequestKeyMaterial> dataFlowCache) {
+                                           @Qualifier("dataFlowRequestKeyCache")
+                                                   CacheAdapter<String, DataFlowRequestKeyMaterial> dataFlowCache,
+                                           TransactionKeyStore transactionKeyStore,
+                                           DataRequestStatusNotifier dataRequestStatusNotifier) {
         return new DataFlowService(
                 dataFlowRepository,
                 dataAvailabilityPublisher,
                 properties,
                 localDataStore,
-                dataFlowCache);
+                dataFlowCache,
+                transactionKeyStore,
+                dataRequestStatusNotifier);
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "guava", matchIfMissing = true)
+    public DataRequestStatusBroadcaster dataRequestStatusBroadcaster() {
+        return new LocalDataRequestStatusBroadcaster();
+    }
+
+    @ConditionalOnProperty(value = "hiu.cache-method", havingValue = "redis")
+    @Bean
+    public DataRequestStatusBroadcaster redisDataRequestStatusBroadcaster(
+            ReactiveRedisOperations<String, String> stringReactiveRedisOperations) {
+        return new RedisDataRequestStatusBroadcaster(stringReactiveRedisOperations, "hiu-data-request-status");
+    }
+
+    @Bean
+    public DataRequestStatusNotifier dataRequestStatusNotifier(DataFlowRepository dataFlowRepository,
+                                                               DataRequestStatusBroadcaster statusBroadcaster) {
+        return new DataRequestStatusNotifier(dataFlowRepository, statusBroadcaster);
     }
 
     @Bean
@@ -691,12 +871,25 @@ public class HiuConfiguration {
                                                DataFlowRepository dataFlowRepository,
                                                HealthInformationRepository healthInformationRepository,
                                                PatientConsentRepository patientConsentRepository,
-                                               DataFlowServiceProperties serviceProperties) {
+                                               DataFlowServiceProperties serviceProperties,
+                                               DataRequestStatusBroadcaster statusBroadcaster) {
         return new HealthInfoManager(consentRepository,
                 dataFlowRepository,
                 patientConsentRepository,
                 healthInformationRepository,
-                serviceProperties);
+                serviceProperties,
+                statusBroadcaster);
+    }
+
+    @Bean
+    public AttachmentHandler attachmentHandler(HealthInfoManager healthInfoManager,
+                                               DataFlowServiceProperties serviceProperties) {
+        return new AttachmentHandler(healthInfoManager,
+                serviceProperties,
+                CacheBuilder.newBuilder()
+                        .maximumSize(10000)
+                        .expireAfterWrite(30, TimeUnit.MINUTES)
+                        .build());
     }
 
     @Bean
@@ -711,29 +904,64 @@ public class HiuConfiguration {
         return new DataAvailabilityPublisher(amqpTemplate, destinationsConfig, queueNames);
     }
 
+    @Bean
+    public FhirContext fhirContext() {
+        FhirContext fhirContext = FhirContext.forR4();
+        // model classes are scanned lazily, scan them at startup instead of while processing the first data part
+        Arrays.stream(ResourceType.values()).forEach(type -> fhirContext.getResourceDefinition(type.name()));
+        return fhirContext;
+    }
+
+    @Bean
+    public HealthDataProcessor healthDataProcessor(HealthDataRepository healthDataRepository,
+                                                   DataFlowRepository dataFlowRepository,
+                                                   TransactionKeyStore transactionKeyStore,
+                                                   Decryptor decryptor,
+                                                   LocalDicomServerProperties dicomServerProperties,
+                                                   HealthInformationClient healthInformationClient,
+                                                   Gateway gateway,
+                                                   HiuProperties hiuProperties,
+                                                   ConsentRepository consentRepository,
+                                                   DataProcessorProperties dataProcessorProperties,
+                                                   FhirContext fhirContext,
+                                                   DataRequestStatusNotifier dataRequestStatusNotifier,
+                                                   ContentAddressedStore attachmentStore) {
+        List<HITypeResourceProcessor> resourceProcessors = List.of(
+                new CompositionResourceProcessor(),
+                new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(dicomServerProperties),
+                        attachmentStore),
+                new DocumentReferenceResourceProcessor(attachmentStore),
+                new MedicationRequestResourceProcessor(),
+                new ConditionResourceProcessor(),
+                new ObservationResourceProcessor(),
+                new BinaryResourceProcessor(attachmentStore),
+                new ImmunizationResourceProcessor(),
+                new ImmunizationRecommendationProcessor());
+        return new HealthDataProcessor(healthDataRepository,
+                dataFlowRepository,
+                transactionKeyStore,
+                decryptor,
+                resourceProcessors,
+                healthInformationClient,
+                gateway,
+                hiuProperties,
+                consentRepository,
+                dataProcessorProperties,
+                fhirContext,
+                dataRequestStatusNotifier);
+    }
+
     @Bean
     public DataAvailabilityListener dataAvailabilityListener(
             MessageListenerContainerFactory messageListenerContainerFactory,
             DestinationsConfig destinationsConfig,
-            HealthDataRepository healthDataRepository,
-            DataFlowRepository dataFlowRepository,
-            LocalDicomServerProperties dicomServerProperties,
-            HealthInformationClient healthInformationClient,
-            Gateway gateway,
-            HiuProperties hiuProperties,
-            ConsentRepository consentRepository,
-            RabbitQueueNames queueNames) {
+            RabbitQueueNames queueNames,
+            HealthDataProcessor healthDataProcessor) {
         return new DataAvailabilityListener(
                 messageListenerContainerFactory,
                 destinationsConfig,
-                healthDataRepository,
-                dataFlowRepository,
-                dicomServerProperties,
-                healthInformationClient,
-                gateway,
-                hiuProperties,
-                consentRepository,
-                queueNames);
+                queueNames,
+                healthDataProcessor);
     }
 
     @Bean
@@ -749,7 +977,7 @@ public class HiuConfiguration {
         return new HealthInformationClient(builder, gatewayProperties);
     }
 
-    @Bean
+    @Bean(destroyMethod = "stop")
     public Gateway connector(GatewayProperties gatewayProperties,
                              GatewayAuthenticationClient gatewayAuthenticationClient,
                              @Qualifier("accessToken") CacheAdapter<String, String> accessToken) {
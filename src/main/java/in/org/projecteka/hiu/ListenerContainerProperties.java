@@ -0,0 +1,45 @@
+package in.org.projecteka.hiu;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "hiu.listeners")
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+@AllArgsConstructor
+public class ListenerContainerProperties {
+    private ContainerSettings dataFlowRequest = new ContainerSettings();
+    private ContainerSettings dataFlowProcess = new ContainerSettings();
+    private ContainerSettings dataFlowDelete = new ContainerSettings();
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ContainerSettings {
+        private int concurrentConsumers;
+        private int maxConcurrentConsumers;
+        private int prefetchCount;
+        private int batchSize;
+        private boolean consumerBatchEnabled;
+
+        public int getConcurrentConsumers() {
+            return Math.max(concurrentConsumers, 1);
+        }
+
+        public int getMaxConcurrentConsumers() {
+            return Math.max(maxConcurrentConsumers, getConcurrentConsumers());
+        }
+
+        public int getBatchSize() {
+            return Math.max(batchSize, 1);
+        }
+    }
+}
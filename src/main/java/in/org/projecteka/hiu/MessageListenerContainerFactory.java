@@ -1,24 +1,139 @@
 package in.org.projecteka.hiu;
 
+import in.org.projecteka.hiu.ListenerContainerProperties.ContainerSettings;
+import in.org.projecteka.hiu.common.listener.ListenerContainerStatus;
+import com.rabbitmq.client.Channel;
 import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageListener;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
 import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
 import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
 import org.springframework.amqp.rabbit.listener.adapter.MessageListenerAdapter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
 @AllArgsConstructor
 public class MessageListenerContainerFactory {
+    private static final ContainerSettings DEFAULT_SETTINGS = new ContainerSettings();
+
     private final ConnectionFactory connectionFactory;
     private final Jackson2JsonMessageConverter converter;
+    private final Map<String, ContainerSettings> containerSettings;
+    private final Map<String, ListenerContainer> containers = new ConcurrentHashMap<>();
 
     public MessageListenerContainer createMessageListenerContainer(String queueName) {
-        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
+        var settings = containerSettings.getOrDefault(queueName, DEFAULT_SETTINGS);
+        var container = new ListenerContainer(connectionFactory, settings);
         container.addQueueNames(queueName);
+        container.setConcurrentConsumers(settings.getConcurrentConsumers());
+        container.setMaxConcurrentConsumers(settings.getMaxConcurrentConsumers());
+        if (settings.getPrefetchCount() > 0) {
+            container.setPrefetchCount(settings.getPrefetchCount());
+        }
+        container.setBatchSize(settings.getBatchSize());
+        container.setConsumerBatchEnabled(settings.isConsumerBatchEnabled() && settings.getBatchSize() > 1);
+        if (container.isConsumerBatchEnabled()) {
+            container.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        }
 
         MessageListenerAdapter messageListenerAdapter = new MessageListenerAdapter();
         messageListenerAdapter.setMessageConverter(converter);
         container.setMessageListener(messageListenerAdapter);
+        containers.put(queueName, container);
         return container;
     }
-}
\ No newline at end of file
+
+    public List<ListenerContainerStatus> containerStatuses() {
+        return containers.entrySet().stream()
+                .map(entry -> entry.getValue().status(entry.getKey()))
+                .collect(Collectors.toList());
+    }
+
+    private static class ListenerContainer extends SimpleMessageListenerContainer {
+        private final ContainerSettings settings;
+
+        ListenerContainer(ConnectionFactory connectionFactory, ContainerSettings settings) {
+            super(connectionFactory);
+            this.settings = settings;
+        }
+
+        // Listeners are written per message; with consumer batching on, the container hands over a whole
+        // batch, so it is replayed message by message and each message is acknowledged (or rejected) on its own.
+        @Override
+        public void setMessageListener(Object messageListener) {
+            if (isConsumerBatchEnabled()
+                    && messageListener instanceof MessageListener
+                    && !(messageListener instanceof MessageListenerAdapter)) {
+                super.setMessageListener(
+                        new PerMessageListener((MessageListener) messageListener, isDefaultRequeueRejected()));
+                return;
+            }
+            super.setMessageListener(messageListener);
+        }
+
+        ListenerContainerStatus status(String queueName) {
+            return ListenerContainerStatus.builder()
+                    .queueName(queueName)
+                    .running(isRunning())
+                    .activeConsumers(getActiveConsumerCount())
+                    .concurrentConsumers(settings.getConcurrentConsumers())
+                    .maxConcurrentConsumers(settings.getMaxConcurrentConsumers())
+                    .prefetchCount(getPrefetchCount())
+                    .batchSize(settings.getBatchSize())
+                    .consumerBatchEnabled(isConsumerBatchEnabled())
+                    .build();
+        }
+    }
+
+    @AllArgsConstructor
+    private static class PerMessageListener implements ChannelAwareMessageListener {
+        private static final Logger logger = LoggerFactory.getLogger(PerMessageListener.class);
+
+        private final MessageListener delegate;
+        private final boolean defaultRequeueRejected;
+
+        @Override
+        public void onMessage(Message message, Channel channel) throws Exception {
+            long deliveryTag = message.getMessageProperties().getDeliveryTag();
+            try {
+                delegate.onMessage(message);
+            } catch (RuntimeException exception) {
+                logger.error("Listener failed for message {}, rejecting it", deliveryTag, exception);
+                channel.basicReject(deliveryTag, shouldRequeue(exception));
+                return;
+            }
+            channel.basicAck(deliveryTag, false);
+        }
+
+        @Override
+        public void onMessageBatch(List<Message> messages, Channel channel) {
+            for (Message message : messages) {
+                try {
+                    onMessage(message, channel);
+                } catch (Exception exception) {
+                    logger.error("Could not acknowledge message {}", message.getMessageProperties().getDeliveryTag(),
+                            exception);
+                }
+            }
+        }
+
+        private boolean shouldRequeue(Throwable exception) {
+            for (var cause = exception; cause != null; cause = cause.getCause()) {
+                if (cause instanceof AmqpRejectAndDontRequeueException) {
+                    return false;
+                }
+            }
+            return defaultRequeueRejected;
+        }
+    }
+}
@@ -33,7 +33,11 @@ import static in.org.projecteka.hiu.common.Constants.API_PATH_FETCH_PATIENT_HEAL
 import static in.org.projecteka.hiu.common.Constants.API_PATH_GET_HEALTH_INFO_STATUS;
 import static in.org.projecteka.hiu.common.Constants.APP_PATH_PATIENT_CONSENT_REQUEST;
 import static in.org.projecteka.hiu.common.Constants.GET_CERT;
+import static in.org.projecteka.hiu.common.Constants.INTERNAL_PATH_CACHE_METRICS;
+import static in.org.projecteka.hiu.common.Constants.INTERNAL_PATH_GATEWAY_TOKEN_METRICS;
+import static in.org.projecteka.hiu.common.Constants.INTERNAL_PATH_LISTENER_CONTAINERS;
 import static in.org.projecteka.hiu.common.Constants.INTERNAL_PATH_PATIENT_CARE_CONTEXT_INFO;
+import static in.org.projecteka.hiu.common.Constants.INTERNAL_PATH_POOL_METRICS;
 import static in.org.projecteka.hiu.common.Constants.PATH_CONSENTS_HIU_NOTIFY;
 import static in.org.projecteka.hiu.common.Constants.PATH_CONSENTS_ON_FETCH;
 import static in.org.projecteka.hiu.common.Constants.PATH_CONSENTS_ON_FIND;
@@ -71,7 +75,8 @@ public class SecurityConfiguration {
             Map.entry(HttpMethod.POST, APP_PATH_PATIENT_CONSENT_REQUEST),
             Map.entry(HttpMethod.GET, "/v1/patient/health-information/fetch/**/attachments/**"),
             Map.entry(HttpMethod.POST, API_PATH_FETCH_PATIENT_HEALTH_INFO),
-            Map.entry(HttpMethod.POST, API_PATH_GET_HEALTH_INFO_STATUS));
+            Map.entry(HttpMethod.POST, API_PATH_GET_HEALTH_INFO_STATUS),
+            Map.entry(HttpMethod.GET, API_PATH_GET_HEALTH_INFO_STATUS));
     private static final String[] ALLOWED_LISTS = new String[]{"/**.json",
 
             "/ValueSet",
@@ -99,6 +104,13 @@ public class SecurityConfiguration {
         httpSecurity.authorizeExchange().pathMatchers(ALLOWED_LISTS).permitAll();
         httpSecurity.httpBasic().disable().formLogin().disable().csrf().disable().logout().disable();
         httpSecurity.authorizeExchange().pathMatchers(HttpMethod.POST, "/users").hasAnyRole(Role.ADMIN.toString());
+        httpSecurity.authorizeExchange()
+                .pathMatchers(HttpMethod.GET,
+                        INTERNAL_PATH_LISTENER_CONTAINERS,
+                        INTERNAL_PATH_CACHE_METRICS,
+                        INTERNAL_PATH_POOL_METRICS,
+                        INTERNAL_PATH_GATEWAY_TOKEN_METRICS)
+                .hasAnyRole(Role.ADMIN.toString());
         httpSecurity.authorizeExchange().pathMatchers(HttpMethod.PUT, "/users/password").authenticated();
         CM_PATIENT_APIS.forEach(entry -> httpSecurity.authorizeExchange().pathMatchers(entry.getValue()).authenticated());
         httpSecurity.authorizeExchange()
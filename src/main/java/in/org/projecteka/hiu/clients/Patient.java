@@ -13,8 +13,4 @@ public class Patient {
     private String identifier;
     private String firstName;
     private String lastName;
-
-    public static Patient empty() {
-        return Patient.builder().build();
-    }
 }
\ No newline at end of file
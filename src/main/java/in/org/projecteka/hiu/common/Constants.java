@@ -23,6 +23,10 @@ public class Constants {
     public static final String API_PATH_GET_HEALTH_INFO_STATUS = "/v1/patient/health-information/status";
     public static final String VALIDATE_TOKEN = "/v1/account/token";
     public static final String INTERNAL_PATH_PATIENT_CARE_CONTEXT_INFO = "/internal/patient/hip/data-transfer-status";
+    public static final String INTERNAL_PATH_LISTENER_CONTAINERS = "/internal/listener-containers";
+    public static final String INTERNAL_PATH_CACHE_METRICS = "/internal/cache-metrics";
+    public static final String INTERNAL_PATH_POOL_METRICS = "/internal/pool-metrics";
+    public static final String INTERNAL_PATH_GATEWAY_TOKEN_METRICS = "/internal/gateway-token-metrics";
     public static final String PATH_CONSENT_REQUEST_ON_STATUS = CURRENT_VERSION + "/consent-requests/on-status";
     public static final String PATH_ON_AUTH_INIT = CURRENT_VERSION + "/users/auth/on-init";
     public static final String PATH_ON_AUTH_CONFIRM = CURRENT_VERSION + "/users/auth/on-confirm";
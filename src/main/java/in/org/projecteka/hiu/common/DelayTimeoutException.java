@@ -1,5 +0,0 @@
-package in.org.projecteka.hiu.common;
-
-public final class DelayTimeoutException extends RuntimeException {
-    private static final long serialVersionUID = 1_801_831_526_160_357_413L;
-}
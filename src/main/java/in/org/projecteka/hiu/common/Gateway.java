@@ -1,31 +1,149 @@
 package in.org.projecteka.hiu.common;
 
+import com.nimbusds.jwt.JWTParser;
 import in.org.projecteka.hiu.GatewayProperties;
 import in.org.projecteka.hiu.clients.GatewayAuthenticationClient;
+import in.org.projecteka.hiu.clients.Token;
 import in.org.projecteka.hiu.common.cache.CacheAdapter;
-import lombok.AllArgsConstructor;
 import org.apache.log4j.Logger;
+import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-@AllArgsConstructor
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.time.Duration.ofMinutes;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Hands out the gateway access token. A token is requested again ahead of its expiry, taken from the JWT exp claim
+ * or the cache expiry whichever is earlier, so callers find a valid token in the cache rather than wait for one.
+ * When the cache has no token anyway, concurrent callers share a single request for a new one.
+ */
 public class Gateway {
+    private static final String ACCESS_TOKEN = "hiu:gateway:accessToken";
+    private static final Duration RETRY_INTERVAL = Duration.ofSeconds(10);
+    private static final Duration MINIMUM_REFRESH_DELAY = Duration.ofSeconds(1);
     private final Logger logger = Logger.getLogger(Gateway.class);
 
     private final GatewayProperties gatewayProperties;
     private final GatewayAuthenticationClient gatewayAuthenticationClient;
     private final CacheAdapter<String, String> accessTokenCache;
+    private final AtomicReference<Mono<String>> inFlight = new AtomicReference<>();
+    private final AtomicReference<Disposable> scheduledRefresh = new AtomicReference<>();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder refreshNanos = new LongAdder();
+    private final AtomicLong maxRefreshNanos = new AtomicLong();
+    private volatile Instant expiresAt = Instant.EPOCH;
+
+    public Gateway(GatewayProperties gatewayProperties,
+                   GatewayAuthenticationClient gatewayAuthenticationClient,
+                   CacheAdapter<String, String> accessTokenCache) {
+        this.gatewayProperties = gatewayProperties;
+        this.gatewayAuthenticationClient = gatewayAuthenticationClient;
+        this.accessTokenCache = accessTokenCache;
+    }
 
     public Mono<String> token() {
-        return accessTokenCache.get("hiu:gateway:accessToken")
-                .switchIfEmpty(Mono.defer(this::tokenUsingSecret))
-                .doOnError(logger::error)
-                .map(token -> token);
+        return accessTokenCache.get(ACCESS_TOKEN)
+                .switchIfEmpty(Mono.defer(this::refresh))
+                .doOnError(logger::error);
+    }
+
+    public void stop() {
+        Optional.ofNullable(scheduledRefresh.getAndSet(null)).ifPresent(Disposable::dispose);
+    }
+
+    public GatewayTokenMetrics metrics() {
+        long refreshed = refreshes.sum();
+        return GatewayTokenMetrics.builder()
+                .refreshes(refreshed)
+                .failures(failures.sum())
+                .averageRefreshMillis(refreshed == 0 ? 0 : refreshNanos.sum() / 1e6 / refreshed)
+                .maxRefreshMillis(maxRefreshNanos.get() / 1e6)
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    private Mono<String> refresh() {
+        var current = inFlight.get();
+        if (current != null) {
+            return current;
+        }
+        Mono<String> refresh = tokenUsingSecret().cache();
+        if (!inFlight.compareAndSet(null, refresh)) {
+            return Mono.defer(this::refresh);
+        }
+        return refresh.doFinally(signal -> inFlight.compareAndSet(refresh, null));
     }
 
     private Mono<String> tokenUsingSecret() {
-        return gatewayAuthenticationClient.getTokenFor(gatewayProperties.getClientId(), gatewayProperties.getClientSecret())
-                .flatMap(token ->
-                        accessTokenCache.put("hiu:gateway:accessToken", token.getBearerToken())
-                                .thenReturn(token.getBearerToken()));
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return gatewayAuthenticationClient
+                    .getTokenFor(gatewayProperties.getClientId(), gatewayProperties.getClientSecret())
+                    .map(Token::getBearerToken)
+                    .flatMap(token -> accessTokenCache.put(ACCESS_TOKEN, token).thenReturn(token))
+                    .doOnSuccess(token -> {
+                        if (token != null) {
+                            recordRefresh(start);
+                            scheduleRefresh(refreshDelay(token));
+                        }
+                    })
+                    .doOnError(error -> failures.increment());
+        });
+    }
+
+    // failed requests are counted as failures only, so the refresh latency is the one of tokens actually obtained
+    private void recordRefresh(long start) {
+        long elapsed = System.nanoTime() - start;
+        refreshes.increment();
+        refreshNanos.add(elapsed);
+        maxRefreshNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    private void scheduleRefresh(Duration delay) {
+        var next = Schedulers.parallel().schedule(this::refreshInBackground, delay.toMillis(), MILLISECONDS);
+        Optional.ofNullable(scheduledRefresh.getAndSet(next)).ifPresent(Disposable::dispose);
+    }
+
+    // a failed refresh is tried again while the token in the cache is still valid
+    private void refreshInBackground() {
+        refresh().subscribe(token -> {
+        }, error -> {
+            if (expiresAt.isAfter(Instant.now().plus(RETRY_INTERVAL))) {
+                scheduleRefresh(RETRY_INTERVAL);
+            }
+        });
+    }
+
+    private Duration refreshDelay(String bearerToken) {
+        var now = Instant.now();
+        var cacheExpiry = now.plus(ofMinutes(gatewayProperties.getAccessTokenExpiryInMinutes()));
+        var expiry = expiryOf(bearerToken).filter(exp -> exp.isBefore(cacheExpiry)).orElse(cacheExpiry);
+        expiresAt = expiry;
+        var lifetime = Duration.between(now, expiry);
+        var refreshBefore = Duration.ofSeconds(gatewayProperties.getAccessTokenRefreshBeforeExpiryInSeconds());
+        var delay = lifetime.compareTo(refreshBefore) > 0 ? lifetime.minus(refreshBefore) : lifetime.dividedBy(2);
+        return delay.compareTo(MINIMUM_REFRESH_DELAY) > 0 ? delay : MINIMUM_REFRESH_DELAY;
+    }
+
+    private static Optional<Instant> expiryOf(String bearerToken) {
+        try {
+            return Optional.ofNullable(JWTParser.parse(bearerToken.replaceFirst("^Bearer ", ""))
+                    .getJWTClaimsSet()
+                    .getExpirationTime())
+                    .map(Date::toInstant);
+        } catch (ParseException e) {
+            return Optional.empty();
+        }
     }
 }
@@ -0,0 +1,16 @@
+package in.org.projecteka.hiu.common;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+
+@Builder
+@Value
+public class GatewayTokenMetrics {
+    long refreshes;
+    long failures;
+    double averageRefreshMillis;
+    double maxRefreshMillis;
+    Instant expiresAt;
+}
@@ -0,0 +1,19 @@
+package in.org.projecteka.hiu.common;
+
+import lombok.AllArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import static in.org.projecteka.hiu.common.Constants.INTERNAL_PATH_GATEWAY_TOKEN_METRICS;
+
+@RestController
+@AllArgsConstructor
+public class GatewayTokenMetricsController {
+    private final Gateway gateway;
+
+    @GetMapping(INTERNAL_PATH_GATEWAY_TOKEN_METRICS)
+    public Mono<GatewayTokenMetrics> gatewayTokenMetrics() {
+        return Mono.fromSupplier(gateway::metrics);
+    }
+}
@@ -0,0 +1,18 @@
+package in.org.projecteka.hiu.common;
+
+import lombok.AllArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "hiu.guava")
+@AllArgsConstructor
+@ConstructorBinding
+public class GuavaCacheOptions {
+    private final Map<String, Long> maximumSize;
+
+    public long maximumSizeOf(String cache, long defaultSize) {
+        return maximumSize == null ? defaultSize : maximumSize.getOrDefault(cache, defaultSize);
+    }
+}
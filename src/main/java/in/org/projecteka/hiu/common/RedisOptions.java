@@ -18,8 +18,18 @@ public class RedisOptions {
     private final boolean keepAliveEnabled;
     private final int retry;
     private final boolean useDefaultClientConfig;
+    private final int nearCacheMaximumSize;
+    private final int nearCacheExpiryInSeconds;
 
     public boolean useDefaultClientConfig() {
         return useDefaultClientConfig;
     }
+
+    public int getNearCacheMaximumSize() {
+        return nearCacheMaximumSize > 0 ? nearCacheMaximumSize : 1000;
+    }
+
+    public int getNearCacheExpiryInSeconds() {
+        return nearCacheExpiryInSeconds > 0 ? nearCacheExpiryInSeconds : 60;
+    }
 }
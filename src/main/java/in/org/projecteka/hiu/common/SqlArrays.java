@@ -0,0 +1,37 @@
+package in.org.projecteka.hiu.common;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Binds a list of values as a single array parameter, used as {@code column = ANY($1::text[])} or
+ * {@code column = ANY($1::uuid[])}, so the SQL text stays the same whatever the number of values and the prepared
+ * statement and its plan can be reused.
+ */
+public final class SqlArrays {
+    private SqlArrays() {
+    }
+
+    public static String[] textArray(Collection<String> values) {
+        return values.toArray(String[]::new);
+    }
+
+    /**
+     * Values that are not UUIDs are left out; they could not match a uuid column anyway.
+     */
+    public static UUID[] uuidArray(Collection<String> values) {
+        return values.stream()
+                .map(SqlArrays::toUUID)
+                .filter(Objects::nonNull)
+                .toArray(UUID[]::new);
+    }
+
+    private static UUID toUUID(String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
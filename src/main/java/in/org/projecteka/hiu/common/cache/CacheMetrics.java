@@ -0,0 +1,19 @@
+package in.org.projecteka.hiu.common.cache;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Builder
+@Value
+public class CacheMetrics {
+    String name;
+    long hits;
+    long misses;
+    long evictions;
+    long size;
+
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
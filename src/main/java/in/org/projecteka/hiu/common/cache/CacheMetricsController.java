@@ -0,0 +1,19 @@
+package in.org.projecteka.hiu.common.cache;
+
+import lombok.AllArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import static in.org.projecteka.hiu.common.Constants.INTERNAL_PATH_CACHE_METRICS;
+
+@RestController
+@AllArgsConstructor
+public class CacheMetricsController {
+    private final CacheMetricsRegistry cacheMetricsRegistry;
+
+    @GetMapping(INTERNAL_PATH_CACHE_METRICS)
+    public Flux<CacheMetrics> cacheMetrics() {
+        return Flux.fromIterable(cacheMetricsRegistry.metrics());
+    }
+}
@@ -0,0 +1,35 @@
+package in.org.projecteka.hiu.common.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+public class CacheMetricsRegistry {
+    private final List<Supplier<List<CacheMetrics>>> caches = new CopyOnWriteArrayList<>();
+
+    public <K, V> MeteredCacheAdapter<K, V> metered(String name, CacheAdapter<K, V> cacheAdapter) {
+        var meteredCacheAdapter = new MeteredCacheAdapter<>(name, cacheAdapter);
+        caches.add(() -> List.of(meteredCacheAdapter.metrics()));
+        return meteredCacheAdapter;
+    }
+
+    public <V> GuavaCacheAdapter<V> inMemory(String name, GuavaCacheAdapter<V> cacheAdapter) {
+        caches.add(() -> List.of(cacheAdapter.metrics(name)));
+        return cacheAdapter;
+    }
+
+    /**
+     * A tiered cache counts hits per tier itself, and is reported as one entry per tier.
+     */
+    public <V> TieredCacheAdapter<V> tiered(String name, TieredCacheAdapter<V> cacheAdapter) {
+        caches.add(() -> cacheAdapter.metrics(name));
+        return cacheAdapter;
+    }
+
+    public List<CacheMetrics> metrics() {
+        return caches.stream()
+                .flatMap(cache -> cache.get().stream())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,51 @@
+package in.org.projecteka.hiu.common.cache;
+
+import com.google.common.cache.Cache;
+import reactor.core.publisher.Mono;
+
+import static reactor.core.publisher.Mono.fromCallable;
+import static reactor.core.publisher.Mono.fromRunnable;
+
+/**
+ * An in-process cache. A key that is not cached reads as empty, and nothing is stored for it, so only put entries
+ * count against the size bound of the cache. Build the cache with recordStats for {@link #metrics} to count.
+ */
+public class GuavaCacheAdapter<T> implements CacheAdapter<String, T> {
+    private final Cache<String, T> cache;
+
+    public GuavaCacheAdapter(Cache<String, T> cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public Mono<T> get(String key) {
+        return fromCallable(() -> cache.getIfPresent(key));
+    }
+
+    @Override
+    public Mono<Void> put(String key, T value) {
+        return fromRunnable(() -> cache.put(key, value));
+    }
+
+    @Override
+    public Mono<Void> invalidate(String key) {
+        return fromRunnable(() -> cache.invalidate(key));
+    }
+
+    @Override
+    public Mono<Boolean> exists(String key) {
+        // asMap does not count towards the hits and misses of the cache
+        return fromCallable(() -> cache.asMap().containsKey(key));
+    }
+
+    public CacheMetrics metrics(String name) {
+        var stats = cache.stats();
+        return CacheMetrics.builder()
+                .name(name)
+                .hits(stats.hitCount())
+                .misses(stats.missCount())
+                .evictions(stats.evictionCount())
+                .size(cache.size())
+                .build();
+    }
+}
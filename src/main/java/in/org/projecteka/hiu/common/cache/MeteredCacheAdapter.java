@@ -0,0 +1,50 @@
+package in.org.projecteka.hiu.common.cache;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts hits and misses of the wrapped cache; exposed through {@link CacheMetricsRegistry}.
+ */
+public class MeteredCacheAdapter<K, V> implements CacheAdapter<K, V> {
+    private final String name;
+    private final CacheAdapter<K, V> cacheAdapter;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MeteredCacheAdapter(String name, CacheAdapter<K, V> cacheAdapter) {
+        this.name = name;
+        this.cacheAdapter = cacheAdapter;
+    }
+
+    @Override
+    public Mono<V> get(K key) {
+        return cacheAdapter.get(key)
+                .doOnNext(value -> hits.increment())
+                .switchIfEmpty(Mono.fromRunnable(misses::increment));
+    }
+
+    @Override
+    public Mono<Void> put(K key, V value) {
+        return cacheAdapter.put(key, value);
+    }
+
+    @Override
+    public Mono<Void> invalidate(K key) {
+        return cacheAdapter.invalidate(key);
+    }
+
+    @Override
+    public Mono<Boolean> exists(K key) {
+        return cacheAdapter.exists(key);
+    }
+
+    public CacheMetrics metrics() {
+        return CacheMetrics.builder()
+                .name(name)
+                .hits(hits.sum())
+                .misses(misses.sum())
+                .build();
+    }
+}
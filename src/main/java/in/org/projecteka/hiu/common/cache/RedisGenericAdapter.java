@@ -73,4 +73,11 @@ public class RedisGenericAdapter<T> implements CacheAdapter<String, T> {
     public Mono<Boolean> exists(String key) {
         return retryable(redisOperations.hasKey(prefixThe(key)));
     }
+
+    /**
+     * How much longer redis keeps the key: zero when the key does not expire, and empty when it is gone.
+     */
+    public Mono<Duration> timeToLive(String key) {
+        return retryable(redisOperations.getExpire(prefixThe(key)));
+    }
 }
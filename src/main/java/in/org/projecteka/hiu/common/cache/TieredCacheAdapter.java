@@ -0,0 +1,177 @@
+package in.org.projecteka.hiu.common.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveRedisOperations;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import static reactor.core.publisher.Mono.fromRunnable;
+
+/**
+ * Keeps the entries read from the remote cache in an in-process near cache, so hot keys are read without a round
+ * trip. A node that puts or invalidates a key announces it on a Redis channel, and the other nodes drop their near
+ * copy of that key. Announcements are lost while the subscription is down, so the near cache is cleared whenever
+ * the subscription is lost, and its entries expire after a bound of their own for changes made directly in Redis.
+ * A key expiring in Redis is not announced either, so a near copy read from Redis lives no longer than the time
+ * Redis had left for the key when it was read.
+ */
+public class TieredCacheAdapter<T> implements CacheAdapter<String, T> {
+    private static final Logger logger = LoggerFactory.getLogger(TieredCacheAdapter.class);
+    private static final String SEPARATOR = ":";
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final Cache<String, NearEntry<T>> nearCache;
+    private final RedisGenericAdapter<T> remoteCache;
+    private final ReactiveRedisOperations<String, String> redisOperations;
+    private final String channel;
+    private final String node = UUID.randomUUID().toString();
+    private final LongAdder nearHits = new LongAdder();
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private Disposable invalidations;
+
+    /**
+     * @param nearExpiry bound on the life of a near copy, which should not be longer than the one of the entries
+     *                   put through this cache
+     */
+    public TieredCacheAdapter(long nearMaximumSize,
+                              Duration nearExpiry,
+                              RedisGenericAdapter<T> remoteCache,
+                              ReactiveRedisOperations<String, String> redisOperations,
+                              String channel) {
+        this.nearCache = CacheBuilder.newBuilder()
+                .maximumSize(nearMaximumSize)
+                .expireAfterWrite(nearExpiry)
+                .build();
+        this.remoteCache = remoteCache;
+        this.redisOperations = redisOperations;
+        this.channel = channel;
+    }
+
+    public void start() {
+        invalidations = redisOperations.listenToChannel(channel)
+                .map(ReactiveSubscription.Message::getMessage)
+                .doOnError(error -> {
+                    logger.error("Lost subscription to {}, clearing the near cache", channel, error);
+                    nearCache.invalidateAll();
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(this::onInvalidation);
+    }
+
+    public void stop() {
+        if (invalidations != null) {
+            invalidations.dispose();
+        }
+    }
+
+    @Override
+    public Mono<T> get(String key) {
+        return Mono.defer(() -> {
+            var nearEntry = nearEntryOf(key);
+            if (nearEntry.isPresent()) {
+                nearHits.increment();
+                return Mono.just(nearEntry.get().value);
+            }
+            // sent together, so the time to live costs no round trip of its own
+            return remoteCache.get(key)
+                    .zipWith(remoteCache.timeToLive(key).map(Optional::of).defaultIfEmpty(Optional.empty()))
+                    .doOnNext(entry -> {
+                        remoteHits.increment();
+                        entry.getT2().ifPresent(timeToLive -> keepNear(key, entry.getT1(), timeToLive));
+                    })
+                    .map(Tuple2::getT1)
+                    .switchIfEmpty(fromRunnable(misses::increment));
+        });
+    }
+
+    @Override
+    public Mono<Void> put(String key, T value) {
+        return remoteCache.put(key, value)
+                .then(announce(key))
+                .then(fromRunnable(() -> nearCache.put(key, new NearEntry<>(value, NO_DEADLINE))));
+    }
+
+    @Override
+    public Mono<Void> invalidate(String key) {
+        return fromRunnable(() -> nearCache.invalidate(key))
+                .then(remoteCache.invalidate(key))
+                .then(announce(key));
+    }
+
+    @Override
+    public Mono<Boolean> exists(String key) {
+        return Mono.defer(() -> nearEntryOf(key).isPresent()
+                                ? Mono.just(true)
+                                : remoteCache.exists(key));
+    }
+
+    /**
+     * Hit rates of each tier: the near tier counts every read, the remote tier only those the near tier missed.
+     */
+    public List<CacheMetrics> metrics(String name) {
+        long near = nearHits.sum();
+        long remote = remoteHits.sum();
+        long missed = misses.sum();
+        return List.of(
+                CacheMetrics.builder().name(name + ".near").hits(near).misses(remote + missed).build(),
+                CacheMetrics.builder().name(name + ".remote").hits(remote).misses(missed).build());
+    }
+
+    private Optional<NearEntry<T>> nearEntryOf(String key) {
+        var nearEntry = nearCache.getIfPresent(key);
+        if (nearEntry == null) {
+            return Optional.empty();
+        }
+        if (nearEntry.deadline != NO_DEADLINE && nearEntry.deadline - System.nanoTime() <= 0) {
+            nearCache.invalidate(key);
+            return Optional.empty();
+        }
+        return Optional.of(nearEntry);
+    }
+
+    /**
+     * A zero time to live is a key that does not expire in Redis, bounded by the near expiry alone.
+     */
+    private void keepNear(String key, T value, Duration timeToLive) {
+        if (timeToLive.isNegative()) {
+            return;
+        }
+        var deadline = timeToLive.isZero() ? NO_DEADLINE : System.nanoTime() + timeToLive.toNanos();
+        nearCache.put(key, new NearEntry<>(value, deadline));
+    }
+
+    private Mono<Void> announce(String key) {
+        return redisOperations.convertAndSend(channel, node + SEPARATOR + key)
+                .doOnError(error -> logger.error("Could not announce change of {} on {}", key, channel, error))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    private void onInvalidation(String message) {
+        int separator = message.indexOf(SEPARATOR);
+        if (separator < 0 || message.substring(0, separator).equals(node)) {
+            return;
+        }
+        nearCache.invalidate(message.substring(separator + 1));
+    }
+
+    @AllArgsConstructor
+    private static class NearEntry<T> {
+        private final T value;
+        private final long deadline;
+    }
+}
@@ -0,0 +1,21 @@
+package in.org.projecteka.hiu.common.correlation;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Pairs a request sent to the gateway with the callback the gateway answers it on, by the request id.
+ */
+public interface CorrelationRegistry<T> {
+    /**
+     * Sends the request and waits for the response to it, failing with a TimeoutException when none arrives
+     * within the timeout. The wait is registered before the request is sent, so a quick callback is not missed.
+     */
+    Mono<T> awaitResponse(String correlationId, Mono<?> request, Duration timeout);
+
+    /**
+     * Hands a callback to whoever awaits it; a response nobody awaits is dropped.
+     */
+    Mono<Void> complete(String correlationId, T response);
+}
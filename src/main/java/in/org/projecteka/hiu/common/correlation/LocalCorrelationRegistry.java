@@ -0,0 +1,43 @@
+package in.org.projecteka.hiu.common.correlation;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the pending requests of this node, so only callbacks received by this node complete them.
+ */
+public class LocalCorrelationRegistry<T> implements CorrelationRegistry<T> {
+    private final Map<String, MonoProcessor<T>> pending = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<T> awaitResponse(String correlationId, Mono<?> request, Duration timeout) {
+        return Mono.defer(() -> {
+            var response = MonoProcessor.<T>create();
+            pending.put(correlationId, response);
+            return request.then(response)
+                    .timeout(timeout)
+                    .doFinally(signal -> pending.remove(correlationId, response));
+        });
+    }
+
+    @Override
+    public Mono<Void> complete(String correlationId, T response) {
+        return Mono.fromRunnable(() -> deliver(correlationId, response));
+    }
+
+    /**
+     * @return false when no request of this node awaits the response
+     */
+    boolean deliver(String correlationId, T response) {
+        var awaiting = pending.remove(correlationId);
+        if (awaiting == null) {
+            return false;
+        }
+        awaiting.onNext(response);
+        return true;
+    }
+}
@@ -0,0 +1,59 @@
+package in.org.projecteka.hiu.common.correlation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveRedisOperations;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * The gateway may call back any node, not only the one that sent the request. A callback that no request of the
+ * receiving node awaits is published on a Redis channel, and the node awaiting it completes the request.
+ */
+public class RedisCorrelationRegistry<T> implements CorrelationRegistry<T> {
+    private static final Logger logger = LoggerFactory.getLogger(RedisCorrelationRegistry.class);
+    private final LocalCorrelationRegistry<T> localRegistry = new LocalCorrelationRegistry<>();
+    private final ReactiveRedisOperations<String, T> redisOperations;
+    private final String channel;
+    private final Function<T, String> correlationIdOf;
+    private Disposable subscription;
+
+    public RedisCorrelationRegistry(ReactiveRedisOperations<String, T> redisOperations,
+                                    String channel,
+                                    Function<T, String> correlationIdOf) {
+        this.redisOperations = redisOperations;
+        this.channel = channel;
+        this.correlationIdOf = correlationIdOf;
+    }
+
+    public void start() {
+        subscription = redisOperations.listenToChannel(channel)
+                .map(ReactiveSubscription.Message::getMessage)
+                .doOnError(error -> logger.error("Lost subscription to {}", channel, error))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(response -> localRegistry.deliver(correlationIdOf.apply(response), response));
+    }
+
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    @Override
+    public Mono<T> awaitResponse(String correlationId, Mono<?> request, Duration timeout) {
+        return localRegistry.awaitResponse(correlationId, request, timeout);
+    }
+
+    @Override
+    public Mono<Void> complete(String correlationId, T response) {
+        return Mono.defer(() -> localRegistry.deliver(correlationId, response)
+                                ? Mono.empty()
+                                : redisOperations.convertAndSend(channel, response).then());
+    }
+}
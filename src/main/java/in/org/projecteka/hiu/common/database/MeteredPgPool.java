@@ -0,0 +1,156 @@
+package in.org.projecteka.hiu.common.database;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Transaction;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps count of how a PgPool is used, since the vertx 3.9 pool does not report it. Every call that hands back a
+ * result through a handler is tracked from the call until the handler runs: for getConnection and begin that is
+ * the time to acquire a connection, which is then counted as held until it is closed, committed or rolled back;
+ * for queries run on the pool itself it covers waiting for a connection as well as running the query.
+ * Every call goes through a reflective proxy, which is why pools are only metered when asked for
+ * (hiu.database.poolMetricsEnabled).
+ */
+public class MeteredPgPool {
+    private static final Set<String> ACQUIRING_METHODS = Set.of("getConnection", "begin");
+    private static final Set<String> RELEASING_METHODS = Set.of("close", "commit", "rollback");
+
+    private final String name;
+    private final int maxSize;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger held = new AtomicInteger();
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+
+    public MeteredPgPool(String name, int maxSize) {
+        this.name = name;
+        this.maxSize = maxSize;
+    }
+
+    public PgPool wrap(PgPool pool) {
+        return proxy(PgPool.class, pool, (method, args) -> {
+            if (ACQUIRING_METHODS.contains(method.getName()) && hasHandler(args)) {
+                args[args.length - 1] = acquiring(method.getName(), handler(args));
+            } else if (hasHandler(args)) {
+                args[args.length - 1] = querying(handler(args));
+            }
+            var result = method.invoke(pool, args);
+            // preparedQuery(sql) and query(sql) return a query that is only run on execute
+            return result != null && method.getReturnType().isInterface() && method.getReturnType() != PgPool.class
+                   ? meteredQuery(method.getReturnType(), result)
+                   : result;
+        });
+    }
+
+    public PoolMetrics metrics() {
+        long acquired = acquisitions.sum();
+        long executed = queries.sum();
+        int inFlight = pending.get() + held.get();
+        return PoolMetrics.builder()
+                .name(name)
+                .maxSize(maxSize)
+                .estimatedInUse(Math.min(inFlight, maxSize))
+                .estimatedWaiting(Math.max(inFlight - maxSize, 0))
+                .heldConnections(held.get())
+                .acquisitions(acquired)
+                .averageAcquireMillis(acquired == 0 ? 0 : acquireNanos.sum() / 1e6 / acquired)
+                .maxAcquireMillis(maxAcquireNanos.get() / 1e6)
+                .queries(executed)
+                .averageQueryMillis(executed == 0 ? 0 : queryNanos.sum() / 1e6 / executed)
+                .build();
+    }
+
+    private Object meteredQuery(Class<?> type, Object query) {
+        return proxy(type, query, (method, args) -> {
+            if (hasHandler(args)) {
+                args[args.length - 1] = querying(handler(args));
+            }
+            return method.invoke(query, args);
+        });
+    }
+
+    private Handler<AsyncResult<Object>> querying(Handler<AsyncResult<Object>> handler) {
+        pending.incrementAndGet();
+        long start = System.nanoTime();
+        return result -> {
+            pending.decrementAndGet();
+            queries.increment();
+            queryNanos.add(System.nanoTime() - start);
+            handler.handle(result);
+        };
+    }
+
+    private Handler<AsyncResult<Object>> acquiring(String methodName, Handler<AsyncResult<Object>> handler) {
+        pending.incrementAndGet();
+        long start = System.nanoTime();
+        return result -> {
+            long elapsed = System.nanoTime() - start;
+            pending.decrementAndGet();
+            acquisitions.increment();
+            acquireNanos.add(elapsed);
+            maxAcquireNanos.accumulateAndGet(elapsed, Math::max);
+            if (result.failed()) {
+                handler.handle(result);
+                return;
+            }
+            held.incrementAndGet();
+            var type = methodName.equals("begin") ? Transaction.class : SqlConnection.class;
+            handler.handle(result.map(connection -> releasing(type, connection)));
+        };
+    }
+
+    private Object releasing(Class<?> type, Object connection) {
+        var released = new AtomicBoolean();
+        return proxy(type, connection, (method, args) -> {
+            if (RELEASING_METHODS.contains(method.getName()) && released.compareAndSet(false, true)) {
+                held.decrementAndGet();
+            }
+            return method.invoke(connection, args);
+        });
+    }
+
+    private static boolean hasHandler(Object[] args) {
+        return args != null && args.length > 0 && args[args.length - 1] instanceof Handler;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Handler<AsyncResult<Object>> handler(Object[] args) {
+        return (Handler<AsyncResult<Object>>) args[args.length - 1];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, Invocation invocation) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(target, args);
+            }
+            try {
+                return invocation.invoke(method, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, invocationHandler);
+    }
+
+    @FunctionalInterface
+    private interface Invocation {
+        Object invoke(Method method, Object[] args) throws Exception;
+    }
+}
@@ -0,0 +1,24 @@
+package in.org.projecteka.hiu.common.database;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * The vertx 3.9 pool does not expose its state, so estimatedInUse and estimatedWaiting are derived from the requests
+ * and connections MeteredPgPool has seen: requests in flight are assumed to occupy connections up to maxSize, and
+ * the rest to wait for one. A query pipelined on a held connection, for one, is counted as a connection of its own.
+ */
+@Builder
+@Value
+public class PoolMetrics {
+    String name;
+    int maxSize;
+    int estimatedInUse;
+    int estimatedWaiting;
+    int heldConnections;
+    long acquisitions;
+    double averageAcquireMillis;
+    double maxAcquireMillis;
+    long queries;
+    double averageQueryMillis;
+}
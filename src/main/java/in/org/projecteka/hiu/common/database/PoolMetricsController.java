@@ -0,0 +1,19 @@
+package in.org.projecteka.hiu.common.database;
+
+import lombok.AllArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import static in.org.projecteka.hiu.common.Constants.INTERNAL_PATH_POOL_METRICS;
+
+@RestController
+@AllArgsConstructor
+public class PoolMetricsController {
+    private final PoolMetricsRegistry poolMetricsRegistry;
+
+    @GetMapping(INTERNAL_PATH_POOL_METRICS)
+    public Flux<PoolMetrics> poolMetrics() {
+        return Flux.fromIterable(poolMetricsRegistry.metrics());
+    }
+}
@@ -0,0 +1,30 @@
+package in.org.projecteka.hiu.common.database;
+
+import io.vertx.pgclient.PgPool;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+@AllArgsConstructor
+public class PoolMetricsRegistry {
+    private final boolean enabled;
+    private final List<MeteredPgPool> pools = new CopyOnWriteArrayList<>();
+
+    /**
+     * @return the pool itself when pool metrics are disabled
+     */
+    public PgPool metered(String name, PgPool pool, int maxSize) {
+        if (!enabled) {
+            return pool;
+        }
+        var meteredPgPool = new MeteredPgPool(name, maxSize);
+        pools.add(meteredPgPool);
+        return meteredPgPool.wrap(pool);
+    }
+
+    public List<PoolMetrics> metrics() {
+        return pools.stream().map(MeteredPgPool::metrics).collect(Collectors.toList());
+    }
+}
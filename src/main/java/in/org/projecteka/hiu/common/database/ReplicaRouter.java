@@ -0,0 +1,134 @@
+package in.org.projecteka.hiu.common.database;
+
+import io.vertx.pgclient.PgPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Spreads reads over the replicas round-robin, skipping any replica whose replication lag is above the bound of
+ * the reading pool; when no replica is fresh enough the read goes to the primary. Lag is measured every
+ * lagCheckInterval, and a replica whose lag could not be measured is treated as too far behind.
+ */
+public class ReplicaRouter {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRouter.class);
+    private static final long UNKNOWN_LAG = Long.MAX_VALUE;
+    private static final String SELECT_REPLICATION_LAG = "SELECT CASE " +
+            "WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE (EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint " +
+            "END AS lag_millis";
+
+    private final PgPool primary;
+    private final List<PgPool> replicas;
+    private final boolean monitored;
+    private final Duration lagCheckInterval;
+    private final AtomicLongArray lagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private Disposable monitor;
+
+    /**
+     * @param monitored false when the replicas are pools on the primary itself, which never lag
+     */
+    public ReplicaRouter(PgPool primary, List<PgPool> replicas, boolean monitored, Duration lagCheckInterval) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.monitored = monitored;
+        this.lagCheckInterval = lagCheckInterval;
+        this.lagMillis = new AtomicLongArray(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            lagMillis.set(i, monitored ? UNKNOWN_LAG : 0);
+        }
+    }
+
+    public void start() {
+        if (!monitored) {
+            return;
+        }
+        monitor = Flux.interval(Duration.ZERO, lagCheckInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> Flux.range(0, replicas.size()).flatMap(this::measureLag))
+                .subscribe();
+    }
+
+    public void stop() {
+        if (monitor != null) {
+            monitor.dispose();
+        }
+    }
+
+    /**
+     * A pool that sends every call to a replica lagging at most maxLag behind, or to the primary. Closing it is a
+     * no-op; the pools it routes to are closed with their Vertx instance. A bound of zero is the primary itself,
+     * since a replica measured as caught up may have fallen behind again since.
+     */
+    public PgPool pool(Duration maxLag) {
+        if (maxLag.isZero() || maxLag.isNegative()) {
+            return primary;
+        }
+        return (PgPool) Proxy.newProxyInstance(PgPool.class.getClassLoader(),
+                new Class<?>[]{PgPool.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "PgPool routed within " + maxLag;
+                        case "close":
+                            if (args == null || args.length == 0) {
+                                return null;
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(select(maxLag), args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    PgPool select(Duration maxLag) {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            int candidate = (start + i) % size;
+            if (lagMillis.get(candidate) <= maxLag.toMillis()) {
+                return replicas.get(candidate);
+            }
+        }
+        return primary;
+    }
+
+    private Mono<Void> measureLag(int replica) {
+        return Mono.<Long>create(monoSink -> replicas.get(replica).query(SELECT_REPLICATION_LAG)
+                .execute(handler -> {
+                    if (handler.failed()) {
+                        monoSink.error(handler.cause());
+                        return;
+                    }
+                    monoSink.success(handler.result().iterator().next().getLong("lag_millis"));
+                }))
+                .defaultIfEmpty(UNKNOWN_LAG)
+                .doOnNext(lag -> lagMillis.set(replica, lag))
+                .doOnError(error -> {
+                    logger.error("Could not measure replication lag of replica {}", replica, error);
+                    lagMillis.set(replica, UNKNOWN_LAG);
+                })
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+}
@@ -0,0 +1,20 @@
+package in.org.projecteka.hiu.common.listener;
+
+import in.org.projecteka.hiu.MessageListenerContainerFactory;
+import lombok.AllArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import static in.org.projecteka.hiu.common.Constants.INTERNAL_PATH_LISTENER_CONTAINERS;
+
+@RestController
+@AllArgsConstructor
+public class ListenerContainerController {
+    private final MessageListenerContainerFactory messageListenerContainerFactory;
+
+    @GetMapping(INTERNAL_PATH_LISTENER_CONTAINERS)
+    public Flux<ListenerContainerStatus> listenerContainers() {
+        return Flux.fromIterable(messageListenerContainerFactory.containerStatuses());
+    }
+}
@@ -0,0 +1,17 @@
+package in.org.projecteka.hiu.common.listener;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Builder
+@Value
+public class ListenerContainerStatus {
+    String queueName;
+    boolean running;
+    int activeConsumers;
+    int concurrentConsumers;
+    int maxConcurrentConsumers;
+    int prefetchCount;
+    int batchSize;
+    boolean consumerBatchEnabled;
+}
@@ -37,9 +37,11 @@ public class ConsentRepository {
             "consent_artefact -> 'requester' ->> 'name' as requester, " +
             "consent_artefact -> 'permission' ->> 'dataEraseAt' as consentExpiryDate, status" +
             " FROM consent_artefact WHERE consent_request_id=$1";
-    private static final String INSERT_CONSENT_ARTEFACT_QUERY = "INSERT INTO " +
+    private static final String INSERT_CONSENT_ARTEFACT_QUERY = "WITH artefact AS (INSERT INTO " +
             "consent_artefact (consent_request_id, consent_artefact, consent_artefact_id, status, date_created)" +
-            " VALUES ($1, $2, $3, $4, $5)";
+            " VALUES ($1, $2, $3, $4, $5) RETURNING consent_request_id, consent_artefact_id) " +
+            "UPDATE data_request_status drs SET consent_artefact_id = artefact.consent_artefact_id " +
+            "FROM artefact WHERE drs.consent_request_id = artefact.consent_request_id";
     private static final String UPDATE_CONSENT_ARTEFACT_STATUS_QUERY = "UPDATE " +
             "consent_artefact set status=$1, date_modified=$2 where consent_artefact_id=$3";
     /**
@@ -56,8 +58,10 @@ public class ConsentRepository {
     private static final String SELECT_CONSENT_ARTEFACT_QUERY = "SELECT consent_artefact FROM consent_artefact WHERE " +
             "consent_artefact_id = $1 AND status = $2";
     private static final String CONSENT_REQUEST_BY_REQUESTER_ID =
-            "SELECT consent_request, status, consent_request_id FROM consent_request " +
-                    "where consent_request ->> 'requesterId' = $1 ORDER BY date_created DESC";
+            "SELECT cr.consent_request, cr.status, cr.consent_request_id, artefact.status AS artefact_status " +
+                    "FROM consent_request cr LEFT JOIN LATERAL (SELECT status FROM consent_artefact " +
+                    "WHERE consent_request_id = cr.consent_request_id ORDER BY date_created DESC LIMIT 1) artefact " +
+                    "ON true WHERE cr.consent_request ->> 'requesterId' = $1 ORDER BY cr.date_created DESC LIMIT $2";
     private static final String SELECT_HIP_ID_FOR_A_CONSENT = "SELECT consent_artefact -> 'hip' ->> 'id' as hipId " +
             "FROM consent_artefact WHERE consent_artefact_id=$1";
     private static final String SELECT_PATIENT_ID_FOR_A_CONSENT = "SELECT consent_artefact -> 'patient' ->> 'id' as patientId " +
@@ -327,9 +331,13 @@ public class ConsentRepository {
                                 }));
     }
 
-    public Flux<Map<String, Object>> requestsOf(String requesterId) {
+    /**
+     * The latest consent requests of the requester, each with the status of its latest consent artefact under
+     * "artefactStatus" when it has one.
+     */
+    public Flux<Map<String, Object>> requestsOf(String requesterId, long limit) {
         return Flux.create(fluxSink -> readOnlyClient.preparedQuery(CONSENT_REQUEST_BY_REQUESTER_ID)
-                .execute(Tuple.of(requesterId),
+                .execute(Tuple.of(requesterId, limit),
                         handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
@@ -346,6 +354,10 @@ public class ConsentRepository {
                                 resultMap.put("consentRequest", consentRequest);
                                 resultMap.put(STATUS, ConsentStatus.valueOf(result.getString(STATUS)));
                                 resultMap.put("consentRequestId", result.getString("consent_request_id"));
+                                var artefactStatus = result.getString("artefact_status");
+                                if (artefactStatus != null) {
+                                    resultMap.put("artefactStatus", ConsentStatus.valueOf(artefactStatus));
+                                }
                                 fluxSink.next(resultMap);
                             }
                             fluxSink.complete();
@@ -25,8 +25,8 @@ import javax.annotation.PostConstruct;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static in.org.projecteka.hiu.ClientError.consentRequestNotFound;
 import static in.org.projecteka.hiu.ErrorCode.INVALID_PURPOSE_OF_USE;
@@ -47,7 +47,6 @@ import static reactor.core.publisher.Flux.fromIterable;
 import static reactor.core.publisher.Mono.defer;
 import static reactor.core.publisher.Mono.empty;
 import static reactor.core.publisher.Mono.error;
-import static reactor.core.publisher.Mono.just;
 
 public class ConsentService {
     private static final Logger logger = LoggerFactory.getLogger(ConsentService.class);
@@ -165,48 +164,46 @@ public class ConsentService {
         return empty();
     }
 
+    /**
+     * Reads the requests with the status of their latest artefact in one query, and looks each patient up once
+     * however many of the requests are for them.
+     */
     public Flux<ConsentRequestRepresentation> requestsOf(String requesterId) {
-        return consentRepository.requestsOf(requesterId)
-                .take(consentServiceProperties.getDefaultPageSize())
+        return consentRepository.requestsOf(requesterId, consentServiceProperties.getDefaultPageSize())
                 .collectList()
                 .flatMapMany(list -> {
-                    // Warming up cache
-                    Set<String> patients = new java.util.HashSet<>(Set.of());
-                    for (var result : list) {
-                        var consentRequest =
-                                (in.org.projecteka.hiu.consent.model.ConsentRequest) result.get("consentRequest");
-                        patients.add(consentRequest.getPatient().getId());
-                    }
-                    return fromIterable(patients).flatMap(patientService::tryFind).thenMany(fromIterable(list));
-                })
-                .flatMap(result -> {
-                    var consentRequest =
-                            (in.org.projecteka.hiu.consent.model.ConsentRequest) result.get("consentRequest");
-                    var consentRequestId = (String) result.get("consentRequestId");
-                    consentRequestId = consentRequestId == null ? EMPTY_STRING : consentRequestId;
-                    var status = (ConsentStatus) result.get(STATUS);
-                    return Mono.zip(patientService.tryFind(consentRequest.getPatient().getId()),
-                            mergeWithArtefactStatus(consentRequest, status, consentRequestId),
-                            just(consentRequestId));
-                })
-                .map(patientConsentRequest -> toConsentRequestRepresentation(patientConsentRequest.getT1(),
-                        patientConsentRequest.getT2(),
-                        patientConsentRequest.getT3()));
+                    var patientIds = list.stream()
+                            .map(result -> consentRequestOf(result).getPatient().getId())
+                            .collect(Collectors.toSet());
+                    return fromIterable(patientIds)
+                            .flatMap(patientId -> patientService.tryFind(patientId)
+                                    .map(patient -> Map.entry(patientId, patient)))
+                            .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                            .flatMapMany(patients -> fromIterable(list)
+                                    .filter(result -> patients.containsKey(
+                                            consentRequestOf(result).getPatient().getId()))
+                                    .map(result -> {
+                                        var consentRequest = consentRequestOf(result);
+                                        var consentRequestId = (String) result.get("consentRequestId");
+                                        return toConsentRequestRepresentation(
+                                                patients.get(consentRequest.getPatient().getId()),
+                                                withArtefactStatus(consentRequest, result),
+                                                consentRequestId == null ? EMPTY_STRING : consentRequestId);
+                                    }));
+                });
     }
 
-    private Mono<in.org.projecteka.hiu.consent.model.ConsentRequest> mergeWithArtefactStatus(
+    private static in.org.projecteka.hiu.consent.model.ConsentRequest consentRequestOf(Map<String, Object> result) {
+        return (in.org.projecteka.hiu.consent.model.ConsentRequest) result.get("consentRequest");
+    }
+
+    private static in.org.projecteka.hiu.consent.model.ConsentRequest withArtefactStatus(
             in.org.projecteka.hiu.consent.model.ConsentRequest consentRequest,
-            ConsentStatus reqStatus,
-            String consentRequestId) {
-        var consent = consentRequest.toBuilder().status(reqStatus).build();
-        return reqStatus.equals(ConsentStatus.POSTED)
-                ? just(consent)
-                : consentRepository.getConsentDetails(consentRequestId)
-                .take(1)
-                .next()
-                .map(map -> ConsentStatus.valueOf(map.get(STATUS)))
-                .switchIfEmpty(just(reqStatus))
-                .map(artefactStatus -> consent.toBuilder().status(artefactStatus).build());
+            Map<String, Object> result) {
+        var reqStatus = (ConsentStatus) result.get(STATUS);
+        var artefactStatus = (ConsentStatus) result.get("artefactStatus");
+        var status = reqStatus.equals(ConsentStatus.POSTED) || artefactStatus == null ? reqStatus : artefactStatus;
+        return consentRequest.toBuilder().status(status).build();
     }
 
     public Mono<Void> handleNotification(HiuConsentNotificationRequest hiuNotification) {
@@ -18,44 +18,52 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import static in.org.projecteka.hiu.ClientError.dbOperationFailure;
+import static in.org.projecteka.hiu.common.SqlArrays.textArray;
+import static in.org.projecteka.hiu.common.SqlArrays.uuidArray;
 
 @AllArgsConstructor
 public class PatientConsentRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(PatientConsentRepository.class);
 
-    private static final String INSERT_PATIENT_CONSENT_REQUEST = "INSERT INTO " +
-            "patient_consent_request (data_request_id, hip_id, patient_id) VALUES ($1, $2, $3)";
+    private static final String INSERT_PATIENT_CONSENT_REQUEST = "WITH request AS (INSERT INTO " +
+            "patient_consent_request (data_request_id, hip_id, patient_id) VALUES ($1, $2, $3) " +
+            "RETURNING data_request_id, hip_id, patient_id, date_created) " +
+            "INSERT INTO data_request_status (data_request_id, hip_id, patient_id, patient_data_requested_at) " +
+            "SELECT data_request_id, hip_id, patient_id, date_created FROM request";
 
-    private static final String UPDATE_PATIENT_CONSENT_REQUEST = "UPDATE " +
-            "patient_consent_request SET consent_request_id=$2, date_modified=$3 WHERE data_request_id=$1";
+    private static final String UPDATE_PATIENT_CONSENT_REQUEST = "WITH request AS (UPDATE " +
+            "patient_consent_request SET consent_request_id=$2, date_modified=$3 WHERE data_request_id=$1 " +
+            "RETURNING data_request_id, consent_request_id) " +
+            "UPDATE data_request_status drs SET consent_request_id = request.consent_request_id::text " +
+            "FROM request WHERE drs.data_request_id = request.data_request_id";
 
     private static final String SELECT_CONSENT_REQ_IDS = "SELECT consent_request_id, data_request_id, hip_id FROM patient_consent_request " +
-            "WHERE data_request_id IN (%s)";
+            "WHERE data_request_id = ANY($1::uuid[])";
 
-    private static final String DELETE_FROM_PATIENT_CONSENT_REQUEST = "DELETE FROM patient_consent_request " +
-            "WHERE patient_id=$1 RETURNING consent_request_id::text";
+    private static final String DELETE_FROM_PATIENT_CONSENT_REQUEST = "WITH status AS (" +
+            "DELETE FROM data_request_status WHERE patient_id=$1) " +
+            "DELETE FROM patient_consent_request WHERE patient_id=$1 RETURNING consent_request_id::text";
 
     private static final String DELETE_FROM_CONSENT_REQUEST = "DELETE FROM consent_request " +
-            "WHERE consent_request_id IN (%s) RETURNING consent_request_id";
+            "WHERE consent_request_id = ANY($1::text[]) RETURNING consent_request_id";
 
     private static final String DELETE_FROM_CONSENT_ARTEFACT = "DELETE FROM consent_artefact " +
-            "WHERE consent_request_id IN (%s) RETURNING consent_artefact_id";
+            "WHERE consent_request_id = ANY($1::text[]) RETURNING consent_artefact_id";
 
     private static final String DELETE_FROM_DATA_FLOW_REQUEST = "DELETE FROM data_flow_request " +
-            "WHERE consent_artefact_id IN (%s) RETURNING transaction_id";
+            "WHERE consent_artefact_id = ANY($1::text[]) RETURNING transaction_id";
 
     private static final String DELETE_FROM_HEALTH_INFORMATION = "DELETE FROM health_information " +
-            "WHERE transaction_id IN (%s) RETURNING transaction_id";
+            "WHERE transaction_id = ANY($1::text[]) RETURNING transaction_id";
 
     private static final String DELETE_FROM_DATA_FLOW_PARTS = "DELETE FROM data_flow_parts " +
-            "WHERE transaction_id IN (%s) RETURNING transaction_id";
+            "WHERE transaction_id = ANY($1::text[]) RETURNING transaction_id";
 
     private static final String DELETE_FROM_DATA_FLOW_REQUEST_KEYS = "DELETE FROM data_flow_request_keys " +
-            "WHERE transaction_id IN (%s)";
+            "WHERE transaction_id = ANY($1::text[])";
 
     private static final String SELECT_LATEST_RESOURCE_BY_CC_FOR_PATIENT_IN_HIP =
                 "SELECT hi.care_context_reference as care_context_reference, " +
@@ -76,7 +84,7 @@ public class PatientConsentRepository {
                     "WHERE ROW(pcr.hip_id, pcr.date_created) IN (SELECT " +
                     "hip_id, max(date_created) " +
                     "FROM patient_consent_request " +
-                    "WHERE patient_id=$1 and hip_id in (%s) " +
+                    "WHERE patient_id=$1 and hip_id = ANY($2::text[]) " +
                     "GROUP BY hip_id)";
 
     private final PgPool readWriteClient;
@@ -130,10 +138,9 @@ public class PatientConsentRepository {
         if (consentRequestIds.isEmpty()) {
             return Mono.empty();
         }
-        var generatedQuery = String.format(DELETE_FROM_CONSENT_REQUEST, joinByComma(consentRequestIds));
         return Mono.create(monoSink ->
-                readWriteClient.preparedQuery(generatedQuery)
-                        .execute(handler -> {
+                readWriteClient.preparedQuery(DELETE_FROM_CONSENT_REQUEST)
+                        .execute(Tuple.of(textArray(consentRequestIds)), handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
                                 monoSink.error(new Exception("Failed to delete from consent request"));
@@ -151,10 +158,9 @@ public class PatientConsentRepository {
         if (consentArtefactIds.isEmpty()) {
             return Mono.empty();
         }
-        var generatedQuery = String.format(DELETE_FROM_CONSENT_ARTEFACT, joinByComma(consentArtefactIds));
         return Mono.create(monoSink ->
-                readWriteClient.preparedQuery(generatedQuery)
-                        .execute(handler -> {
+                readWriteClient.preparedQuery(DELETE_FROM_CONSENT_ARTEFACT)
+                        .execute(Tuple.of(textArray(consentArtefactIds)), handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
                                 monoSink.error(new Exception("Failed to delete from consent artefact"));
@@ -172,10 +178,9 @@ public class PatientConsentRepository {
         if (consentArtefactIds.isEmpty()) {
             return Mono.empty();
         }
-        var generatedQuery = String.format(DELETE_FROM_DATA_FLOW_REQUEST, joinByComma(consentArtefactIds));
         return Mono.create(monoSink ->
-                readWriteClient.preparedQuery(generatedQuery)
-                        .execute(handler -> {
+                readWriteClient.preparedQuery(DELETE_FROM_DATA_FLOW_REQUEST)
+                        .execute(Tuple.of(textArray(consentArtefactIds)), handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
                                 monoSink.error(new Exception("Failed to delete from data flow request"));
@@ -193,10 +198,9 @@ public class PatientConsentRepository {
         if (transactionIds.isEmpty()) {
             return Mono.empty();
         }
-        var generatedQuery = String.format(DELETE_FROM_HEALTH_INFORMATION, joinByComma(transactionIds));
         return Mono.create(monoSink ->
-                readWriteClient.preparedQuery(generatedQuery)
-                        .execute(handler -> {
+                readWriteClient.preparedQuery(DELETE_FROM_HEALTH_INFORMATION)
+                        .execute(Tuple.of(textArray(transactionIds)), handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
                                 monoSink.error(new Exception("Failed to delete from Health Information"));
@@ -214,10 +218,9 @@ public class PatientConsentRepository {
         if (transactionIds.isEmpty()) {
             return Mono.empty();
         }
-        var generatedQuery = String.format(DELETE_FROM_DATA_FLOW_REQUEST_KEYS, joinByComma(transactionIds));
         return Mono.create(monoSink ->
-                readWriteClient.preparedQuery(generatedQuery)
-                        .execute(handler -> {
+                readWriteClient.preparedQuery(DELETE_FROM_DATA_FLOW_REQUEST_KEYS)
+                        .execute(Tuple.of(textArray(transactionIds)), handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
                                 monoSink.error(new Exception("Failed to delete from data flow parts"));
@@ -233,10 +236,9 @@ public class PatientConsentRepository {
         if (transactionIds.isEmpty()) {
             return Mono.empty();
         }
-        var generatedQuery = String.format(DELETE_FROM_DATA_FLOW_PARTS, joinByComma(transactionIds));
         return Mono.create(monoSink ->
-                readWriteClient.preparedQuery(generatedQuery)
-                        .execute(handler -> {
+                readWriteClient.preparedQuery(DELETE_FROM_DATA_FLOW_PARTS)
+                        .execute(Tuple.of(textArray(transactionIds)), handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
                                 monoSink.error(new Exception("Failed to delete from data flow request keys"));
@@ -251,12 +253,11 @@ public class PatientConsentRepository {
     }
 
     public Flux<PatientDataRequestMapping> fetchConsentRequestIds(List<String> dataRequestIds) {
-        var generatedQuery = String.format(SELECT_CONSENT_REQ_IDS, joinByComma(dataRequestIds));
         if (dataRequestIds.isEmpty()) {
             return Flux.empty();
         }
-        return Flux.create(fluxSink -> readOnlyClient.preparedQuery(generatedQuery)
-                .execute(handler -> {
+        return Flux.create(fluxSink -> readOnlyClient.preparedQuery(SELECT_CONSENT_REQ_IDS)
+                .execute(Tuple.of(uuidArray(dataRequestIds)), handler -> {
                     if (handler.failed()) {
                         logger.error(handler.cause().getMessage(), handler.cause());
                         fluxSink.error(dbOperationFailure("Failed to fetch consent request ids"));
@@ -273,10 +274,6 @@ public class PatientConsentRepository {
                 }));
     }
 
-    private String joinByComma(List<String> list) {
-        return String.join(", ", list.stream().map(e -> String.format("'%s'", e)).collect(Collectors.toList()));
-    }
-
     public Mono<List<Map<String, Object>>> getLatestResourceDateByHipCareContext(String patientId, String hipId) {
         return Mono.create(monoSink -> readOnlyClient.preparedQuery(SELECT_LATEST_RESOURCE_BY_CC_FOR_PATIENT_IN_HIP)
                 .execute(Tuple.of(patientId, hipId),
@@ -297,9 +294,8 @@ public class PatientConsentRepository {
     }
 
     public Mono<List<PatientDataRequestDetail>> getLatestDataRequestsForPatient(String patientId, List<String> hipIds) {
-        var generatedQuery = String.format(SELECT_LATEST_DATA_REQUEST_FOR_PATIENT_BY_HIPS, joinByComma(hipIds));
-        return Mono.create(monoSink -> readOnlyClient.preparedQuery(generatedQuery)
-                .execute(Tuple.of(patientId),
+        return Mono.create(monoSink -> readOnlyClient.preparedQuery(SELECT_LATEST_DATA_REQUEST_FOR_PATIENT_BY_HIPS)
+                .execute(Tuple.of(patientId, textArray(hipIds)),
                         handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
@@ -0,0 +1,87 @@
+package in.org.projecteka.hiu.dataflow;
+
+import com.google.common.cache.Cache;
+import in.org.projecteka.hiu.consent.TokenUtils;
+import in.org.projecteka.hiu.dataflow.model.StoredAttachment;
+import lombok.AllArgsConstructor;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+import static in.org.projecteka.hiu.dataprocessor.AttachmentDataTypeProcessor.isContentTypeFile;
+import static in.org.projecteka.hiu.dataprocessor.AttachmentDataTypeProcessor.storedContentType;
+import static reactor.core.publisher.Mono.defer;
+
+/**
+ * Finds the attachment files of a consent request. The requester's access to the consent request is looked up on
+ * every request. Which transaction directory holds an attachment is remembered in the index, so that repeated
+ * downloads, and the conditional and range requests that follow a first download, do not probe the transaction
+ * directories again. An indexed path is used only while it is inside a directory the lookup returned, and is
+ * dropped once its file is gone. The content type served is the one stored next to the attachment in its
+ * transaction directory, which is never served itself.
+ */
+@AllArgsConstructor
+public class AttachmentHandler {
+    private final HealthInfoManager healthInfoManager;
+    private final DataFlowServiceProperties serviceProperties;
+    private final Cache<String, Path> attachmentIndex;
+
+    public Mono<StoredAttachment> find(String consentRequestId, String fileName, String requester) {
+        var key = String.join("/", consentRequestId, fileName);
+        return transactionDirectories(consentRequestId, requester)
+                .flatMap(transactionDirectories -> Mono.justOrEmpty(attachmentIndex.getIfPresent(key))
+                        .filter(path -> transactionDirectories.contains(path.getParent()))
+                        .switchIfEmpty(defer(() -> Mono.fromCallable(() -> firstFile(transactionDirectories, fileName))
+                                .subscribeOn(Schedulers.boundedElastic()))
+                                .doOnNext(path -> attachmentIndex.put(key, path))))
+                .flatMap(path -> Mono.fromCallable(() -> read(path)).subscribeOn(Schedulers.boundedElastic()))
+                .onErrorResume(IOException.class, e -> {
+                    attachmentIndex.invalidate(key);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<List<Path>> transactionDirectories(String consentRequestId, String requester) {
+        var consentRequestDirectory = Paths.get(serviceProperties.getLocalStoragePath(),
+                TokenUtils.encode(consentRequestId));
+        return healthInfoManager.getTransactionIdForConsentRequest(consentRequestId, requester)
+                .map(transactionId -> consentRequestDirectory.resolve(TokenUtils.encode(transactionId)).normalize())
+                .collectList();
+    }
+
+    private static Path firstFile(List<Path> transactionDirectories, String fileName) {
+        return transactionDirectories.stream()
+                .map(directory -> directory.resolve(fileName).normalize())
+                .filter(path -> transactionDirectories.contains(path.getParent()))
+                .filter(path -> !isContentTypeFile(path))
+                .filter(Files::isRegularFile)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static StoredAttachment read(Path path) throws IOException {
+        var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return StoredAttachment.builder()
+                .path(path)
+                .contentType(contentType(path))
+                .size(attributes.size())
+                .lastModified(attributes.lastModifiedTime().toInstant())
+                .build();
+    }
+
+    private static MediaType contentType(Path path) {
+        try {
+            return storedContentType(path).map(MediaType::parseMediaType).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import in.org.projecteka.hiu.dataflow.model.DataPartDetail;
 import in.org.projecteka.hiu.dataflow.model.HealthInfoStatus;
 import in.org.projecteka.hiu.dataflow.model.RequestStatus;
 import in.org.projecteka.hiu.dataflow.model.PatientDataRequestDetail;
+import io.vertx.core.json.JsonObject;
 import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.Tuple;
@@ -19,23 +20,32 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Collection;
-import java.util.stream.Collectors;
 
 import static in.org.projecteka.hiu.ClientError.dbOperationFailure;
 import static in.org.projecteka.hiu.common.Serializer.from;
 import static in.org.projecteka.hiu.common.Serializer.to;
+import static in.org.projecteka.hiu.common.SqlArrays.textArray;
+import static in.org.projecteka.hiu.common.SqlArrays.uuidArray;
 import static in.org.projecteka.hiu.dataflow.model.RequestStatus.REQUESTED;
 import static java.lang.String.format;
 
 @AllArgsConstructor
 public class DataFlowRepository {
-    private static final String INSERT_TO_DATA_FLOW_REQUEST = "INSERT INTO data_flow_request (transaction_id, " +
-            "consent_artefact_id, data_flow_request, request_id) VALUES ($1, $2, $3, $4)";
-    private static final String INSERT_DATA_FLOW_REQUEST = "INSERT INTO data_flow_request (request_id, " +
-            "consent_artefact_id, data_flow_request) VALUES ($1, $2, $3)";
-    private static final String UPDATE_DATA_FLOW_REQUEST = "UPDATE data_flow_request SET transaction_id = $1, status = $2 " +
-            "WHERE request_id = $3";
+    private static final String DATA_FLOW_REQUESTED = "UPDATE data_request_status drs " +
+            "SET transaction_id = request.transaction_id, data_flow_requested_at = request.date_created, " +
+            "data_part_statuses = '{}' " +
+            "FROM request WHERE drs.consent_artefact_id = request.consent_artefact_id";
+    private static final String INSERT_TO_DATA_FLOW_REQUEST = "WITH request AS (INSERT INTO data_flow_request " +
+            "(transaction_id, consent_artefact_id, data_flow_request, request_id) VALUES ($1, $2, $3, $4) " +
+            "RETURNING transaction_id, consent_artefact_id, date_created) " + DATA_FLOW_REQUESTED;
+    private static final String INSERT_DATA_FLOW_REQUEST = "WITH request AS (INSERT INTO data_flow_request " +
+            "(request_id, consent_artefact_id, data_flow_request) VALUES ($1, $2, $3) " +
+            "RETURNING transaction_id, consent_artefact_id, date_created) " + DATA_FLOW_REQUESTED;
+    private static final String UPDATE_DATA_FLOW_REQUEST = "WITH request AS (UPDATE data_flow_request " +
+            "SET transaction_id = $1, status = $2 WHERE request_id = $3 " +
+            "RETURNING transaction_id, consent_artefact_id) " +
+            "UPDATE data_request_status drs SET transaction_id = request.transaction_id " +
+            "FROM request WHERE drs.consent_artefact_id = request.consent_artefact_id";
     private static final String INSERT_TO_DATA_FLOW_REQUEST_KEYS = "INSERT INTO data_flow_request_keys " +
             "(transaction_id, " +
             "key_pairs) VALUES ($1, $2)";
@@ -43,15 +53,42 @@ public class DataFlowRepository {
             " $1";
     private static final String SELECT_TRANSACTION_IDS_FROM_DATA_FLOW_REQUEST = "SELECT transaction_id FROM " +
             "data_flow_request WHERE consent_artefact_id = $1 and status = $2";
-    private static final String INSERT_HEALTH_DATA_AVAILABILITY = "INSERT INTO data_flow_parts (transaction_id, " +
-            "part_number, status) VALUES ($1, $2, $3)";
+    /**
+     * Records the part received along with a row without status for each page not received yet. Pages of a
+     * transaction arrive concurrently, so the rows are upserted on the unique (transaction_id, part_number) index
+     * (db/migrations/002-data-flow-parts-unique-part.sql): a placeholder never overwrites the status of a part
+     * recorded by another page.
+     */
+    private static final String INSERT_HEALTH_DATA_AVAILABILITY = "WITH status AS (" +
+            "UPDATE data_request_status SET data_part_statuses = " +
+            "COALESCE((SELECT jsonb_object_agg(part::text, NULL::text) FROM generate_series(1, $4) AS part), '{}') " +
+            "|| data_part_statuses || jsonb_build_object($2::text, $3::text) WHERE transaction_id = $1) " +
+            "INSERT INTO data_flow_parts (transaction_id, part_number, status) " +
+            "SELECT $1, part::text, CASE WHEN part::text = $2 THEN $3 END FROM generate_series(1, $4) AS part " +
+            "ORDER BY part " +
+            "ON CONFLICT (transaction_id, part_number) " +
+            "DO UPDATE SET status = COALESCE(EXCLUDED.status, data_flow_parts.status)";
+    /**
+     * Marks the transfer as notified once no part is left to receive or process. Concurrent parts finishing
+     * together update the same data_flow_request row, so only one of them sees it not yet notified and claims it.
+     */
+    private static final String CLAIM_TRANSFER_COMPLETION = "UPDATE data_flow_request " +
+            "SET transfer_notified_at = timezone('utc', now()) " +
+            "WHERE transaction_id = $1 AND transfer_notified_at IS NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM data_flow_parts WHERE transaction_id = $1 " +
+            "AND (status IS NULL OR status IN ('RECEIVED', 'PROCESSING'))) " +
+            "RETURNING EXISTS (SELECT 1 FROM data_flow_parts WHERE transaction_id = $1 AND status = 'ERRORED') " +
+            "AS errored";
     private static final String SELECT_DATA_FLOW_REQUEST_FOR_TRANSACTION =
             "SELECT  ca.consent_request_id, consent_artefact -> 'permission' ->> 'dataEraseAt' as consent_expiry_date, dfr.data_flow_request " +
                     "FROM data_flow_request dfr " +
                     "INNER JOIN consent_artefact ca ON dfr.consent_artefact_id=ca.consent_artefact_id " +
                     "WHERE dfr.transaction_id=$1";
-    private static final String UPDATE_HEALTH_DATA_AVAILABILITY = "UPDATE data_flow_parts SET status = $1, errors = " +
-            "$2, latest_res_date = $3 WHERE transaction_id = $4 AND part_number = $5";
+    private static final String UPDATE_HEALTH_DATA_AVAILABILITY = "WITH status AS (UPDATE data_request_status " +
+            "SET data_part_statuses = data_part_statuses || jsonb_build_object($5::text, $1::text) " +
+            "WHERE transaction_id = $4) " +
+            "UPDATE data_flow_parts SET status = $1, errors = $2, latest_res_date = $3 " +
+            "WHERE transaction_id = $4 AND part_number = $5";
     private static final String SELECT_CONSENT_ID = "SELECT consent_artefact_id FROM data_flow_request WHERE " +
             "transaction_id = $1";
 
@@ -62,22 +99,27 @@ public class DataFlowRepository {
             "from data_flow_parts dfp " +
             "join data_flow_request dfr on dfp.transaction_id = dfr.transaction_id " +
             "join consent_artefact ca on dfr.consent_artefact_id = ca.consent_artefact_id " +
-            "where ca.consent_request_id in (%s)";
+            "where ca.consent_request_id = ANY($1::text[])";
 
+    /**
+     * data_request_status is kept up to date by the statements that move a data request along, so that reading the
+     * status of a data request is a lookup by its primary key. data_part_statuses maps each part number to the
+     * status of that part, null until the part is received. Like the data part details, it is read through the status
+     * read pool, whose lag bound is kept apart from other reads since patients poll it right after the data arrives.
+     */
     private static final String FETCH_PATIENT_DATA_REQUEST_DETAILS = "SELECT " +
-            "pcr.hip_id, pcr.data_request_id::text, pcr.patient_id, " +
-            "pcr.date_created AS patient_data_requested_at, " +
-            "dfr.date_created AS data_flow_requested_at, " +
-            "dfp.status AS data_part_status, pcr.consent_request_id::text, ca.consent_artefact_id " +
-            "FROM patient_consent_request pcr " +
-            "LEFT JOIN consent_artefact ca ON pcr.consent_request_id = ca.consent_request_id::uuid " +
-            "LEFT JOIN data_flow_request dfr ON dfr.consent_artefact_id = ca.consent_artefact_id " +
-            "LEFT JOIN data_flow_parts dfp ON dfr.transaction_id = dfp.transaction_id " +
-            "WHERE pcr.data_request_id IN (%s)";
+            "hip_id, data_request_id::text, patient_id, patient_data_requested_at, data_flow_requested_at, " +
+            "data_part_statuses, consent_request_id, consent_artefact_id " +
+            "FROM data_request_status " +
+            "WHERE data_request_id = ANY($1::uuid[])";
+
+    private static final String SELECT_DATA_REQUEST_ID = "SELECT data_request_id::text FROM data_request_status " +
+            "WHERE transaction_id = $1";
 
     private static final Logger logger = Logger.getLogger(DataFlowRepository.class);
     private final PgPool readWriteClient;
     private final PgPool readOnlyClient;
+    private final PgPool statusReadClient;
 
     public Mono<Void> addDataRequest(String transactionId,
                                      String consentId,
@@ -194,6 +236,24 @@ public class DataFlowRepository {
     }
 
 
+    public Mono<String> getDataRequestId(String transactionId) {
+        return Mono.create(monoSink -> readWriteClient.preparedQuery(SELECT_DATA_REQUEST_ID)
+                .execute(Tuple.of(transactionId),
+                        handler -> {
+                            if (handler.failed()) {
+                                logger.error(handler.cause().getMessage(), handler.cause());
+                                monoSink.error(dbOperationFailure("Failed to get data request id from transaction Id"));
+                                return;
+                            }
+                            var iterator = handler.result().iterator();
+                            if (!iterator.hasNext()) {
+                                monoSink.success();
+                                return;
+                            }
+                            monoSink.success(iterator.next().getString(0));
+                        }));
+    }
+
     public Mono<Map<String, Object>> retrieveDataFlowRequest(String transactionId) {
         return Mono.create(monoSink -> readOnlyClient.preparedQuery(SELECT_DATA_FLOW_REQUEST_FOR_TRANSACTION)
                 .execute(Tuple.of(transactionId),
@@ -221,9 +281,12 @@ public class DataFlowRepository {
                         }));
     }
 
-    public Mono<Void> insertDataPartAvailability(String transactionId, int partNumber, HealthInfoStatus status) {
+    public Mono<Void> insertDataPartAvailability(String transactionId,
+                                                 int partNumber,
+                                                 int pageCount,
+                                                 HealthInfoStatus status) {
         return Mono.create(monoSink -> readWriteClient.preparedQuery(INSERT_HEALTH_DATA_AVAILABILITY)
-                .execute(Tuple.of(transactionId, String.valueOf(partNumber), status.toString()),
+                .execute(Tuple.of(transactionId, String.valueOf(partNumber), status.toString(), pageCount),
                         handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
@@ -234,6 +297,28 @@ public class DataFlowRepository {
                         }));
     }
 
+    /**
+     * Emits whether any part of the transaction errored when this call is the one to find every part processed,
+     * and completes empty otherwise.
+     */
+    public Mono<Boolean> claimTransferCompletion(String transactionId) {
+        return Mono.create(monoSink -> readWriteClient.preparedQuery(CLAIM_TRANSFER_COMPLETION)
+                .execute(Tuple.of(transactionId),
+                        handler -> {
+                            if (handler.failed()) {
+                                logger.error(handler.cause().getMessage(), handler.cause());
+                                monoSink.error(dbOperationFailure("Failed to claim transfer completion"));
+                                return;
+                            }
+                            var iterator = handler.result().iterator();
+                            if (!iterator.hasNext()) {
+                                monoSink.success();
+                                return;
+                            }
+                            monoSink.success(iterator.next().getBoolean("errored"));
+                        }));
+    }
+
     public Mono<Void> updateDataFlowWithStatus(String transactionId, String dataPartNumber, String allErrors,
                                                HealthInfoStatus status, LocalDateTime latestResourceDate) {
         return Mono.create(monoSink -> readWriteClient.preparedQuery(UPDATE_HEALTH_DATA_AVAILABILITY)
@@ -249,12 +334,11 @@ public class DataFlowRepository {
     }
 
     public Flux<DataPartDetail> fetchDataPartDetails(List<String> consentRequestIds) {
-        var generatedQuery = String.format(FETCH_DATA_PART_DETAILS, joinByComma(consentRequestIds));
         if (consentRequestIds.isEmpty()) {
             return Flux.empty();
         }
-        return Flux.create(fluxSink -> readWriteClient.preparedQuery(generatedQuery)
-                .execute(handler -> {
+        return Flux.create(fluxSink -> statusReadClient.preparedQuery(FETCH_DATA_PART_DETAILS)
+                .execute(Tuple.of(textArray(consentRequestIds)), handler -> {
                     if (handler.failed()) {
                         logger.error(handler.cause().getMessage(), handler.cause());
                         fluxSink.error(dbOperationFailure("Failed to fetch data part details"));
@@ -266,7 +350,7 @@ public class DataFlowRepository {
                                 .hipId(row.getString("hipid"))
                                 .consentArtifactId(row.getString("consent_artefact_id"))
                                 .consentRequestId(row.getString("consent_request_id"))
-                                .status(HealthInfoStatus.valueOf(row.getString("status")))
+                                .status(HealthInfoStatus.fromString(row.getString("status")))
                                 .requester(row.getString("requester"))
                                 .build());
                     }
@@ -275,12 +359,11 @@ public class DataFlowRepository {
     }
 
     public Flux<PatientDataRequestDetail> fetchPatientDataRequestDetails(Set<String> dataRequestIds) {
-        var generatedQuery = String.format(FETCH_PATIENT_DATA_REQUEST_DETAILS, joinByComma(dataRequestIds));
         if (dataRequestIds.isEmpty()) {
             return Flux.empty();
         }
-        return Flux.create(fluxSink -> readWriteClient.preparedQuery(generatedQuery)
-                .execute(handler -> {
+        return Flux.create(fluxSink -> statusReadClient.preparedQuery(FETCH_PATIENT_DATA_REQUEST_DETAILS)
+                .execute(Tuple.of(uuidArray(dataRequestIds)), handler -> {
                     if (handler.failed()) {
                         logger.error(handler.cause().getMessage(), handler.cause());
                         fluxSink.error(dbOperationFailure("Failed to fetch patient data request details"));
@@ -288,23 +371,26 @@ public class DataFlowRepository {
                     }
 
                     for (Row row : handler.result()) {
-                        fluxSink.next(PatientDataRequestDetail.builder()
+                        var detail = PatientDataRequestDetail.builder()
                                 .hipId(row.getString("hip_id"))
                                 .dataRequestId(row.getString("data_request_id"))
                                 .patientDataRequestedAt(row.getLocalDateTime("patient_data_requested_at"))
                                 .dataFlowRequestedAt(row.getLocalDateTime("data_flow_requested_at"))
-                                .dataPartStatus(HealthInfoStatus.fromString(row.getString("data_part_status")))
                                 .consentRequestId(row.getString("consent_request_id"))
                                 .consentArtefactId(row.getString("consent_artefact_id"))
-                                .patientId(row.getString("patient_id"))
-                                .build());
+                                .patientId(row.getString("patient_id"));
+                        var partStatuses = (JsonObject) row.getValue("data_part_statuses");
+                        if (partStatuses == null || partStatuses.isEmpty()) {
+                            fluxSink.next(detail.build());
+                            continue;
+                        }
+                        for (String partNumber : partStatuses.fieldNames()) {
+                            fluxSink.next(detail
+                                    .dataPartStatus(HealthInfoStatus.fromString(partStatuses.getString(partNumber)))
+                                    .build());
+                        }
                     }
                     fluxSink.complete();
                 }));
     }
-
-
-    private String joinByComma(Collection<String> list) {
-        return list.stream().map(e -> String.format("'%s'", e)).collect(Collectors.joining(", "));
-    }
 }
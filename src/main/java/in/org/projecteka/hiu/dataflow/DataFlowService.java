@@ -1,25 +1,30 @@
 package in.org.projecteka.hiu.dataflow;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import in.org.projecteka.hiu.ClientError;
 import in.org.projecteka.hiu.common.cache.CacheAdapter;
 import in.org.projecteka.hiu.consent.TokenUtils;
 import in.org.projecteka.hiu.dataflow.model.DataFlowRequestKeyMaterial;
 import in.org.projecteka.hiu.dataflow.model.DataFlowRequestResult;
-import in.org.projecteka.hiu.dataflow.model.DataNotificationRequest;
-import in.org.projecteka.hiu.dataflow.model.Entry;
+import in.org.projecteka.hiu.dataflow.model.DataPartHeader;
 import in.org.projecteka.hiu.dataflow.model.HealthInfoStatus;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Schedulers;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static reactor.core.publisher.Mono.defer;
 
@@ -28,36 +33,87 @@ public class DataFlowService {
     public static final String TRANSACTION_ID = "transactionId";
     public static final String PATH_TO_FILE = "pathToFile";
     private static final String DATA_PART_NUMBER = "partNumber";
+    private static final String RECEIVED_DIRECTORY = ".received";
     private final DataFlowRepository dataFlowRepository;
     private final DataAvailabilityPublisher dataAvailabilityPublisher;
     private final DataFlowServiceProperties dataFlowServiceProperties;
     private final LocalDataStore localDataStore;
     private final CacheAdapter<String, DataFlowRequestKeyMaterial> dataFlowCache;
+    private final TransactionKeyStore transactionKeyStore;
+    private final DataRequestStatusNotifier statusNotifier;
 
     private static final Logger logger = LoggerFactory.getLogger(DataFlowService.class);
 
-    public Mono<Void> handleNotification(DataNotificationRequest dataNotificationRequest) {
-        logger.info("[DataFlowService] Received data transfer for transactionId={}", dataNotificationRequest.getTransactionId());
-        List<Entry> invalidEntries = dataNotificationRequest.getEntries().parallelStream().filter(entry ->
-                !(hasLink(entry) || hasContent(entry))).collect(Collectors.toList());
+    /**
+     * The received file is moved to the transaction's part file once the data part is accepted. Whatever else
+     * becomes of the request, including the HIP going away mid upload, the received file is deleted.
+     */
+    public Mono<Void> handleNotification(Flux<DataBuffer> dataPart) {
+        Path receivedFile = Paths.get(dataFlowServiceProperties.getLocalStoragePath(),
+                RECEIVED_DIRECTORY,
+                String.format("%s.json", UUID.randomUUID()));
+        return localDataStore.writeToFile(limitedToMaxSize(dataPart), receivedFile)
+                .then(defer(() -> localDataStore.readHeader(receivedFile)))
+                .onErrorMap(JsonProcessingException.class, cause -> {
+                    logger.error("[DataFlowService] Received data part is not valid JSON", cause);
+                    return ClientError.invalidDataPart();
+                })
+                .flatMap(header -> handleNotification(header, receivedFile))
+                .doFinally(signal -> Schedulers.boundedElastic().schedule(() -> localDataStore.discard(receivedFile)));
+    }
+
+    private Flux<DataBuffer> limitedToMaxSize(Flux<DataBuffer> dataPart) {
+        int maxSizeInMB = dataFlowServiceProperties.getMaxDataPartSizeInMB();
+        long maxSize = maxSizeInMB * 1024L * 1024L;
+        return Flux.defer(() -> {
+            var received = new AtomicLong();
+            return dataPart.handle((DataBuffer buffer, SynchronousSink<DataBuffer> sink) -> {
+                if (received.addAndGet(buffer.readableByteCount()) > maxSize) {
+                    DataBufferUtils.release(buffer);
+                    sink.error(ClientError.dataPartTooLarge(maxSizeInMB));
+                    return;
+                }
+                sink.next(buffer);
+            });
+        });
+    }
 
-        if (!invalidEntries.isEmpty()) {
+    private Mono<Void> handleNotification(DataPartHeader header, Path receivedFile) {
+        String transactionId = header.getNotification().getTransactionId();
+        if (transactionId == null || transactionId.isBlank()) {
+            return Mono.error(ClientError.invalidDataPart());
+        }
+        int pageCount = Math.max(header.getNotification().getPageCount(), 1);
+        int dataFlowPartNo = Math.max(header.getNotification().getPageNumber(), 1);
+        logger.info("[DataFlowService] Received data transfer for transactionId={}, page={}/{}, entries={}",
+                transactionId, dataFlowPartNo, pageCount, header.getNumberOfEntries());
+        if (dataFlowPartNo > pageCount) {
+            return Mono.error(ClientError.invalidPageNumber());
+        }
+        if (header.getNumberOfInvalidEntries() > 0) {
             return Mono.error(ClientError.invalidEntryError("Entry must either have content or provide a link."));
         }
 
-        int dataFlowPartNo = 1;
-        return validateAndRetrieveRequestedConsent(dataNotificationRequest.getTransactionId())
-                .flatMap(consentRequestId -> serializeDataTransferred(dataNotificationRequest, consentRequestId,
+        return validateAndRetrieveRequestedConsent(transactionId)
+                .flatMap(consentRequestId -> storeDataTransferred(transactionId, receivedFile, consentRequestId,
                         dataFlowPartNo))
-                .flatMap(contentReference -> saveDataAvailability(contentReference, dataFlowPartNo))
+                .flatMap(contentReference -> saveDataAvailability(contentReference, dataFlowPartNo, pageCount))
                 .flatMap(this::notifyDataProcessor);
     }
 
-    private Mono<Map<String, String>> saveDataAvailability(Map<String, String> contentReference, int partNumber) {
+    /**
+     * Each page is its own data part. Parts for the pages not received yet are recorded without status, so the
+     * transaction is reported as processing until every page has been received and processed.
+     */
+    private Mono<Map<String, String>> saveDataAvailability(Map<String, String> contentReference,
+                                                           int partNumber,
+                                                           int pageCount) {
         contentReference.put(DATA_PART_NUMBER, String.valueOf(partNumber));
         return dataFlowRepository.insertDataPartAvailability(contentReference.get(TRANSACTION_ID),
                 partNumber,
+                pageCount,
                 HealthInfoStatus.RECEIVED)
+                .then(defer(() -> statusNotifier.statusChanged(contentReference.get(TRANSACTION_ID))))
                 .thenReturn(contentReference);
     }
 
@@ -88,29 +144,29 @@ public class DataFlowService {
         return dataFlowRepository.updateDataRequest(transactionId, sessionStatus, requestId)
                 .then(defer(() -> dataFlowCache.get(requestId)))
                 .flatMap(dataFlowRequestKeyMaterial ->
-                        dataFlowRepository.addKeys(transactionId, dataFlowRequestKeyMaterial));
+                        transactionKeyStore.addKeys(transactionId, dataFlowRequestKeyMaterial));
     }
 
-    private Mono<Map<String, String>> serializeDataTransferred(DataNotificationRequest dataNotificationRequest,
-                                                               String consentRequestId, int dataFlowPartNo) {
+    private Mono<Map<String, String>> storeDataTransferred(String transactionId,
+                                                           Path receivedFile,
+                                                           String consentRequestId,
+                                                           int dataFlowPartNo) {
         Path pathToFile = Paths.get(dataFlowServiceProperties.getLocalStoragePath(),
                 getLocalDirectoryName(consentRequestId),
-                getLocalDirectoryName(dataNotificationRequest.getTransactionId()),
-                localFileNameToSave(dataNotificationRequest.getTransactionId(), dataFlowPartNo));
-        return localDataStore.serializeDataToFile(dataNotificationRequest, pathToFile)
-                .thenReturn(createContentAvailabilityRef(dataNotificationRequest, pathToFile));
+                getLocalDirectoryName(transactionId),
+                localFileNameToSave(transactionId, dataFlowPartNo));
+        return localDataStore.moveFile(receivedFile, pathToFile)
+                .thenReturn(createContentAvailabilityRef(transactionId, pathToFile));
     }
 
-    private Map<String, String> createContentAvailabilityRef(DataNotificationRequest dataNotificationRequest,
-                                                             Path pathToFile) {
+    private Map<String, String> createContentAvailabilityRef(String transactionId, Path pathToFile) {
         Map<String, String> contentRef = new HashMap<>();
-        contentRef.put(TRANSACTION_ID, dataNotificationRequest.getTransactionId());
+        contentRef.put(TRANSACTION_ID, transactionId);
         contentRef.put(PATH_TO_FILE, pathToFile.toString());
         return contentRef;
     }
 
     private String localFileNameToSave(String transactionId, int dataFlowPartNo) {
-        //TODO: potentially append part (e.g. page number)
         return String.format("%s_%d.json", TokenUtils.encode(transactionId), dataFlowPartNo);
     }
 
@@ -129,12 +185,4 @@ public class DataFlowService {
     private boolean hasConsentArtefactExpired(LocalDateTime dataEraseAt) {
         return dataEraseAt != null && dataEraseAt.isBefore(LocalDateTime.now());
     }
-
-    private boolean hasContent(Entry entry) {
-        return (entry.getContent() != null) && !entry.getContent().isBlank();
-    }
-
-    private boolean hasLink(Entry entry) {
-        return (entry.getLink() != null) && !entry.getLink().isBlank();
-    }
 }
@@ -15,9 +15,42 @@ import org.springframework.context.annotation.Configuration;
 @NoArgsConstructor(access = AccessLevel.PACKAGE)
 @AllArgsConstructor
 public class DataFlowServiceProperties {
+    private static final int DEFAULT_STREAM_FETCH_SIZE = 100;
+    private static final int DEFAULT_STREAM_IDLE_TIMEOUT_IN_SECONDS = 60;
+    private static final int DEFAULT_MAX_OPEN_STREAMS = 2;
+    private static final int DEFAULT_STATUS_RECHECK_INTERVAL_IN_SECONDS = 30;
+    private static final int DEFAULT_MAX_DATA_PART_SIZE_IN_MB = 256;
+
     private int maxPageSize;
     private int defaultPageSize;
     private String localStoragePath;
     private int dataFlowRequestWaitTime;
     private int dataPartWaitTime;
+    private int streamFetchSize;
+    private int streamIdleTimeoutInSeconds;
+    private int maxOpenStreams;
+    private int statusRecheckIntervalInSeconds;
+    private int maxDataPartSizeInMB;
+
+    public int getStreamFetchSize() {
+        return streamFetchSize > 0 ? streamFetchSize : DEFAULT_STREAM_FETCH_SIZE;
+    }
+
+    public int getStreamIdleTimeoutInSeconds() {
+        return streamIdleTimeoutInSeconds > 0 ? streamIdleTimeoutInSeconds : DEFAULT_STREAM_IDLE_TIMEOUT_IN_SECONDS;
+    }
+
+    public int getMaxOpenStreams() {
+        return maxOpenStreams > 0 ? maxOpenStreams : DEFAULT_MAX_OPEN_STREAMS;
+    }
+
+    public int getStatusRecheckIntervalInSeconds() {
+        return statusRecheckIntervalInSeconds > 0
+               ? statusRecheckIntervalInSeconds
+               : DEFAULT_STATUS_RECHECK_INTERVAL_IN_SECONDS;
+    }
+
+    public int getMaxDataPartSizeInMB() {
+        return maxDataPartSizeInMB > 0 ? maxDataPartSizeInMB : DEFAULT_MAX_DATA_PART_SIZE_IN_MB;
+    }
 }
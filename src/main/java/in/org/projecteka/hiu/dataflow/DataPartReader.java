@@ -0,0 +1,171 @@
+package in.org.projecteka.hiu.dataflow;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import in.org.projecteka.hiu.dataflow.model.DataNotificationRequest;
+import in.org.projecteka.hiu.dataflow.model.DataPartHeader;
+import in.org.projecteka.hiu.dataflow.model.Entry;
+import in.org.projecteka.hiu.dataflow.model.KeyMaterial;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import static com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES;
+import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
+
+/**
+ * Reads a data part file (a serialized {@link DataNotificationRequest}) with token streaming, so that only one entry
+ * is held in memory at a time. The header (everything except entries) is read in a separate pass which only counts
+ * entries and checks that each of them has either content or a link.
+ */
+public class DataPartReader {
+    private static final Logger logger = LoggerFactory.getLogger(DataPartReader.class);
+    private static final String ENTRIES = "entries";
+    private static final String CONTENT = "content";
+    private static final String LINK = "link";
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(WRITE_DATES_AS_TIMESTAMPS, false)
+            .configure(FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    public DataPartHeader readHeader(Path dataFilePath) throws IOException {
+        try (JsonParser parser = createParser(dataFilePath)) {
+            var notification = new DataNotificationRequest();
+            int numberOfEntries = 0;
+            int numberOfInvalidEntries = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                switch (fieldName) {
+                    case "transactionId":
+                        notification.setTransactionId(parser.getValueAsString());
+                        break;
+                    case "pageNumber":
+                        notification.setPageNumber(parser.getValueAsInt());
+                        break;
+                    case "pageCount":
+                        notification.setPageCount(parser.getValueAsInt());
+                        break;
+                    case "keyMaterial":
+                        notification.setKeyMaterial(objectMapper.readValue(parser, KeyMaterial.class));
+                        break;
+                    case ENTRIES:
+                        if (valueToken != JsonToken.START_ARRAY) {
+                            parser.skipChildren();
+                            break;
+                        }
+                        JsonToken entryToken;
+                        while ((entryToken = parser.nextToken()) != null && entryToken != JsonToken.END_ARRAY) {
+                            numberOfEntries++;
+                            if (!hasContentOrLink(parser)) {
+                                numberOfInvalidEntries++;
+                            }
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            return new DataPartHeader(notification, numberOfEntries, numberOfInvalidEntries);
+        }
+    }
+
+    public void forEachEntry(Path dataFilePath, Consumer<Entry> consumer) throws IOException {
+        try (JsonParser parser = openAtEntries(dataFilePath)) {
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                consumer.accept(objectMapper.readValue(parser, Entry.class));
+            }
+        }
+    }
+
+    /**
+     * Entries are pulled from the file on demand, so at most as many entries as requested downstream are read ahead.
+     */
+    public Flux<Entry> entries(Path dataFilePath) {
+        return Flux.using(() -> openAtEntries(dataFilePath),
+                parser -> Flux.<Entry>generate(sink -> {
+                    try {
+                        if (parser.nextToken() == JsonToken.START_OBJECT) {
+                            sink.next(objectMapper.readValue(parser, Entry.class));
+                        } else {
+                            sink.complete();
+                        }
+                    } catch (IOException e) {
+                        sink.error(e);
+                    }
+                }),
+                this::close);
+    }
+
+    private JsonParser openAtEntries(Path dataFilePath) throws IOException {
+        JsonParser parser = createParser(dataFilePath);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken valueToken = parser.nextToken();
+            if (ENTRIES.equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+                return parser;
+            }
+            parser.skipChildren();
+        }
+        return parser;
+    }
+
+    private JsonParser createParser(Path dataFilePath) throws IOException {
+        JsonParser parser = objectMapper.getFactory().createParser(dataFilePath.toFile());
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            var notAnObject = new JsonParseException(parser,
+                    String.format("Data part file %s is not a JSON object", dataFilePath));
+            parser.close();
+            throw notAnObject;
+        }
+        return parser;
+    }
+
+    private boolean hasContentOrLink(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return false;
+        }
+        boolean hasContentOrLink = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken valueToken = parser.nextToken();
+            if (!hasContentOrLink
+                    && (CONTENT.equals(fieldName) || LINK.equals(fieldName))
+                    && valueToken == JsonToken.VALUE_STRING) {
+                hasContentOrLink = !isBlank(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return hasContentOrLink;
+    }
+
+    private boolean isBlank(JsonParser parser) throws IOException {
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        for (int index = offset; index < offset + length; index++) {
+            if (!Character.isWhitespace(text[index])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void close(JsonParser parser) {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            logger.warn("Could not close data part file", e);
+        }
+    }
+}
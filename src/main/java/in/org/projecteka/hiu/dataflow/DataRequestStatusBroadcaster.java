@@ -0,0 +1,17 @@
+package in.org.projecteka.hiu.dataflow;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Carries the ids of the data requests whose status may have changed to every node, so that status subscribers
+ * can read the status again instead of polling for it.
+ */
+public interface DataRequestStatusBroadcaster {
+    Mono<Void> publish(String dataRequestId);
+
+    /**
+     * A hot stream of the data request ids published from now on, on any node.
+     */
+    Flux<String> updates();
+}
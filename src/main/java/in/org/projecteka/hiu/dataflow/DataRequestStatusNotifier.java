@@ -0,0 +1,28 @@
+package in.org.projecteka.hiu.dataflow;
+
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import static reactor.core.publisher.Mono.defer;
+
+/**
+ * Tells status subscribers that the data request of a transaction moved along. Subscribers read the status again on
+ * a fixed interval as well, so a notification that could not be sent only delays the update and never fails the
+ * transition itself.
+ */
+@AllArgsConstructor
+public class DataRequestStatusNotifier {
+    private static final Logger logger = LoggerFactory.getLogger(DataRequestStatusNotifier.class);
+    private final DataFlowRepository dataFlowRepository;
+    private final DataRequestStatusBroadcaster statusBroadcaster;
+
+    public Mono<Void> statusChanged(String transactionId) {
+        return defer(() -> dataFlowRepository.getDataRequestId(transactionId))
+                .flatMap(statusBroadcaster::publish)
+                .doOnError(error -> logger.error("Could not notify status change of transaction {}",
+                        transactionId, error))
+                .onErrorResume(error -> Mono.empty());
+    }
+}
@@ -0,0 +1,46 @@
+package in.org.projecteka.hiu.dataflow;
+
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.util.encoders.Base64;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Decrypts entries of a single transaction with the AES key derived once by {@link Decryptor#session}.
+ * Ciphers are initialised once and reused; GCM resets itself after each doFinal, so a cipher that decrypted one
+ * entry is ready for the next. Entries may be decrypted concurrently, each call takes its own cipher from the pool.
+ */
+public class DecryptionSession {
+    private static final int MAC_SIZE_IN_BITS = 128;
+
+    private final AEADParameters parameters;
+    private final Queue<GCMBlockCipher> ciphers = new ConcurrentLinkedQueue<>();
+
+    DecryptionSession(byte[] aesKey, byte[] iv) {
+        this.parameters = new AEADParameters(new KeyParameter(aesKey), MAC_SIZE_IN_BITS, iv, null);
+    }
+
+    public byte[] decrypt(String encryptedMessage) throws InvalidCipherTextException {
+        return decrypt(Base64.decode(encryptedMessage));
+    }
+
+    public byte[] decrypt(byte[] encryptedBytes) throws InvalidCipherTextException {
+        GCMBlockCipher cipher = ciphers.poll();
+        if (cipher == null) {
+            cipher = new GCMBlockCipher(new AESEngine());
+            cipher.init(false, parameters);
+        }
+        byte[] plainBytes = new byte[cipher.getOutputSize(encryptedBytes.length)];
+        int length = cipher.processBytes(encryptedBytes, 0, encryptedBytes.length, plainBytes, 0);
+        length += cipher.doFinal(plainBytes, length);
+        // only reached on success, a cipher that failed is not put back in an unknown state
+        ciphers.offer(cipher);
+        return length == plainBytes.length ? plainBytes : Arrays.copyOf(plainBytes, length);
+    }
+}
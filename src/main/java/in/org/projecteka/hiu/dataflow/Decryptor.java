@@ -7,12 +7,8 @@ import org.bouncycastle.crypto.DataLengthException;
 import org.bouncycastle.crypto.InvalidCipherTextException;
 import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.crypto.ec.CustomNamedCurves;
-import org.bouncycastle.crypto.engines.AESEngine;
 import org.bouncycastle.crypto.generators.HKDFBytesGenerator;
-import org.bouncycastle.crypto.modes.GCMBlockCipher;
-import org.bouncycastle.crypto.params.AEADParameters;
 import org.bouncycastle.crypto.params.HKDFParameters;
-import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.jce.interfaces.ECPrivateKey;
 import org.bouncycastle.jce.interfaces.ECPublicKey;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
@@ -44,9 +40,17 @@ public class Decryptor {
     public static final String EH_PUBLIC_KEY_PARAMETER = "Ephemeral public key";
 
     private static final Logger logger = LoggerFactory.getLogger(Decryptor.class);
+    private static final ECParameterSpec CURVE_PARAMETERS = curveParameters();
 
-    public Decryptor(){
-        Security.addProvider(new BouncyCastleProvider());
+    static {
+        if (Security.getProvider(PROVIDER) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    private static ECParameterSpec curveParameters() {
+        X9ECParameters ecP = CustomNamedCurves.getByName(Decryptor.CURVE);
+        return new ECParameterSpec(ecP.getCurve(), ecP.getG(), ecP.getN(), ecP.getH(), ecP.getSeed());
     }
 
     public String generateRandomKey() {
@@ -69,7 +73,6 @@ public class Decryptor {
     }
 
     public KeyPair generateKeyPair() throws NoSuchProviderException, NoSuchAlgorithmException, InvalidAlgorithmParameterException {
-        Security.addProvider(new BouncyCastleProvider());
         KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance(Decryptor.ALGORITHM, Decryptor.PROVIDER);
         X9ECParameters ecParameters = CustomNamedCurves.getByName(Decryptor.CURVE);
         ECParameterSpec ecSpec=new ECParameterSpec(ecParameters.getCurve(), ecParameters.getG(),
@@ -79,25 +82,43 @@ public class Decryptor {
         return keyPairGenerator.generateKeyPair();
     }
 
+    /**
+     * An entry that cannot be decrypted is given back as an empty string; key material that cannot be used fails the
+     * call, since no entry of the transaction could be decrypted with it.
+     */
     public String decrypt(KeyMaterial receivedKeyMaterial,
                           DataFlowRequestKeyMaterial savedKeyMaterial,
                           String encryptedMessage) throws Exception {
+        var session = session(receivedKeyMaterial, savedKeyMaterial);
+        try {
+            byte[] plainBytes = session.decrypt(encryptedMessage);
+            return new String(plainBytes, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException | IllegalStateException |
+                DataLengthException | InvalidCipherTextException ex) {
+            logger.error(ex.getMessage(), ex);
+            return "";
+        }
+    }
+
+    /**
+     * Derives the AES key and IV shared with the sender once. All entries of a transaction are encrypted with the
+     * same key material, so the returned session can decrypt every entry of it.
+     */
+    public DecryptionSession session(KeyMaterial receivedKeyMaterial,
+                                     DataFlowRequestKeyMaterial savedKeyMaterial) throws Exception {
         var senderPublicKey = receivedKeyMaterial.getDhPublicKey().getKeyValue();
         var randomKeySender = receivedKeyMaterial.getNonce();
-        String sharedKey = doECDH(getBytesForBase64String(savedKeyMaterial.getPrivateKey())
+        byte[] sharedKey = doECDH(getBytesForBase64String(savedKeyMaterial.getPrivateKey())
                 , getBytesForBase64String(senderPublicKey));
         byte[] xorOfRandoms = xorOfRandom(randomKeySender, savedKeyMaterial.getRandomKey());
         byte[] iv = Arrays.copyOfRange(xorOfRandoms, xorOfRandoms.length - 12, xorOfRandoms.length);
         var aesKey = generateAesKey(xorOfRandoms, sharedKey);
-        return decrypt(getBytesForBase64String(encryptedMessage), aesKey,iv);
+        return new DecryptionSession(aesKey, iv);
     }
 
     private PrivateKey loadPrivateKey (byte [] data) throws Exception
     {
-        X9ECParameters ecP = CustomNamedCurves.getByName(Decryptor.CURVE);
-        ECParameterSpec params=new ECParameterSpec(ecP.getCurve(), ecP.getG(),
-                ecP.getN(), ecP.getH(), ecP.getSeed());
-        ECPrivateKeySpec privateKeySpec = new ECPrivateKeySpec(new BigInteger(data), params);
+        ECPrivateKeySpec privateKeySpec = new ECPrivateKeySpec(new BigInteger(data), CURVE_PARAMETERS);
         KeyFactory kf = KeyFactory.getInstance(Decryptor.ALGORITHM, Decryptor.PROVIDER);
         return kf.generatePrivate(privateKeySpec);
     }
@@ -110,13 +131,12 @@ public class Decryptor {
         return publicKey;
     }
 
-    private String doECDH (byte[] dataPrv, byte[] dataPub) throws Exception
+    private byte[] doECDH (byte[] dataPrv, byte[] dataPub) throws Exception
     {
         KeyAgreement ka = KeyAgreement.getInstance(Decryptor.ALGORITHM, Decryptor.PROVIDER);
         ka.init(loadPrivateKey(dataPrv));
         ka.doPhase(loadPublicKey(dataPub), true);
-        byte [] secret = ka.generateSecret();
-        return getBase64String(secret);
+        return ka.generateSecret();
     }
 
     private byte [] xorOfRandom(String randomKeySender, String randomKeyReceiver)
@@ -136,10 +156,10 @@ public class Decryptor {
         return new String(org.bouncycastle.util.encoders.Base64.encode(value));
     }
 
-    private byte [] generateAesKey(byte[] xorOfRandoms, String sharedKey ){
+    private byte [] generateAesKey(byte[] xorOfRandoms, byte[] sharedKey ){
         byte[] salt = Arrays.copyOfRange(xorOfRandoms, 0, 20);
         HKDFBytesGenerator hkdfBytesGenerator = new HKDFBytesGenerator(new SHA256Digest());
-        HKDFParameters hkdfParameters = new HKDFParameters(getBytesForBase64String(sharedKey), salt, null);
+        HKDFParameters hkdfParameters = new HKDFParameters(sharedKey, salt, null);
         hkdfBytesGenerator.init(hkdfParameters);
         byte[] aesKey = new byte[32];
         hkdfBytesGenerator.generateBytes(aesKey, 0, 32);
@@ -149,25 +169,4 @@ public class Decryptor {
     public byte[] getBytesForBase64String(String value){
         return org.bouncycastle.util.encoders.Base64.decode(value);
     }
-
-    private static String decrypt(byte[] encryptedBytes, byte[] key, byte[] iv) {
-        String decryptedData = "";
-        try {
-            GCMBlockCipher cipher = new GCMBlockCipher(new AESEngine());
-            AEADParameters parameters =
-                    new AEADParameters(new KeyParameter(key), 128, iv, null);
-
-            cipher.init(false, parameters);
-            byte[] plainBytes = new byte[cipher.getOutputSize(encryptedBytes.length)];
-            int retLen = cipher.processBytes
-                    (encryptedBytes, 0, encryptedBytes.length, plainBytes, 0);
-            cipher.doFinal(plainBytes, retLen);
-
-            decryptedData = new String(plainBytes, StandardCharsets.UTF_8);
-        } catch (IllegalArgumentException | IllegalStateException |
-                DataLengthException | InvalidCipherTextException ex) {
-            logger.error(ex.getMessage(), ex);
-        }
-        return decryptedData;
-    }
 }
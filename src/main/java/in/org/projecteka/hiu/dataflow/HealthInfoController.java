@@ -1,17 +1,18 @@
 package in.org.projecteka.hiu.dataflow;
 
 import in.org.projecteka.hiu.Caller;
-import in.org.projecteka.hiu.consent.TokenUtils;
+import in.org.projecteka.hiu.dataflow.model.DataEntry;
 import in.org.projecteka.hiu.dataflow.model.HealthInformation;
 import in.org.projecteka.hiu.dataflow.model.HealthInformationFetchRequest;
+import in.org.projecteka.hiu.dataflow.model.PatientDataEntry;
 import in.org.projecteka.hiu.dataflow.model.PatientHealthInformation;
 import in.org.projecteka.hiu.dataflow.model.DataRequestStatusResponse;
 import in.org.projecteka.hiu.dataflow.model.DataRequestStatusCheckRequest;
 import lombok.AllArgsConstructor;
-import lombok.SneakyThrows;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -20,17 +21,18 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.List;
 
 import static in.org.projecteka.hiu.common.Constants.API_PATH_FETCH_PATIENT_HEALTH_INFO;
 import static in.org.projecteka.hiu.common.Constants.API_PATH_GET_INFO_FOR_SINGLE_CONSENT_REQUEST;
 import static in.org.projecteka.hiu.common.Constants.API_PATH_GET_ATTACHMENT;
 import static in.org.projecteka.hiu.common.Constants.CM_API_PATH_GET_ATTACHMENT;
 import static in.org.projecteka.hiu.common.Constants.API_PATH_GET_HEALTH_INFO_STATUS;
+import static org.springframework.http.MediaType.APPLICATION_STREAM_JSON_VALUE;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE;
 
 @SuppressWarnings("MVCPathVariableInspection")
 @RestController
@@ -38,6 +40,7 @@ import static in.org.projecteka.hiu.common.Constants.API_PATH_GET_HEALTH_INFO_ST
 public class HealthInfoController {
     private final HealthInfoManager healthInfoManager;
     private final DataFlowServiceProperties serviceProperties;
+    private final AttachmentHandler attachmentHandler;
 
     @GetMapping(API_PATH_GET_INFO_FOR_SINGLE_CONSENT_REQUEST)
     public Mono<HealthInformation> fetchHealthInformation(
@@ -56,6 +59,15 @@ public class HealthInfoController {
                         .entries(dataEntries).build());
     }
 
+    @GetMapping(value = API_PATH_GET_INFO_FOR_SINGLE_CONSENT_REQUEST, produces = APPLICATION_STREAM_JSON_VALUE)
+    public Flux<DataEntry> streamHealthInformation(
+            @PathVariable(value = "consent-request-id") String consentRequestId) {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(securityContext -> (Caller) securityContext.getAuthentication().getPrincipal())
+                .map(Caller::getUsername)
+                .flatMapMany(username -> healthInfoManager.fetchHealthInformation(consentRequestId, username));
+    }
+
     @PostMapping(API_PATH_FETCH_PATIENT_HEALTH_INFO)
     public Mono<PatientHealthInformation> fetchHealthInformation(@RequestBody HealthInformationFetchRequest dataRequest) {
         var limit = Math.min(dataRequest.getLimit(serviceProperties.getDefaultPageSize()), serviceProperties.getMaxPageSize());
@@ -63,14 +75,33 @@ public class HealthInfoController {
                 .map(securityContext -> (Caller) securityContext.getAuthentication().getPrincipal())
                 .map(Caller::getUsername)
                 .flatMap(username -> healthInfoManager.fetchHealthInformation(
-                        dataRequest.getRequestIds(), username, limit, dataRequest.getOffset()))
-                .map(tuple -> PatientHealthInformation.builder()
-                        .size(tuple.getT2())
+                        dataRequest.getRequestIds(),
+                        username,
+                        limit,
+                        dataRequest.getOffset(),
+                        dataRequest.getContinuationToken()))
+                .map(page -> PatientHealthInformation.builder()
+                        .size(page.getTotal())
                         .limit(limit)
                         .offset(dataRequest.getOffset())
-                        .entries(tuple.getT1()).build());
+                        .entries(page.getEntries())
+                        .continuationToken(page.getContinuationToken()).build());
+    }
+
+    @PostMapping(value = API_PATH_FETCH_PATIENT_HEALTH_INFO, produces = APPLICATION_STREAM_JSON_VALUE)
+    public Flux<PatientDataEntry> streamHealthInformation(@RequestBody HealthInformationFetchRequest dataRequest) {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(securityContext -> (Caller) securityContext.getAuthentication().getPrincipal())
+                .map(Caller::getUsername)
+                .flatMapMany(username -> healthInfoManager.streamHealthInformation(
+                        dataRequest.getRequestIds(), username));
     }
 
+    /**
+     * The file resource is written with zero-copy transfer where the server supports it, and a Range request is
+     * answered with just the requested part. The response is validated with its ETag or Last-Modified on every use,
+     * so the requester's access to the consent is checked each time while unchanged content is not sent again.
+     */
     @GetMapping(value = {API_PATH_GET_ATTACHMENT, CM_API_PATH_GET_ATTACHMENT})
     public Mono<ResponseEntity<FileSystemResource>> fetchHealthInformation(
             @PathVariable(value = "consent-request-id") String consentRequestId,
@@ -78,24 +109,16 @@ public class HealthInfoController {
         return ReactiveSecurityContextHolder.getContext()
                 .map(securityContext -> (Caller) securityContext.getAuthentication().getPrincipal())
                 .map(Caller::getUsername)
-                .flatMapMany(username -> healthInfoManager.getTransactionIdForConsentRequest(consentRequestId, username))
-                .map(transactionId -> Paths.get(
-                        serviceProperties.getLocalStoragePath(),
-                        TokenUtils.encode(consentRequestId),
-                        TokenUtils.encode(transactionId), fileName))
-                .filter(Files::exists)
-                .collectList()
-                .filter(filePaths -> !filePaths.isEmpty())
-                .map(filePaths -> {
-                    var filePath = filePaths.get(0);
-                    var contentDispositionHeaderValue = String.format("attachment; %s", filePath.getFileName().toString());
-                    return ResponseEntity.ok()
-                            .header(HttpHeaders.CONTENT_DISPOSITION, contentDispositionHeaderValue)
-                            .contentType(responseContentType(filePath))
-                            .body(new FileSystemResource(filePath));
-                })
-                .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
-
+                .flatMap(username -> attachmentHandler.find(consentRequestId, fileName, username))
+                .map(attachment -> ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_DISPOSITION,
+                                ContentDisposition.builder("attachment").filename(fileName).build().toString())
+                        .contentType(attachment.getContentType())
+                        .eTag(attachment.getETag())
+                        .lastModified(attachment.getLastModified())
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .body(new FileSystemResource(attachment.getPath())))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
     @PostMapping(API_PATH_GET_HEALTH_INFO_STATUS)
@@ -108,12 +131,13 @@ public class HealthInfoController {
                 .map(DataRequestStatusResponse::new);
     }
 
-    @SneakyThrows
-    private MediaType responseContentType(Path filePath) {
-        String contentType = Files.probeContentType(filePath);
-        if (contentType == null) {
-            return MediaType.APPLICATION_OCTET_STREAM;
-        }
-        return MediaType.parseMediaType(contentType);
+    @GetMapping(value = API_PATH_GET_HEALTH_INFO_STATUS, produces = TEXT_EVENT_STREAM_VALUE)
+    public Flux<DataRequestStatusResponse> subscribeHealthInformationStatus(
+            @RequestParam List<String> requestIds) {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(securityContext -> (Caller) securityContext.getAuthentication().getPrincipal())
+                .map(Caller::getUsername)
+                .flatMapMany(username -> healthInfoManager.subscribeHealthInformationStatus(requestIds, username))
+                .map(DataRequestStatusResponse::new);
     }
 }
@@ -17,17 +17,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.function.Tuple2;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static in.org.projecteka.hiu.ClientError.consentArtefactGone;
+import static in.org.projecteka.hiu.ClientError.invalidContinuationToken;
 import static in.org.projecteka.hiu.ClientError.invalidHealthInformationRequest;
 import static in.org.projecteka.hiu.ClientError.unauthorizedRequester;
 import static in.org.projecteka.hiu.common.Constants.STATUS;
@@ -51,6 +54,7 @@ public class HealthInfoManager {
     private final PatientConsentRepository patientConsentRepository;
     private final HealthInformationRepository healthInformationRepository;
     private final DataFlowServiceProperties serviceProperties;
+    private final DataRequestStatusBroadcaster statusBroadcaster;
 
     public Flux<DataEntry> fetchHealthInformation(String consentRequestId, String requesterId) {
         return consentRepository.getConsentDetails(consentRequestId)
@@ -67,10 +71,19 @@ public class HealthInfoManager {
                                 consentDetail.get("hipName"))));
     }
 
-    public Mono<Tuple2<List<PatientDataEntry>, Integer>> fetchHealthInformation(List<String> dataRequestIds,
-                                                                                String requesterId,
-                                                                                int limit,
-                                                                                int offset) {
+    public Mono<HealthInformationPage> fetchHealthInformation(List<String> dataRequestIds,
+                                                              String requesterId,
+                                                              int limit,
+                                                              int offset,
+                                                              String continuationToken) {
+        Optional<HealthInformationCursor> cursor = Optional.empty();
+        if (hasText(continuationToken)) {
+            cursor = HealthInformationCursor.decode(continuationToken);
+            if (cursor.isEmpty()) {
+                return error(invalidContinuationToken());
+            }
+        }
+        var after = cursor;
         return patientConsentRepository.fetchConsentRequestIds(dataRequestIds)
                 .map(PatientDataRequestMapping::getConsentRequestId)
                 .collectList()
@@ -78,16 +91,47 @@ public class HealthInfoManager {
                 .collectList()
                 .filter(dataParts -> isValidRequester(dataParts, requesterId))
                 .switchIfEmpty(error(unauthorizedRequester()))
-                .flatMap(dataParts -> getDataEntries(limit, offset, dataParts));
+                .flatMap(dataParts -> getDataEntries(limit, offset, after, dataParts));
+    }
+
+    public Flux<PatientDataEntry> streamHealthInformation(List<String> dataRequestIds, String requesterId) {
+        return patientConsentRepository.fetchConsentRequestIds(dataRequestIds)
+                .map(PatientDataRequestMapping::getConsentRequestId)
+                .collectList()
+                .flatMapMany(dataFlowRepository::fetchDataPartDetails)
+                .collectList()
+                .filter(dataParts -> isValidRequester(dataParts, requesterId))
+                .switchIfEmpty(error(unauthorizedRequester()))
+                .flatMapMany(dataParts -> {
+                    var dataEntries = dataEntryBuilders(dataParts);
+                    return healthInformationRepository.getHealthInformation(List.copyOf(dataEntries.keySet()))
+                            .map(healthInfo -> toPatientDataEntry(dataEntries, healthInfo));
+                });
     }
 
     private boolean isValidRequester(List<DataPartDetail> dataParts, String requesterId) {
         return dataParts.stream().allMatch(dataPart -> dataPart.getRequester().equals(requesterId));
     }
 
-    private Mono<Tuple2<List<PatientDataEntry>, Integer>> getDataEntries(int limit,
-                                                                         int offset,
-                                                                         List<DataPartDetail> dataParts) {
+    private Mono<HealthInformationPage> getDataEntries(int limit,
+                                                       int offset,
+                                                       Optional<HealthInformationCursor> after,
+                                                       List<DataPartDetail> dataParts) {
+        var dataEntries = dataEntryBuilders(dataParts);
+        var transactionIds = List.copyOf(dataEntries.keySet());
+        return after.map(cursor -> healthInformationRepository.getHealthInformation(transactionIds, limit, cursor))
+                .orElseGet(() -> healthInformationRepository.getHealthInformation(transactionIds, limit, offset))
+                .collectList()
+                .flatMap(healthInfos -> totalCountOf(healthInfos, after, offset, transactionIds)
+                        .map(total -> new HealthInformationPage(
+                                healthInfos.stream()
+                                        .map(healthInfo -> toPatientDataEntry(dataEntries, healthInfo))
+                                        .collect(Collectors.toList()),
+                                total,
+                                continuationToken(healthInfos, limit, total))));
+    }
+
+    private Map<String, PatientDataEntry.PatientDataEntryBuilder> dataEntryBuilders(List<DataPartDetail> dataParts) {
         HashMap<String, PatientDataEntry.PatientDataEntryBuilder> dataEntries = new HashMap<>();
         dataParts.forEach(dataPartDetail -> {
             dataEntries.put(dataPartDetail.getTransactionId(), PatientDataEntry.builder()
@@ -95,16 +139,45 @@ public class HealthInfoManager {
                     .hipId(dataPartDetail.getHipId())
                     .consentArtefactId(dataPartDetail.getConsentArtifactId()));
         });
-        var transactionIds = List.copyOf(dataEntries.keySet());
-        return healthInformationRepository.getHealthInformation(transactionIds, limit, offset)
-                .map(healthInfo -> dataEntries.get(healthInfo.get("transaction_id").toString())
-                        .status(toStatus((String) healthInfo.get(STATUS)))
-                        .data(healthInfo.get("data"))
-                        .docId((String) healthInfo.get("doc_id"))
-                        .docOriginId((String) healthInfo.get("doc_origin"))
-                        .build())
-                .collectList()
-                .zipWith(healthInformationRepository.getTotalCountOfEntries(transactionIds));
+        return dataEntries;
+    }
+
+    private PatientDataEntry toPatientDataEntry(Map<String, PatientDataEntry.PatientDataEntryBuilder> dataEntries,
+                                                Map<String, Object> healthInfo) {
+        return dataEntries.get(healthInfo.get("transaction_id").toString())
+                .status(toStatus((String) healthInfo.get(STATUS)))
+                .data(healthInfo.get("data"))
+                .docId((String) healthInfo.get("doc_id"))
+                .docOriginId((String) healthInfo.get("doc_origin"))
+                .build();
+    }
+
+    private Mono<Integer> totalCountOf(List<Map<String, Object>> healthInfos,
+                                       Optional<HealthInformationCursor> after,
+                                       int offset,
+                                       List<String> transactionIds) {
+        if (after.isPresent()) {
+            return Mono.just(after.get().getTotal());
+        }
+        if (!healthInfos.isEmpty()) {
+            return Mono.just(((Long) healthInfos.get(0).get("total_count")).intValue());
+        }
+        if (offset == 0) {
+            return Mono.just(0);
+        }
+        // an offset past the last entry leaves no row to read the windowed count from
+        return healthInformationRepository.getTotalCountOfEntries(transactionIds);
+    }
+
+    private String continuationToken(List<Map<String, Object>> healthInfos, int limit, int total) {
+        if (healthInfos.isEmpty() || healthInfos.size() < limit) {
+            return null;
+        }
+        var last = healthInfos.get(healthInfos.size() - 1);
+        return new HealthInformationCursor(last.get("transaction_id").toString(),
+                (LocalDateTime) last.get("latest_res_date"),
+                (Long) last.get("id"),
+                total).encode();
     }
 
     public Flux<String> getTransactionIdForConsentRequest(String consentRequestId, String username) {
@@ -185,6 +258,24 @@ public class HealthInfoManager {
                 });
     }
 
+    /**
+     * Emits the statuses of the data requests now and again whenever they change, until none of them is processing.
+     * A change is noticed when it is published, or at the latest when the statuses are read again on the recheck
+     * interval, which also moves a request to errored once it has waited too long.
+     */
+    public Flux<List<PatientHealthInfoStatus>> subscribeHealthInformationStatus(List<String> dataRequestIds,
+                                                                               String username) {
+        var requested = Set.copyOf(dataRequestIds);
+        var published = statusBroadcaster.updates().filter(requested::contains).map(dataRequestId -> 0L);
+        var rechecks = Flux.interval(Duration.ofSeconds(serviceProperties.getStatusRecheckIntervalInSeconds()));
+        return Flux.merge(published, rechecks)
+                .startWith(0L)
+                .onBackpressureLatest()
+                .concatMap(trigger -> fetchHealthInformationStatus(dataRequestIds, username).collectList(), 1)
+                .distinctUntilChanged()
+                .takeUntil(statuses -> statuses.stream().noneMatch(status -> status.getStatus() == PROCESSING));
+    }
+
     //TODO: If someone knows a better way to do it please update this.
     private boolean isUUID(String maybeUUID) {
         try {
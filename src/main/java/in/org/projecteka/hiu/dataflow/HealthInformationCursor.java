@@ -0,0 +1,50 @@
+package in.org.projecteka.hiu.dataflow;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Position of the last health information entry of a page, in the order
+ * (transaction_id, latest_res_date DESC NULLS LAST, id). The total number of entries, counted when the first page
+ * was read, travels along so that later pages need not count again.
+ */
+@Value
+@AllArgsConstructor
+public class HealthInformationCursor {
+    private static final String SEPARATOR = ",";
+
+    String transactionId;
+    LocalDateTime latestResDate;
+    long id;
+    int total;
+
+    public String encode() {
+        var position = String.join(SEPARATOR,
+                transactionId,
+                latestResDate == null ? "" : latestResDate.toString(),
+                String.valueOf(id),
+                String.valueOf(total));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(UTF_8));
+    }
+
+    public static Optional<HealthInformationCursor> decode(String continuationToken) {
+        try {
+            var position = new String(Base64.getUrlDecoder().decode(continuationToken), UTF_8).split(SEPARATOR, -1);
+            if (position.length != 4 || position[0].isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(new HealthInformationCursor(position[0],
+                    position[1].isEmpty() ? null : LocalDateTime.parse(position[1]),
+                    Long.parseLong(position[2]),
+                    Integer.parseInt(position[3])));
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+}
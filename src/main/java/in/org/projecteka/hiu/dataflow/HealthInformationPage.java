@@ -0,0 +1,13 @@
+package in.org.projecteka.hiu.dataflow;
+
+import in.org.projecteka.hiu.dataflow.model.PatientDataEntry;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class HealthInformationPage {
+    List<PatientDataEntry> entries;
+    int total;
+    String continuationToken;
+}
@@ -1,53 +1,87 @@
 package in.org.projecteka.hiu.dataflow;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Transaction;
 import io.vertx.sqlclient.Tuple;
-import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
 
-import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
 import static in.org.projecteka.hiu.ClientError.dbOperationFailure;
+import static in.org.projecteka.hiu.ClientError.tooManyHealthInformationStreams;
+import static in.org.projecteka.hiu.common.SqlArrays.textArray;
 
-@AllArgsConstructor
 public class HealthInformationRepository {
     private static final String SELECT_HEALTH_INFORMATION = "SELECT data, status, transaction_id, doc_id, doc_origin " +
             "FROM health_information " +
             "WHERE transaction_id=$1";
-    private static final String SELECT_HEALTH_INFO_FOR_MULTIPLE_TRANSACTIONS = "SELECT data, status, transaction_id, doc_id, doc_origin " +
-            "FROM health_information WHERE transaction_id in (%s) " +
-            "ORDER BY transaction_id, latest_res_date DESC NULLS LAST " +
-            "LIMIT $1 OFFSET $2";
+    private static final String SELECT_HEALTH_INFO_FOR_MULTIPLE_TRANSACTIONS = "SELECT data, status, transaction_id, doc_id, doc_origin, " +
+            "id, latest_res_date, count(*) OVER() AS total_count " +
+            "FROM health_information WHERE transaction_id = ANY($1::text[]) " +
+            "ORDER BY transaction_id, latest_res_date DESC NULLS LAST, id " +
+            "LIMIT $2 OFFSET $3";
+    // Keyset over (transaction_id, latest_res_date DESC NULLS LAST, id); the mixed sort directions rule out a plain
+    // row comparison, hence the spelled out predicate. Relies on the id column of health_information and an index
+    // in the same order (db/migrations/005-health-information-keyset.sql).
+    private static final String SELECT_HEALTH_INFO_FOR_MULTIPLE_TRANSACTIONS_AFTER = "SELECT data, status, transaction_id, doc_id, doc_origin, " +
+            "id, latest_res_date " +
+            "FROM health_information WHERE transaction_id = ANY($1::text[]) " +
+            "AND (transaction_id > $2 OR (transaction_id = $2 AND (" +
+            "($3::timestamp IS NOT NULL AND (latest_res_date < $3 OR latest_res_date IS NULL " +
+            "OR (latest_res_date = $3 AND id > $4))) " +
+            "OR ($3::timestamp IS NULL AND latest_res_date IS NULL AND id > $4)))) " +
+            "ORDER BY transaction_id, latest_res_date DESC NULLS LAST, id " +
+            "LIMIT $5";
+
+    private static final String SELECT_ALL_HEALTH_INFO_FOR_MULTIPLE_TRANSACTIONS = "SELECT data, status, transaction_id, doc_id, doc_origin " +
+            "FROM health_information WHERE transaction_id = ANY($1::text[]) " +
+            "ORDER BY transaction_id, latest_res_date DESC NULLS LAST, id";
 
     private static final String COUNT_HEALTH_INFO_FOR_MULTIPLE_TRANSACTIONS = "SELECT COUNT(*) " +
-            "FROM health_information WHERE transaction_id in (%s)";
+            "FROM health_information WHERE transaction_id = ANY($1::text[])";
+
+    private static final String READ_ONLY_TRANSACTION = "SET TRANSACTION READ ONLY";
 
     private static final String DELETE_HEALTH_INFO_FOR_EXPIRED_CONSENT = "DELETE FROM health_information WHERE transaction_id=$1";
 
     private final PgPool readWriteClient;
     private final PgPool readOnlyClient;
+    private final int streamFetchSize;
+    private final Duration streamIdleTimeout;
+    private final Semaphore openStreams;
 
     private final Logger logger = LoggerFactory.getLogger(HealthInformationRepository.class);
 
+    public HealthInformationRepository(PgPool readWriteClient,
+                                       PgPool readOnlyClient,
+                                       int streamFetchSize,
+                                       Duration streamIdleTimeout,
+                                       int maxOpenStreams) {
+        this.readWriteClient = readWriteClient;
+        this.readOnlyClient = readOnlyClient;
+        this.streamFetchSize = streamFetchSize;
+        this.streamIdleTimeout = streamIdleTimeout;
+        this.openStreams = new Semaphore(maxOpenStreams);
+    }
+
     public Flux<Map<String, Object>> getHealthInformation(String transactionId) {
-        return Flux.create(fluxSink -> readOnlyClient.preparedQuery(SELECT_HEALTH_INFORMATION)
-                .execute(Tuple.of(transactionId),
-                        getHealthInfo(fluxSink, "Failed to get health information from transaction Id")));
+        return streamHealthInfo(SELECT_HEALTH_INFORMATION,
+                Tuple.of(transactionId),
+                "Failed to get health information from transaction Id");
     }
 
 
@@ -66,22 +100,48 @@ public class HealthInformationRepository {
     }
 
     public Flux<Map<String, Object>> getHealthInformation(List<String> transactionIds, int limit, int offset) {
-        var generatedQuery = String.format(SELECT_HEALTH_INFO_FOR_MULTIPLE_TRANSACTIONS, joinByComma(transactionIds));
         if(transactionIds.isEmpty()){
             return Flux.empty();
         }
-        return Flux.create(fluxSink -> readOnlyClient.preparedQuery(generatedQuery)
-                .execute(Tuple.of(limit, offset),
-                        getHealthInfo(fluxSink, "Failed to get health information for given transaction ids")));
+        return Flux.create(fluxSink -> readOnlyClient.preparedQuery(SELECT_HEALTH_INFO_FOR_MULTIPLE_TRANSACTIONS)
+                .execute(Tuple.of(textArray(transactionIds), limit, offset),
+                        getHealthInfo(fluxSink,
+                                "Failed to get health information for given transaction ids",
+                                this::toPagedHealthInfo)));
+    }
+
+    public Flux<Map<String, Object>> getHealthInformation(List<String> transactionIds,
+                                                          int limit,
+                                                          HealthInformationCursor after) {
+        if (transactionIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return Flux.create(fluxSink -> readOnlyClient.preparedQuery(SELECT_HEALTH_INFO_FOR_MULTIPLE_TRANSACTIONS_AFTER)
+                .execute(Tuple.of(textArray(transactionIds),
+                        after.getTransactionId(),
+                        after.getLatestResDate(),
+                        after.getId(),
+                        limit),
+                        getHealthInfo(fluxSink,
+                                "Failed to get health information for given transaction ids",
+                                this::toPagedHealthInfo)));
+    }
+
+    public Flux<Map<String, Object>> getHealthInformation(List<String> transactionIds) {
+        if (transactionIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return streamHealthInfo(SELECT_ALL_HEALTH_INFO_FOR_MULTIPLE_TRANSACTIONS,
+                Tuple.of(textArray(transactionIds)),
+                "Failed to get health information for given transaction ids");
     }
 
     public Mono<Integer> getTotalCountOfEntries(List<String> transactionIds) {
-        var generatedQuery = String.format(COUNT_HEALTH_INFO_FOR_MULTIPLE_TRANSACTIONS, joinByComma(transactionIds));
         if (transactionIds.isEmpty()){
             return Mono.just(0);
         }
-        return Mono.create(monoSink -> readOnlyClient.preparedQuery(generatedQuery)
-                .execute(handler -> {
+        return Mono.create(monoSink -> readOnlyClient.preparedQuery(COUNT_HEALTH_INFO_FOR_MULTIPLE_TRANSACTIONS)
+                .execute(Tuple.of(textArray(transactionIds)), handler -> {
                     if (handler.failed()) {
                         logger.error(handler.cause().getMessage(), handler.cause());
                         monoSink.error(new Exception("Failed to count total number of entries for given transaction ids"));
@@ -91,25 +151,115 @@ public class HealthInformationRepository {
                 }));
     }
 
-    private Map<String, Object> toHealthInfo(Row row) throws JsonProcessingException {
-        String data = row.getString("data");
+    private Map<String, Object> toHealthInfo(Row row) {
+        return toHealthInfo(row::getString);
+    }
+
+    private Map<String, Object> toPagedHealthInfo(Row row) {
+        var healthInfo = toHealthInfo(row);
+        healthInfo.put("id", row.getLong("id"));
+        healthInfo.put("latest_res_date", row.getLocalDateTime("latest_res_date"));
+        if (row.getColumnIndex("total_count") != -1) {
+            healthInfo.put("total_count", row.getLong("total_count"));
+        }
+        return healthInfo;
+    }
+
+    /**
+     * The data column is handed on as the JSON text stored in the database; the response entries write it out
+     * as is (see DataEntry#data), so the bundles are never parsed here. Entries that errored are stored without
+     * data, and are handed on as null since a blank raw value would not be valid JSON.
+     */
+    static Map<String, Object> toHealthInfo(Function<String, String> column) {
         Map<String, Object> healthInfo = new HashMap<>();
-        ObjectMapper objectMapper = new ObjectMapper()
-                .registerModule(new JavaTimeModule())
-                .configure(WRITE_DATES_AS_TIMESTAMPS, false);
-        healthInfo.put("data", objectMapper.readTree(data != null ? data : ""));
-        healthInfo.put("status", row.getString("status"));
-        healthInfo.put("transaction_id", row.getString("transaction_id"));
-        healthInfo.put("doc_id", row.getString("doc_id"));
-        healthInfo.put("doc_origin", row.getString("doc_origin"));
+        var data = column.apply("data");
+        healthInfo.put("data", data == null || data.isBlank() ? null : data);
+        healthInfo.put("status", column.apply("status"));
+        healthInfo.put("transaction_id", column.apply("transaction_id"));
+        healthInfo.put("doc_id", column.apply("doc_id"));
+        healthInfo.put("doc_origin", column.apply("doc_origin"));
         return healthInfo;
     }
 
-    private String joinByComma(List<String> list) {
-        return String.join(", ", list.stream().map(e -> String.format("'%s'", e)).collect(Collectors.toList()));
+    /**
+     * Reads the rows through a cursor, fetching streamFetchSize rows at a time and only as fast as the subscriber
+     * requests them, instead of holding the whole result in memory. Postgres keeps cursors open only within a
+     * transaction, so the connection is held in a read-only one until the stream terminates; the cursor, the
+     * prepared statement and the transaction are then released, whether the stream completed, failed or was
+     * cancelled.
+     * <p>
+     * A held connection is lost to every other read, so at most maxOpenStreams cursors are open at a time and a
+     * stream beyond that is refused rather than left waiting on the pool. A stream that goes streamIdleTimeout
+     * without a row, because the subscriber stopped requesting or the database stopped answering, is failed and
+     * its cursor released the same way.
+     */
+    private Flux<Map<String, Object>> streamHealthInfo(String query, Tuple params, String errorMessage) {
+        return Flux.defer(() -> {
+            if (!openStreams.tryAcquire()) {
+                logger.warn("Refusing to stream health information, every cursor slot is in use");
+                return Flux.error(tooManyHealthInformationStreams());
+            }
+            return openCursor(query, params, errorMessage)
+                    .timeout(streamIdleTimeout, Flux.defer(() -> {
+                        logger.error("Health information stream idle for {}, releasing its cursor", streamIdleTimeout);
+                        return Flux.error(dbOperationFailure(errorMessage));
+                    }));
+        });
+    }
+
+    private Flux<Map<String, Object>> openCursor(String query, Tuple params, String errorMessage) {
+        return Flux.create(fluxSink -> readOnlyClient.getConnection(connected -> {
+            if (connected.failed()) {
+                logger.error(connected.cause().getMessage(), connected.cause());
+                openStreams.release();
+                fluxSink.error(dbOperationFailure(errorMessage));
+                return;
+            }
+            var connection = connected.result();
+            var transaction = connection.begin();
+            transaction.query(READ_ONLY_TRANSACTION).execute(readOnly -> {
+                if (readOnly.failed()) {
+                    logger.error(readOnly.cause().getMessage(), readOnly.cause());
+                    release(transaction, connection);
+                    fluxSink.error(dbOperationFailure(errorMessage));
+                    return;
+                }
+                connection.prepare(query, prepared -> {
+                    if (prepared.failed()) {
+                        logger.error(prepared.cause().getMessage(), prepared.cause());
+                        release(transaction, connection);
+                        fluxSink.error(dbOperationFailure(errorMessage));
+                        return;
+                    }
+                    var statement = prepared.result();
+                    var rowStream = statement.createStream(streamFetchSize, params);
+                    rowStream.pause()
+                            .exceptionHandler(cause -> {
+                                logger.error(cause.getMessage(), cause);
+                                fluxSink.error(dbOperationFailure(errorMessage));
+                            })
+                            .endHandler(end -> fluxSink.complete())
+                            .handler(row -> fluxSink.next(toHealthInfo(row)));
+                    fluxSink.onDispose(() -> rowStream.close(closed -> {
+                        statement.close();
+                        release(transaction, connection);
+                    }));
+                    fluxSink.onRequest(rowStream::fetch);
+                });
+            });
+        }));
+    }
+
+    private void release(Transaction transaction, SqlConnection connection) {
+        transaction.rollback(rolledBack -> {
+            connection.close();
+            openStreams.release();
+        });
     }
 
-    private Handler<AsyncResult<RowSet<Row>>> getHealthInfo(FluxSink<Map<String, Object>> fluxSink, String s) {
+    private Handler<AsyncResult<RowSet<Row>>> getHealthInfo(FluxSink<Map<String, Object>> fluxSink,
+                                                            String s,
+                                                            Function<Row, Map<String, Object>> rowMapper) {
         return handler -> {
             if (handler.failed()) {
                 logger.error(handler.cause().getMessage(), handler.cause());
@@ -118,12 +268,7 @@ public class HealthInformationRepository {
                 return;
             }
             for (Row row : handler.result()) {
-                try {
-                    fluxSink.next(toHealthInfo(row));
-                } catch (JsonProcessingException e) {
-                    logger.error(e.getMessage(), e);
-                    fluxSink.error(dbOperationFailure(e.getOriginalMessage()));
-                }
+                fluxSink.next(rowMapper.apply(row));
             }
             fluxSink.complete();
         };
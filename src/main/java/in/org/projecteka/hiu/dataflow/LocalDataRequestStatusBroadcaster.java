@@ -0,0 +1,24 @@
+package in.org.projecteka.hiu.dataflow;
+
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+/**
+ * Broadcasts within this node only, for deployments that run a single node.
+ */
+public class LocalDataRequestStatusBroadcaster implements DataRequestStatusBroadcaster {
+    private final DirectProcessor<String> processor = DirectProcessor.create();
+    private final FluxSink<String> sink = processor.sink();
+
+    @Override
+    public Mono<Void> publish(String dataRequestId) {
+        return Mono.fromRunnable(() -> sink.next(dataRequestId));
+    }
+
+    @Override
+    public Flux<String> updates() {
+        return processor.onBackpressureBuffer();
+    }
+}
@@ -1,59 +1,64 @@
 package in.org.projecteka.hiu.dataflow;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import in.org.projecteka.hiu.dataflow.model.DataNotificationRequest;
+import in.org.projecteka.hiu.dataflow.model.DataPartHeader;
+import in.org.projecteka.hiu.dataprocessor.ContentAddressedStore;
+import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.AsynchronousFileChannel;
-import java.nio.channels.CompletionHandler;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.Comparator;
-import java.util.Optional;
 import java.util.stream.Stream;
 
-import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
-
+@AllArgsConstructor
 public class LocalDataStore {
     private static final Logger logger = LoggerFactory.getLogger(LocalDataStore.class);
 
-    public Mono<Void> serializeDataToFile(DataNotificationRequest dataNotificationRequest, Path outFileName) {
-        return Mono.create(monoSink ->
-                contentFromRequest(dataNotificationRequest)
-                        .ifPresentOrElse(
-                                bytes -> {
-                                    ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-                                    //TODO: find location from application properties.
-                                    // also create the filename under a directory that's relevant to transaction
-                                    try {
-                                        createParentDirectoriesIfNotExists(outFileName);
-                                        var channel = AsynchronousFileChannel.open(outFileName,
-                                                StandardOpenOption.CREATE,
-                                                StandardOpenOption.WRITE);
-                                        channel.write(byteBuffer, 0, byteBuffer, new CompletionHandler<>() {
-                                            @Override
-                                            public void completed(Integer result, ByteBuffer attachment) {
-                                                monoSink.success();
-                                            }
+    private final DataPartReader dataPartReader = new DataPartReader();
+    private final ContentAddressedStore attachmentStore;
+
+    /**
+     * Writes the received buffers to the file as they arrive, releasing each buffer once written, so the data part
+     * is never held in memory as a whole.
+     */
+    public Mono<Void> writeToFile(Flux<DataBuffer> content, Path outFileName) {
+        return Mono.fromCallable(() -> createParentDirectoriesIfNotExists(outFileName))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then(DataBufferUtils.write(content, outFileName,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    public Mono<DataPartHeader> readHeader(Path dataFilePath) {
+        return Mono.fromCallable(() -> dataPartReader.readHeader(dataFilePath))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
 
-                                            @Override
-                                            public void failed(Throwable exc, ByteBuffer attachment) {
-                                                monoSink.error(exc);
-                                            }
-                                        });
-                                    } catch (IOException e) {
-                                        logger.error(e.getMessage());
-                                        monoSink.error(e);
-                                    }
-                                },
-                                () -> monoSink.error(new Exception("Not able to process the request"))));
+    public Mono<Void> moveFile(Path source, Path target) {
+        return Mono.fromCallable(() -> {
+            createParentDirectoriesIfNotExists(target);
+            return Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    public void discard(Path dataFilePath) {
+        try {
+            Files.deleteIfExists(dataFilePath);
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
     }
 
     public void deleteExpiredConsentData(Path pathToTransactionDirectory) {
@@ -61,7 +66,11 @@ public class LocalDataStore {
         try (Stream<Path> paths = Files.walk(pathToTransactionDirectory).sorted(Comparator.reverseOrder())) {
             paths.forEach(path -> {
                 try {
-                    Files.deleteIfExists(path);
+                    if (Files.isDirectory(path)) {
+                        Files.deleteIfExists(path);
+                    } else {
+                        attachmentStore.release(path);
+                    }
                 } catch (IOException e) {
                     logger.error(e.getMessage());
                 }
@@ -71,20 +80,7 @@ public class LocalDataStore {
         }
     }
 
-    private void createParentDirectoriesIfNotExists(Path outFileName) throws IOException {
-        Files.createDirectories(outFileName.getParent());
-    }
-
-    private static Optional<byte[]> contentFromRequest(DataNotificationRequest dataNotificationRequest) {
-        ObjectMapper objectMapper = new ObjectMapper()
-                .registerModule(new JavaTimeModule())
-                .configure(WRITE_DATES_AS_TIMESTAMPS, false);
-
-        try {
-            return Optional.ofNullable(objectMapper.writeValueAsBytes(dataNotificationRequest));
-        } catch (JsonProcessingException e) {
-            logger.error(e.getMessage());
-            return Optional.empty();
-        }
+    private Path createParentDirectoriesIfNotExists(Path outFileName) throws IOException {
+        return Files.createDirectories(outFileName.getParent());
     }
 }
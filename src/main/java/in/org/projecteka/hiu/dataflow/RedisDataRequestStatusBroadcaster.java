@@ -0,0 +1,45 @@
+package in.org.projecteka.hiu.dataflow;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveRedisOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Broadcasts over a Redis pub/sub channel, so a status change recorded on one node reaches the subscribers on all
+ * of them. A node holds a single subscription to the channel however many subscribers it has, and subscribes again
+ * when the connection is lost.
+ */
+public class RedisDataRequestStatusBroadcaster implements DataRequestStatusBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(RedisDataRequestStatusBroadcaster.class);
+    private final ReactiveRedisOperations<String, String> redisOperations;
+    private final String channel;
+    private final Flux<String> updates;
+
+    public RedisDataRequestStatusBroadcaster(ReactiveRedisOperations<String, String> redisOperations,
+                                             String channel) {
+        this.redisOperations = redisOperations;
+        this.channel = channel;
+        this.updates = redisOperations.listenToChannel(channel)
+                .map(ReactiveSubscription.Message::getMessage)
+                .doOnError(error -> logger.error("Lost subscription to {}", channel, error))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .onBackpressureBuffer()
+                .share();
+    }
+
+    @Override
+    public Mono<Void> publish(String dataRequestId) {
+        return redisOperations.convertAndSend(channel, dataRequestId).then();
+    }
+
+    @Override
+    public Flux<String> updates() {
+        return updates;
+    }
+}
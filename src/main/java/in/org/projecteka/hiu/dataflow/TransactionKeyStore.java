@@ -0,0 +1,30 @@
+package in.org.projecteka.hiu.dataflow;
+
+import in.org.projecteka.hiu.common.cache.CacheAdapter;
+import in.org.projecteka.hiu.dataflow.model.DataFlowRequestKeyMaterial;
+import lombok.AllArgsConstructor;
+import reactor.core.publisher.Mono;
+
+import static reactor.core.publisher.Mono.defer;
+
+/**
+ * Key material of a data flow, looked up by transaction id. Every data part of a transaction needs it, so it is
+ * served from the cache and only read from the database when the cache does not have it.
+ */
+@AllArgsConstructor
+public class TransactionKeyStore {
+    private final DataFlowRepository dataFlowRepository;
+    private final CacheAdapter<String, DataFlowRequestKeyMaterial> transactionKeyCache;
+
+    public Mono<Void> addKeys(String transactionId, DataFlowRequestKeyMaterial keyMaterial) {
+        return dataFlowRepository.addKeys(transactionId, keyMaterial)
+                .then(defer(() -> transactionKeyCache.put(transactionId, keyMaterial)));
+    }
+
+    public Mono<DataFlowRequestKeyMaterial> getKeys(String transactionId) {
+        return transactionKeyCache.get(transactionId)
+                .switchIfEmpty(defer(() -> dataFlowRepository.getKeys(transactionId)
+                        .flatMap(keyMaterial -> transactionKeyCache.put(transactionId, keyMaterial)
+                                .thenReturn(keyMaterial))));
+    }
+}
@@ -1,5 +1,6 @@
 package in.org.projecteka.hiu.dataflow.model;
 
+import com.fasterxml.jackson.annotation.JsonRawValue;
 import in.org.projecteka.hiu.dataprocessor.model.EntryStatus;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -14,6 +15,7 @@ public class DataEntry {
     private String hipId;
     private String hipName;
     private EntryStatus status;
+    @JsonRawValue
     private Object data;
     private String docId;
     private String docOriginId;
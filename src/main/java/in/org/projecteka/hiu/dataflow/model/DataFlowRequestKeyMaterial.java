@@ -13,8 +13,4 @@ public class DataFlowRequestKeyMaterial {
     private String privateKey;
     private String publicKey;
     private String randomKey;
-
-    public static DataFlowRequestKeyMaterial empty() {
-        return DataFlowRequestKeyMaterial.builder().build();
-    }
 }
@@ -0,0 +1,12 @@
+package in.org.projecteka.hiu.dataflow.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+@AllArgsConstructor
+@Value
+public class DataPartHeader {
+    DataNotificationRequest notification;
+    int numberOfEntries;
+    int numberOfInvalidEntries;
+}
@@ -13,6 +13,7 @@ public class HealthInformationFetchRequest {
     private List<String> requestIds;
     private Integer limit;
     private Integer offset;
+    private String continuationToken;
 
     public Integer getLimit(int defaultLimit){
         return limit == null ? defaultLimit : limit;
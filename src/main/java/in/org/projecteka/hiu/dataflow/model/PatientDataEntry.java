@@ -1,5 +1,6 @@
 package in.org.projecteka.hiu.dataflow.model;
 
+import com.fasterxml.jackson.annotation.JsonRawValue;
 import in.org.projecteka.hiu.dataprocessor.model.EntryStatus;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -15,6 +16,7 @@ public class PatientDataEntry {
     private String consentRequestId;
     private String consentArtefactId;
     private EntryStatus status;
+    @JsonRawValue
     private Object data;
     private String docId;
     private String docOriginId;
@@ -16,4 +16,5 @@ public class PatientHealthInformation {
     private int limit;
     private int offset;
     private List<PatientDataEntry> entries;
+    private String continuationToken;
 }
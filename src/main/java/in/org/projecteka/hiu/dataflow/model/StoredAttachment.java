@@ -0,0 +1,24 @@
+package in.org.projecteka.hiu.dataflow.model;
+
+import lombok.Builder;
+import lombok.Value;
+import org.springframework.http.MediaType;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+@Value
+@Builder
+public class StoredAttachment {
+    Path path;
+    MediaType contentType;
+    long size;
+    Instant lastModified;
+
+    /**
+     * Attachments are never rewritten in place, so size and modification time identify the content.
+     */
+    public String getETag() {
+        return String.format("\"%x-%x\"", size, lastModified.toEpochMilli());
+    }
+}
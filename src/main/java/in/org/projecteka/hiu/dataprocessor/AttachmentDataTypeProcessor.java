@@ -12,15 +12,15 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.util.Base64;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 public class AttachmentDataTypeProcessor {
 
@@ -34,12 +34,61 @@ public class AttachmentDataTypeProcessor {
             "IMAGE/PNG", ".png",
             "AUDIO/WAV", ".wav",
             "VIDEO/MPEG", ".mpeg");
+    private static final Map<String, String> FILE_EXTENSION_TO_MEDIA = MEDIA_TO_FILE_EXTENSION.entrySet().stream()
+            .collect(Collectors.toMap(Map.Entry::getValue, entry -> entry.getKey().toLowerCase()));
+    private static final String CONTENT_TYPE_FILE_SUFFIX = ".content-type";
     public static final String DEFAULT_FILE_EXTENSION = ".txt";
 
+    private final ContentAddressedStore attachmentStore;
+
     public static String getFileExtension(String mimeType) {
         return MEDIA_TO_FILE_EXTENSION.get(mimeType);
     }
 
+    /**
+     * Keeps the content type next to the file, in a file of the same directory. The stored copy is shared by every
+     * transaction linking to the same content, which may have arrived with a different content type, so the type
+     * is kept with the link rather than with the copy.
+     */
+    public static void storeContentType(Path file, String contentType) {
+        if (contentType == null) {
+            return;
+        }
+        try {
+            Files.writeString(contentTypeFileOf(file), contentType);
+        } catch (IOException e) {
+            logger.warn("Could not store content type of {}", file, e);
+        }
+    }
+
+    /**
+     * The content type stored with the file, or else the one its extension was chosen for.
+     */
+    public static Optional<String> storedContentType(Path file) {
+        try {
+            return Optional.of(Files.readString(contentTypeFileOf(file)).strip());
+        } catch (NoSuchFileException e) {
+            logger.debug("No content type stored with {}", file);
+        } catch (IOException e) {
+            logger.warn("Could not read content type of {}", file, e);
+        }
+        var fileName = file.getFileName().toString();
+        var extension = fileName.lastIndexOf('.') < 0 ? "" : fileName.substring(fileName.lastIndexOf('.'));
+        return Optional.ofNullable(FILE_EXTENSION_TO_MEDIA.get(extension.toLowerCase()));
+    }
+
+    public static boolean isContentTypeFile(Path file) {
+        return file.getFileName().toString().endsWith(CONTENT_TYPE_FILE_SUFFIX);
+    }
+
+    private static Path contentTypeFileOf(Path file) {
+        return file.resolveSibling(file.getFileName().toString() + CONTENT_TYPE_FILE_SUFFIX);
+    }
+
+    public AttachmentDataTypeProcessor(ContentAddressedStore attachmentStore) {
+        this.attachmentStore = attachmentStore;
+    }
+
     public Path process(Attachment attachment, Path localStorePath) {
         if (hasLink(attachment)) {
             return downloadAndSaveFile(attachment, localStorePath);
@@ -51,17 +100,14 @@ public class AttachmentDataTypeProcessor {
     private Path saveAttachmentAsFile(Attachment attachment, Path localStorePath) throws RuntimeException {
         if (attachment.getData() != null) {
             byte[] data = Base64.getDecoder().decode(attachment.getDataElement().getValueAsString());
-            Path attachmentFilePath = getFileAttachmentPath(attachment, localStorePath);
-            try (FileChannel channel = (FileChannel) Files.newByteChannel(attachmentFilePath,
-                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
-                ByteBuffer buffer = ByteBuffer.allocate(data.length);
-                buffer.put(data);
-                buffer.flip();
-                channel.write(buffer);
+            Path attachmentFilePath;
+            try {
+                attachmentFilePath = attachmentStore.store(data, getFileExtension(attachment), localStorePath);
             } catch (IOException ex) {
                 logger.error(ex.getMessage(), ex);
                 throw new RuntimeException(ex);
             }
+            storeContentType(attachmentFilePath, attachment.getContentType());
             attachment.setData(null);
             attachment.setUrl(referenceWebUrl(attachmentFilePath));
             return attachmentFilePath;
@@ -77,7 +123,8 @@ public class AttachmentDataTypeProcessor {
              CloseableHttpResponse response = client.execute(request)) {
             HttpEntity entity = response.getEntity();
             InputStream inputStream = entity.getContent();
-            Files.copy(inputStream, attachmentFilePath);
+            attachmentFilePath = attachmentStore.store(inputStream, getFileExtension(attachment), localStorePath);
+            storeContentType(attachmentFilePath, attachment.getContentType());
         } catch (IOException e) {
             logger.error(e.getMessage(), e);
         }
@@ -0,0 +1,171 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+/**
+ * Keeps a single copy of each attachment, named by the SHA-256 of its content, however many transactions receive
+ * it. A transaction directory gets a hard link to the copy, so the link count of the copy is its reference count:
+ * the copy is removed when the last transaction linking to it is deleted. Where a link cannot be made, for example
+ * across file systems, the content is copied into the transaction directory instead. A copy released by another
+ * transaction while it is being linked is stored again from the content at hand.
+ */
+public class ContentAddressedStore {
+    private static final Logger logger = LoggerFactory.getLogger(ContentAddressedStore.class);
+    private static final Pattern STORED_FILE_NAME = Pattern.compile("^([0-9a-f]{64})(\\.[A-Za-z0-9]+)?$");
+    private static final String TEMPORARY_DIRECTORY = ".incoming";
+    private static final int PUBLISH_ATTEMPTS = 3;
+
+    private final Path root;
+
+    public ContentAddressedStore(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * @return the file in the directory holding the content, named by the content hash and the extension
+     */
+    public Path store(byte[] content, String extension, Path directory) throws IOException {
+        var blob = blobOf(hex(sha256().digest(content)) + extension);
+        return publishAndLink(blob, directory, temporary -> Files.write(temporary, content));
+    }
+
+    /**
+     * Streams the content to a temporary file while hashing it. The stored copy is published from that file when
+     * the content is new, and the file is deleted once the content is linked into the directory or has failed to.
+     */
+    public Path store(InputStream content, String extension, Path directory) throws IOException {
+        var digest = sha256();
+        var received = temporaryFile();
+        try {
+            try (var hashing = new DigestInputStream(content, digest)) {
+                Files.copy(hashing, received);
+            }
+            var blob = blobOf(hex(digest.digest()) + extension);
+            return publishAndLink(blob, directory, temporary -> linkOrCopy(received, temporary));
+        } finally {
+            Files.deleteIfExists(received);
+        }
+    }
+
+    /**
+     * Deletes a file of a transaction directory, and the stored copy with it when no other transaction links to it.
+     */
+    public void release(Path file) throws IOException {
+        var matcher = STORED_FILE_NAME.matcher(file.getFileName().toString());
+        Files.deleteIfExists(file);
+        if (!matcher.matches()) {
+            return;
+        }
+        var blob = blobOf(file.getFileName().toString());
+        try {
+            if ((Integer) Files.getAttribute(blob, "unix:nlink") == 1) {
+                Files.deleteIfExists(blob);
+            }
+        } catch (NoSuchFileException e) {
+            // the content was copied rather than linked, or already released
+        } catch (UnsupportedOperationException e) {
+            logger.warn("Cannot count the references to {}, leaving it in place", blob);
+        }
+    }
+
+    private Path publishAndLink(Path blob, Path directory, ContentWriter content) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            if (!Files.exists(blob)) {
+                publish(content, blob);
+            }
+            try {
+                return link(blob, directory);
+            } catch (NoSuchFileException e) {
+                if (attempt == PUBLISH_ATTEMPTS) {
+                    throw e;
+                }
+                logger.info("{} was released while being linked into {}, storing it again", blob, directory);
+            }
+        }
+    }
+
+    private Path link(Path blob, Path directory) throws IOException {
+        var target = directory.resolve(blob.getFileName());
+        if (Files.exists(target)) {
+            return target;
+        }
+        try {
+            Files.createLink(target, blob);
+        } catch (FileAlreadyExistsException e) {
+            // the same content arrived twice for this transaction
+        } catch (NoSuchFileException e) {
+            // the copy was released in the meantime, copying would fail the same way
+            throw e;
+        } catch (FileSystemException | UnsupportedOperationException e) {
+            logger.warn("Could not link {} into {}, copying it", blob, directory, e);
+            Files.copy(blob, target);
+        }
+        return target;
+    }
+
+    private static void linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (FileSystemException | UnsupportedOperationException e) {
+            Files.copy(source, target);
+        }
+    }
+
+    private void publish(ContentWriter content, Path blob) throws IOException {
+        var temporary = temporaryFile();
+        try {
+            content.writeTo(temporary);
+            Files.createDirectories(blob.getParent());
+            // the same content may be published concurrently, either copy is as good as the other
+            Files.move(temporary, blob, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private Path blobOf(String fileName) {
+        return root.resolve(fileName.substring(0, 2)).resolve(fileName);
+    }
+
+    private Path temporaryFile() throws IOException {
+        var directory = Files.createDirectories(root.resolve(TEMPORARY_DIRECTORY));
+        return directory.resolve(UUID.randomUUID().toString());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        var hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    @FunctionalInterface
+    private interface ContentWriter {
+        void writeTo(Path file) throws IOException;
+    }
+}
@@ -3,19 +3,11 @@ package in.org.projecteka.hiu.dataprocessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import in.org.projecteka.hiu.DestinationsConfig;
-import in.org.projecteka.hiu.HiuProperties;
-import in.org.projecteka.hiu.LocalDicomServerProperties;
 import in.org.projecteka.hiu.MessageListenerContainerFactory;
-import in.org.projecteka.hiu.clients.HealthInformationClient;
 import in.org.projecteka.hiu.common.Constants;
-import in.org.projecteka.hiu.common.Gateway;
 import in.org.projecteka.hiu.common.RabbitQueueNames;
 import in.org.projecteka.hiu.common.TraceableMessage;
-import in.org.projecteka.hiu.consent.ConsentRepository;
-import in.org.projecteka.hiu.dataflow.DataFlowRepository;
-import in.org.projecteka.hiu.dataflow.Decryptor;
 import in.org.projecteka.hiu.dataprocessor.model.DataAvailableMessage;
-import in.org.projecteka.hiu.dicomweb.OrthancDicomWebServer;
 import lombok.AllArgsConstructor;
 import lombok.SneakyThrows;
 import org.slf4j.Logger;
@@ -26,8 +18,6 @@ import org.springframework.amqp.core.MessageListener;
 import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
 
 import javax.annotation.PostConstruct;
-import java.util.Arrays;
-import java.util.List;
 
 import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
 import static in.org.projecteka.hiu.ClientError.queueNotFound;
@@ -37,14 +27,8 @@ import static in.org.projecteka.hiu.common.Serializer.to;
 public class DataAvailabilityListener {
     private final MessageListenerContainerFactory messageListenerContainerFactory;
     private final DestinationsConfig destinationsConfig;
-    private final HealthDataRepository healthDataRepository;
-    private final DataFlowRepository dataFlowRepository;
-    private final LocalDicomServerProperties dicomServerProperties;
-    private final HealthInformationClient healthInformationClient;
-    private final Gateway gateway;
-    private final HiuProperties hiuProperties;
-    private final ConsentRepository consentRepository;
     private final RabbitQueueNames queueNames;
+    private final HealthDataProcessor healthDataProcessor;
 
     private static final Logger logger = LoggerFactory.getLogger(DataAvailabilityListener.class);
 
@@ -70,15 +54,6 @@ public class DataAvailabilityListener {
                     dataAvailableMessage.getTransactionId()));
             logger.info(String.format("Processing data from file : %s", dataAvailableMessage.getPathToFile()));
             try {
-                HealthDataProcessor healthDataProcessor = new HealthDataProcessor(
-                        healthDataRepository,
-                        dataFlowRepository,
-                        new Decryptor(),
-                        allResourceProcessors(),
-                        healthInformationClient,
-                        gateway,
-                        hiuProperties,
-                        consentRepository);
                 healthDataProcessor.process(dataAvailableMessage);
                 MDC.clear();
             } catch (Exception exception) {
@@ -90,19 +65,6 @@ public class DataAvailabilityListener {
         mlc.start();
     }
 
-    private List<HITypeResourceProcessor> allResourceProcessors() {
-        return Arrays.asList(
-                new CompositionResourceProcessor(),
-                new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(dicomServerProperties)),
-                new DocumentReferenceResourceProcessor(),
-                new MedicationRequestResourceProcessor(),
-                new ConditionResourceProcessor(),
-                new ObservationResourceProcessor(),
-                new BinaryResourceProcessor(),
-                new ImmunizationResourceProcessor(),
-                new ImmunizationRecommendationProcessor());
-    }
-
     @SneakyThrows
     private DataAvailableMessage deserializeMessage(Object message) {
         ObjectMapper mapper = new ObjectMapper()
@@ -0,0 +1,31 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "hiu.dataprocessor")
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+@AllArgsConstructor
+public class DataProcessorProperties {
+    private static final int DEFAULT_ENTRY_CONCURRENCY = 8;
+
+    private boolean reactiveProcessingEnabled;
+    private int entryConcurrency;
+    private int insertBatchSize;
+
+    public int getEntryConcurrency() {
+        return entryConcurrency > 0 ? entryConcurrency : DEFAULT_ENTRY_CONCURRENCY;
+    }
+
+    public boolean isBatchingInserts() {
+        return insertBatchSize > 1;
+    }
+}
@@ -26,9 +26,12 @@ public class DiagnosticReportResourceProcessor implements HITypeResourceProcesso
     public static final String RADIOLOGY_CATEGORY_CODE = "RAD";
 
     private final OrthancDicomWebServer localDicomWebServer;
+    private final AttachmentDataTypeProcessor attachmentProcessor;
 
-    public DiagnosticReportResourceProcessor(OrthancDicomWebServer localDicomWebServer) {
+    public DiagnosticReportResourceProcessor(OrthancDicomWebServer localDicomWebServer,
+                                             ContentAddressedStore attachmentStore) {
         this.localDicomWebServer = localDicomWebServer;
+        this.attachmentProcessor = new AttachmentDataTypeProcessor(attachmentStore);
     }
 
     @Override
@@ -132,7 +135,7 @@ public class DiagnosticReportResourceProcessor implements HITypeResourceProcesso
     }
 
     private void processDiagnosticReportMedia(Media media, Path localStoragePath) {
-        Path savedAttachmentPath = new AttachmentDataTypeProcessor().process(media.getContent(), localStoragePath);
+        Path savedAttachmentPath = attachmentProcessor.process(media.getContent(), localStoragePath);
         if (isRadiologyFile(media.getContent())) {
             uploadToLocalDicomServer(media.getContent(), savedAttachmentPath);
         }
@@ -142,7 +145,7 @@ public class DiagnosticReportResourceProcessor implements HITypeResourceProcesso
         if (diagnosticReport.hasPresentedForm()) {
             List<Attachment> presentedForm = diagnosticReport.getPresentedForm();
             for (Attachment attachment : presentedForm) {
-                new AttachmentDataTypeProcessor().process(attachment, localStorePath);
+                attachmentProcessor.process(attachment, localStorePath);
             }
         }
     }
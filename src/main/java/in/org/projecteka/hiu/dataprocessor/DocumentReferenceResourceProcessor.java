@@ -14,6 +14,12 @@ import java.util.List;
 public class DocumentReferenceResourceProcessor implements HITypeResourceProcessor {
 
     private static final Logger logger = LoggerFactory.getLogger(DocumentReferenceResourceProcessor.class);
+    private final AttachmentDataTypeProcessor attachmentProcessor;
+
+    public DocumentReferenceResourceProcessor(ContentAddressedStore attachmentStore) {
+        this.attachmentProcessor = new AttachmentDataTypeProcessor(attachmentStore);
+    }
+
     @Override
     public boolean supports(ResourceType type) {
         return type.equals(ResourceType.DocumentReference);
@@ -29,7 +35,7 @@ public class DocumentReferenceResourceProcessor implements HITypeResourceProcess
         List<DocumentReference.DocumentReferenceContentComponent> contents = docRef.getContent();
         for (DocumentReference.DocumentReferenceContentComponent content : contents) {
             if (content.hasAttachment()) {
-                new AttachmentDataTypeProcessor().process(content.getAttachment(), dataContext.getLocalStoragePath());
+                attachmentProcessor.process(content.getAttachment(), dataContext.getLocalStoragePath());
             }
         }
         bundleContext.doneProcessing(docRef);
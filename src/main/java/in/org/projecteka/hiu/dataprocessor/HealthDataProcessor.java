@@ -2,21 +2,25 @@ package in.org.projecteka.hiu.dataprocessor;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.parser.IParser;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import in.org.projecteka.hiu.HiuProperties;
 import in.org.projecteka.hiu.clients.HealthInformationClient;
 import in.org.projecteka.hiu.common.Gateway;
 import in.org.projecteka.hiu.consent.ConsentRepository;
 import in.org.projecteka.hiu.dataflow.DataFlowRepository;
+import in.org.projecteka.hiu.dataflow.DataPartReader;
+import in.org.projecteka.hiu.dataflow.DataRequestStatusNotifier;
+import in.org.projecteka.hiu.dataflow.DecryptionSession;
+import in.org.projecteka.hiu.dataflow.TransactionKeyStore;
 import in.org.projecteka.hiu.dataflow.Decryptor;
 import in.org.projecteka.hiu.dataflow.model.DataFlowRequestKeyMaterial;
-import in.org.projecteka.hiu.dataflow.model.DataNotificationRequest;
+import in.org.projecteka.hiu.dataflow.model.DataPartHeader;
 import in.org.projecteka.hiu.dataflow.model.Entry;
 import in.org.projecteka.hiu.dataflow.model.HealthInfoStatus;
 import in.org.projecteka.hiu.dataprocessor.model.BundleContext;
 import in.org.projecteka.hiu.dataprocessor.model.DataAvailableMessage;
 import in.org.projecteka.hiu.dataprocessor.model.DataContext;
+import in.org.projecteka.hiu.dataprocessor.model.EntryStatus;
+import in.org.projecteka.hiu.dataprocessor.model.HealthDataRecord;
 import in.org.projecteka.hiu.dataprocessor.model.HealthInfoNotificationRequest;
 import in.org.projecteka.hiu.dataprocessor.model.HiStatus;
 import in.org.projecteka.hiu.dataprocessor.model.Notification;
@@ -34,10 +38,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.data.util.Pair;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.io.InputStream;
-import java.nio.file.Files;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
@@ -45,18 +52,20 @@ import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import static com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES;
-import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
 import static in.org.projecteka.hiu.common.Constants.CORRELATION_ID;
 import static in.org.projecteka.hiu.dataflow.model.HealthInfoStatus.ERRORED;
 import static in.org.projecteka.hiu.dataflow.model.HealthInfoStatus.PARTIAL;
 import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+import static reactor.core.publisher.Mono.defer;
 
 public class HealthDataProcessor {
     public static final String MEDIA_APPLICATION_FHIR_JSON = "application/fhir+json";
@@ -65,33 +74,53 @@ public class HealthDataProcessor {
     private static final String COULD_NOT_RECEIVE_DATA = "Couldn't receive data";
     private final HealthDataRepository healthDataRepository;
     private final DataFlowRepository dataFlowRepository;
+    private final TransactionKeyStore transactionKeyStore;
     private final Decryptor decryptor;
     private final HealthInformationClient healthInformationClient;
     private final Gateway gateway;
     private final HiuProperties hiuProperties;
     private final ConsentRepository consentRepository;
-    private final FhirContext fhirContext = FhirContext.forR4();
-    private final List<HITypeResourceProcessor> resourceProcessors = new ArrayList<>();
+    private final DataProcessorProperties processorProperties;
+    private final FhirContext fhirContext;
+    private final DataRequestStatusNotifier statusNotifier;
+    private final DataPartReader dataPartReader = new DataPartReader();
+    private final Map<ResourceType, HITypeResourceProcessor> resourceProcessors;
 
+    /**
+     * The processor holds no per data part state, so a single instance is shared by all listener consumers.
+     * The given FhirContext is expected to be shared as well, it is expensive to create and thread-safe once built.
+     */
     public HealthDataProcessor(HealthDataRepository healthDataRepository,
                                DataFlowRepository dataFlowRepository,
+                               TransactionKeyStore transactionKeyStore,
                                Decryptor decryptor,
                                List<HITypeResourceProcessor> hiTypeResourceProcessors,
                                HealthInformationClient healthInformationClient,
                                Gateway gateway,
                                HiuProperties hiuProperties,
-                               ConsentRepository consentRepository) {
+                               ConsentRepository consentRepository,
+                               DataProcessorProperties processorProperties,
+                               FhirContext fhirContext,
+                               DataRequestStatusNotifier statusNotifier) {
         this.healthDataRepository = healthDataRepository;
         this.dataFlowRepository = dataFlowRepository;
+        this.transactionKeyStore = transactionKeyStore;
         this.decryptor = decryptor;
         this.healthInformationClient = healthInformationClient;
-        this.resourceProcessors.addAll(hiTypeResourceProcessors);
+        this.resourceProcessors = resourceProcessorsByType(hiTypeResourceProcessors);
         this.gateway = gateway;
         this.hiuProperties = hiuProperties;
         this.consentRepository = consentRepository;
+        this.processorProperties = processorProperties;
+        this.fhirContext = fhirContext;
+        this.statusNotifier = statusNotifier;
     }
 
     public void process(DataAvailableMessage message) {
+        if (processorProperties.isReactiveProcessingEnabled()) {
+            blockPublisher(processReactively(message));
+            return;
+        }
         DataContext context = createDataContext(message);
         if (context != null && context.getNotifiedData() != null) {
             processEntries(context);
@@ -108,18 +137,20 @@ public class HealthDataProcessor {
                     context.getTransactionId(), context.getNumberOfEntries()));
             updateDataProcessStatus(context, "", HealthInfoStatus.PROCESSING, null);
             String transactionId = context.getTransactionId();
-            DataFlowRequestKeyMaterial keyMaterial = blockPublisher(dataFlowRepository.getKeys(transactionId));
+            DataFlowRequestKeyMaterial keyMaterial = blockPublisher(transactionKeyStore.getKeys(transactionId));
+            var decryptionSession = decryptionSession(context, keyMaterial);
             List<String> dataErrors = new ArrayList<>();
             List<StatusResponse> statusResponses = new ArrayList<>();
-            context.getNotifiedData().getEntries().forEach(entry -> {
+            List<HealthDataRecord> pendingRecords = new ArrayList<>();
+            dataPartReader.forEachEntry(context.getDataFilePath(), entry -> {
                 var entryToProcess = entry;
                 String dataPartNumber = context.getDataPartNumber();
                 if (!hasContent(entry)) {
                     var healthInformation = blockPublisher(healthInformationClient.informationFrom(entry.getLink()));
                     if (healthInformation == null) {
                         dataErrors.add("Health Information not found");
-                        blockPublisher(healthDataRepository
-                                .insertErrorFor(transactionId, dataPartNumber, entryToProcess.getCareContextReference()));
+                        save(pendingRecords,
+                                HealthDataRecord.errored(transactionId, dataPartNumber, entry.getCareContextReference()));
                         statusResponses.add(getStatusResponse(entry, HiStatus.ERRORED, COULD_NOT_RECEIVE_DATA));
                         return;
                     }
@@ -130,27 +161,20 @@ public class HealthDataProcessor {
                             .careContextReference(entry.getCareContextReference())
                             .build();
                 }
-                var result = processEntryContent(context, entryToProcess, keyMaterial);
+                var result = processEntryContent(context, entryToProcess, decryptionSession);
                 if (result.hasErrors()) {
                     dataErrors.addAll(result.getErrors());
-                    blockPublisher(healthDataRepository
-                            .insertErrorFor(transactionId, dataPartNumber, entryToProcess.getCareContextReference()));
+                    save(pendingRecords, HealthDataRecord.errored(transactionId,
+                            dataPartNumber,
+                            entryToProcess.getCareContextReference()));
                     statusResponses.add(getStatusResponse(entry, HiStatus.ERRORED, COULD_NOT_RECEIVE_DATA));
                     return;
                 }
                 context.addTrackedResources(result.getTrackedResources());
-                Optional<Pair<String, String>> originIdAndName = identifyOrigin(result.getOrigins());
-                String originId = originIdAndName.isPresent() ? originIdAndName.get().getFirst() : context.getHipId();
-                blockPublisher(healthDataRepository.insertDataFor(transactionId,
-                        dataPartNumber,
-                        result.getResource(),
-                        result.latestResourceDate(),
-                        entryToProcess.getCareContextReference(),
-                        result.getUniqueResourceId(),
-                        result.getDocumentType(),
-                        originId));
+                save(pendingRecords, dataRecordFor(context, entryToProcess, result));
                 statusResponses.add(getStatusResponse(entry, HiStatus.OK, "Data received successfully"));
             });
+            flush(pendingRecords);
 
             var status = dataErrors.size() == context.getNumberOfEntries() ? HealthInfoStatus.ERRORED : PARTIAL;
 
@@ -169,7 +193,253 @@ public class HealthDataProcessor {
             logger.error("Error occurred while processing data from HIP. Transaction id: {}.", context.getTransactionId());
             logger.error(ex.getMessage(), ex);
             updateDataProcessStatus(context, ex.getMessage(), ERRORED, context.latestResourceDate());
+            if (isMultiPart(context)) {
+                blockPublisher(notifyOnTransferCompletion(context));
+            }
+        }
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #processEntries(DataContext)}. Entries of a data part are processed with
+     * bounded concurrency (hiu.dataprocessor.entryConcurrency), while data part status and the notification to
+     * the consent manager follow the same rules as the blocking path.
+     */
+    public Mono<Void> processReactively(DataAvailableMessage message) {
+        Path dataFilePath = Paths.get(message.getPathToFile());
+        return Mono.fromCallable(() -> dataPartReader.readHeader(dataFilePath))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(header -> dataFlowRepository.getConsentId(header.getNotification().getTransactionId())
+                        .flatMap(consentId -> consentRepository.getHipId(consentId)
+                                .map(hipId -> DataContext.builder()
+                                        .notifiedData(header.getNotification())
+                                        .numberOfEntries(header.getNumberOfEntries())
+                                        .dataFilePath(dataFilePath)
+                                        .dataPartNumber(message.getPartNumber())
+                                        .trackedResources(Collections.synchronizedList(new ArrayList<>()))
+                                        .hipId(hipId)
+                                        .consentId(consentId)
+                                        .build())))
+                .flatMap(this::processEntriesReactively);
+    }
+
+    private Mono<Void> processEntriesReactively(DataContext context) {
+        logger.info(String.format(
+                "Received data from HIP for transaction: %s. Number of entries: %d. Trying to process data.",
+                context.getTransactionId(), context.getNumberOfEntries()));
+        String correlationId = MDC.get(CORRELATION_ID);
+        return updateStatus(context, "", HealthInfoStatus.PROCESSING, null)
+                .then(defer(() -> transactionKeyStore.getKeys(context.getTransactionId())))
+                .flatMap(keyMaterial -> Mono.fromCallable(() -> decryptionSession(context, keyMaterial)))
+                .flatMapMany(decryptionSession -> dataPartReader.entries(context.getDataFilePath())
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .flatMapSequential(entry -> processEntry(context, entry, decryptionSession, correlationId)
+                                        .flatMap(this::saveUnlessBatching),
+                                processorProperties.getEntryConcurrency()))
+                .buffer(processorProperties.isBatchingInserts() ? processorProperties.getInsertBatchSize() : 1)
+                .concatMap(this::saveIfBatching)
+                .collectList()
+                .flatMap(outcomes -> completeDataPart(context, outcomes))
+                .onErrorResume(ex -> {
+                    logger.error("Error occurred while processing data from HIP. Transaction id: {}.",
+                            context.getTransactionId());
+                    logger.error(ex.getMessage(), ex);
+                    return updateStatus(context, ex.getMessage(), ERRORED, context.latestResourceDate())
+                            .then(defer(() -> isMultiPart(context)
+                                              ? notifyOnTransferCompletion(context)
+                                              : Mono.<Void>empty()));
+                });
+    }
+
+    private Mono<EntryOutcome> processEntry(DataContext context,
+                                            Entry entry,
+                                            DecryptionSession decryptionSession,
+                                            String correlationId) {
+        String transactionId = context.getTransactionId();
+        String dataPartNumber = context.getDataPartNumber();
+        return contentOf(entry)
+                .flatMap(entryToProcess -> Mono.fromCallable(() -> {
+                    MDC.put(CORRELATION_ID, correlationId);
+                    try {
+                        return processEntryContent(context, entryToProcess, decryptionSession);
+                    } finally {
+                        MDC.remove(CORRELATION_ID);
+                    }
+                })
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .flatMap(result -> {
+                            if (result.hasErrors()) {
+                                return Mono.just(EntryOutcome.failed(result.getErrors(),
+                                        entry,
+                                        HealthDataRecord.errored(transactionId,
+                                                dataPartNumber,
+                                                entryToProcess.getCareContextReference())));
+                            }
+                            context.addTrackedResources(result.getTrackedResources());
+                            return Mono.just(EntryOutcome.succeeded(entry,
+                                    dataRecordFor(context, entryToProcess, result)));
+                        }))
+                .switchIfEmpty(defer(() -> Mono.just(EntryOutcome.failed(List.of("Health Information not found"),
+                        entry,
+                        HealthDataRecord.errored(transactionId, dataPartNumber, entry.getCareContextReference())))));
+    }
+
+    private Mono<EntryOutcome> saveUnlessBatching(EntryOutcome outcome) {
+        return processorProperties.isBatchingInserts()
+               ? Mono.just(outcome)
+               : insert(outcome.getRecord()).thenReturn(outcome);
+    }
+
+    private Flux<EntryOutcome> saveIfBatching(List<EntryOutcome> outcomes) {
+        if (!processorProperties.isBatchingInserts()) {
+            return Flux.fromIterable(outcomes);
         }
+        return healthDataRepository.insertBatch(outcomes.stream().map(EntryOutcome::getRecord).collect(toList()))
+                .thenMany(Flux.fromIterable(outcomes));
+    }
+
+    private void save(List<HealthDataRecord> pendingRecords, HealthDataRecord record) {
+        if (!processorProperties.isBatchingInserts()) {
+            blockPublisher(insert(record));
+            return;
+        }
+        pendingRecords.add(record);
+        if (pendingRecords.size() >= processorProperties.getInsertBatchSize()) {
+            flush(pendingRecords);
+        }
+    }
+
+    private void flush(List<HealthDataRecord> pendingRecords) {
+        if (pendingRecords.isEmpty()) {
+            return;
+        }
+        blockPublisher(healthDataRepository.insertBatch(new ArrayList<>(pendingRecords)));
+        pendingRecords.clear();
+    }
+
+    private Mono<Void> insert(HealthDataRecord record) {
+        if (record.getStatus() == EntryStatus.ERRORED) {
+            return healthDataRepository.insertErrorFor(record.getTransactionId(),
+                    record.getDataPartNumber(),
+                    record.getCareContextReference());
+        }
+        return healthDataRepository.insertDataFor(record.getTransactionId(),
+                record.getDataPartNumber(),
+                record.getData(),
+                record.getLatestResourceDate(),
+                record.getCareContextReference(),
+                record.getDocId(),
+                record.getDocType(),
+                record.getDocOrigin());
+    }
+
+    private HealthDataRecord dataRecordFor(DataContext context, Entry entry, ProcessedEntry result) {
+        Optional<Pair<String, String>> originIdAndName = identifyOrigin(result.getOrigins());
+        String originId = originIdAndName.isPresent() ? originIdAndName.get().getFirst() : context.getHipId();
+        return HealthDataRecord.builder()
+                .transactionId(context.getTransactionId())
+                .dataPartNumber(context.getDataPartNumber())
+                .data(result.getResource())
+                .status(EntryStatus.SUCCEEDED)
+                .latestResourceDate(result.latestResourceDate())
+                .careContextReference(entry.getCareContextReference())
+                .docOrigin(originId)
+                .docId(result.getUniqueResourceId())
+                .docType(result.getDocumentType())
+                .build();
+    }
+
+    private Mono<Entry> contentOf(Entry entry) {
+        if (hasContent(entry)) {
+            return Mono.just(entry);
+        }
+        return healthInformationClient.informationFrom(entry.getLink())
+                .map(healthInformation -> Entry.builder()
+                        .content(healthInformation.getContent())
+                        .checksum(entry.getChecksum())
+                        .media(entry.getMedia())
+                        .careContextReference(entry.getCareContextReference())
+                        .build());
+    }
+
+    private Mono<Void> completeDataPart(DataContext context, List<EntryOutcome> outcomes) {
+        List<String> dataErrors = outcomes.stream()
+                .flatMap(outcome -> outcome.getErrors().stream())
+                .collect(toList());
+        List<StatusResponse> statusResponses = outcomes.stream()
+                .map(EntryOutcome::getStatusResponse)
+                .collect(toList());
+        if (dataErrors.isEmpty()) {
+            return updateStatus(context, "", HealthInfoStatus.SUCCEEDED, context.latestResourceDate())
+                    .then(defer(() -> notifyPartStatus(context, statusResponses, SessionStatus.TRANSFERRED)));
+        }
+        var status = dataErrors.size() == context.getNumberOfEntries() ? HealthInfoStatus.ERRORED : PARTIAL;
+        var errors = dataErrors.stream().map("[ERROR]"::concat).collect(joining());
+        var allErrors = "[ERROR]".concat(errors);
+        logger.error("Error occurred while processing data from HIP. Transaction id: {}. Errors: {}",
+                context.getTransactionId(), allErrors);
+        return updateStatus(context, allErrors, status, context.latestResourceDate())
+                .then(defer(() -> notifyPartStatus(context, statusResponses, SessionStatus.FAILED)));
+    }
+
+    private Mono<Void> notifyPartStatus(DataContext context,
+                                        List<StatusResponse> statusResponses,
+                                        SessionStatus sessionStatus) {
+        return isMultiPart(context)
+               ? notifyOnTransferCompletion(context)
+               : notifyStatus(context, statusResponses, sessionStatus);
+    }
+
+    /**
+     * When a transfer is spread over several pages, the consent manager is notified once, by the part which finishes
+     * last whether it succeeded or errored, with the status of every entry received for the transaction.
+     */
+    private Mono<Void> notifyOnTransferCompletion(DataContext context) {
+        String transactionId = context.getTransactionId();
+        return dataFlowRepository.claimTransferCompletion(transactionId)
+                .flatMap(anyPartErrored -> healthDataRepository.getEntryStatuses(transactionId)
+                        .map(record -> record.getStatus() == EntryStatus.ERRORED
+                                       ? getStatusResponse(record.getCareContextReference(),
+                                                HiStatus.ERRORED,
+                                                COULD_NOT_RECEIVE_DATA)
+                                       : getStatusResponse(record.getCareContextReference(),
+                                                HiStatus.OK,
+                                                "Data received successfully"))
+                        .collectList()
+                        .flatMap(statusResponses -> {
+                            var sessionStatus = anyPartErrored || statusResponses.stream()
+                                    .anyMatch(statusResponse -> statusResponse.getHiStatus() == HiStatus.ERRORED)
+                                                ? SessionStatus.FAILED
+                                                : SessionStatus.TRANSFERRED;
+                            logger.info("All data parts processed for transaction: {}. Notifying consent manager",
+                                    transactionId);
+                            return notifyStatus(context, statusResponses, sessionStatus);
+                        }));
+    }
+
+    private boolean isMultiPart(DataContext context) {
+        return context.getNotifiedData().getPageCount() > 1;
+    }
+
+    private Mono<Void> notifyStatus(DataContext context,
+                                    List<StatusResponse> statusResponses,
+                                    SessionStatus sessionStatus) {
+        var healthInfoNotificationRequest = getHealthInfoNotificationRequest(context, statusResponses, sessionStatus);
+        return gateway.token()
+                .flatMap(token -> consentRepository.getConsentMangerId(context.getConsentId())
+                        .flatMap(consentManagerId -> healthInformationClient
+                                .notifyHealthInfo(healthInfoNotificationRequest, token, consentManagerId)));
+    }
+
+    private Mono<Void> updateStatus(DataContext context,
+                                    String allErrors,
+                                    HealthInfoStatus status,
+                                    LocalDateTime latestResourceDate) {
+        return dataFlowRepository.updateDataFlowWithStatus(context.getTransactionId(),
+                context.getDataPartNumber(),
+                allErrors,
+                status,
+                latestResourceDate)
+                .then(defer(() -> statusNotifier.statusChanged(context.getTransactionId())));
     }
 
     private <T> T blockPublisher(Mono<T> publisher) {
@@ -183,8 +453,12 @@ public class HealthDataProcessor {
     }
 
     private StatusResponse getStatusResponse(Entry entry, HiStatus hiStatus, String msg) {
+        return getStatusResponse(entry.getCareContextReference(), hiStatus, msg);
+    }
+
+    private StatusResponse getStatusResponse(String careContextReference, HiStatus hiStatus, String msg) {
         return StatusResponse.builder()
-                .careContextReference(entry.getCareContextReference())
+                .careContextReference(careContextReference)
                 .hiStatus(hiStatus)
                 .description(msg)
                 .build();
@@ -193,6 +467,10 @@ public class HealthDataProcessor {
     private void notifyHealthInfoStatus(DataContext context,
                                         List<StatusResponse> statusResponses,
                                         SessionStatus sessionStatus) {
+        if (isMultiPart(context)) {
+            blockPublisher(notifyOnTransferCompletion(context));
+            return;
+        }
         HealthInfoNotificationRequest healthInfoNotificationRequest =
                 getHealthInfoNotificationRequest(context, statusResponses, sessionStatus);
         String token = blockPublisher(gateway.token());
@@ -228,27 +506,19 @@ public class HealthDataProcessor {
     }
 
     private void updateDataProcessStatus(DataContext context, String allErrors, HealthInfoStatus status, LocalDateTime latestResourceDate) {
-        blockPublisher(dataFlowRepository.updateDataFlowWithStatus(context.getTransactionId(),
-                context.getDataPartNumber(),
-                allErrors,
-                status,
-                latestResourceDate));
+        blockPublisher(updateStatus(context, allErrors, status, latestResourceDate));
     }
 
     private DataContext createDataContext(DataAvailableMessage message) {
         Path dataFilePath = Paths.get(message.getPathToFile());
-        try (InputStream inputStream = Files.newInputStream(dataFilePath)) {
-            var objectMapper = new ObjectMapper()
-                    .registerModule(new JavaTimeModule())
-                    .configure(WRITE_DATES_AS_TIMESTAMPS, false)
-                    .configure(FAIL_ON_UNKNOWN_PROPERTIES, false);
-
-            DataNotificationRequest dataNotificationRequest = objectMapper.readValue(inputStream,
-                    DataNotificationRequest.class);
-            String consentId = blockPublisher(dataFlowRepository.getConsentId(dataNotificationRequest.getTransactionId()));
+        try {
+            DataPartHeader header = dataPartReader.readHeader(dataFilePath);
+            String transactionId = header.getNotification().getTransactionId();
+            String consentId = blockPublisher(dataFlowRepository.getConsentId(transactionId));
             String hipId = blockPublisher(consentRepository.getHipId(consentId));
             return DataContext.builder()
-                    .notifiedData(dataNotificationRequest)
+                    .notifiedData(header.getNotification())
+                    .numberOfEntries(header.getNumberOfEntries())
                     .dataFilePath(dataFilePath)
                     .dataPartNumber(message.getPartNumber())
                     .trackedResources(new ArrayList<>())
@@ -263,21 +533,22 @@ public class HealthDataProcessor {
 
     private ProcessedEntry processEntryContent(DataContext context,
                                                Entry entry,
-                                               DataFlowRequestKeyMaterial keyMaterial) {
+                                               DecryptionSession decryptionSession) {
         logger.info("Process entry for care-context: {}", entry.getCareContextReference());
         var mayBeParser = getEntryParser(entry.getMedia());
 
         return mayBeParser.map(parser -> {
             ProcessedEntry result = new ProcessedEntry();
-            String decryptedContent;
+            byte[] decryptedContent;
             try {
-                decryptedContent = decryptor.decrypt(context.getKeyMaterial(), keyMaterial, entry.getContent());
+                decryptedContent = decryptionSession.decrypt(entry.getContent());
             } catch (Exception e) {
                 logger.error("Error while decrypting {exception}", e);
                 result.addError("Could not read encrypted content from file");
                 return result;
             }
-            Bundle bundle = parser.parseResource(Bundle.class, decryptedContent);
+            Bundle bundle = parser.parseResource(Bundle.class,
+                    new InputStreamReader(new ByteArrayInputStream(decryptedContent), StandardCharsets.UTF_8));
             if (!isValidBundleType(bundle)) {
                 result.addError("Can not process entry content, invalid envelope." +
                         "Entry content is either not a FHIR Bundle type COLLECTION or DOCUMENT. " +
@@ -315,8 +586,32 @@ public class HealthDataProcessor {
         });
     }
 
+    /**
+     * Key derivation happens once per data part. If it fails, no entry of the part can be decrypted, so the part
+     * fails as a whole, as it does when the keys of the transaction cannot be found.
+     */
+    private DecryptionSession decryptionSession(DataContext context, DataFlowRequestKeyMaterial keyMaterial) {
+        try {
+            return decryptor.session(context.getKeyMaterial(), keyMaterial);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not derive decryption key: " + e.getMessage(), e);
+        }
+    }
+
     private HITypeResourceProcessor identifyResourceProcessor(ResourceType resourceType) {
-        return resourceProcessors.stream().filter(p -> p.supports(resourceType)).findAny().orElse(null);
+        return resourceProcessors.get(resourceType);
+    }
+
+    private static Map<ResourceType, HITypeResourceProcessor> resourceProcessorsByType(
+            List<HITypeResourceProcessor> hiTypeResourceProcessors) {
+        Map<ResourceType, HITypeResourceProcessor> processorsByType = new EnumMap<>(ResourceType.class);
+        for (ResourceType resourceType : ResourceType.values()) {
+            hiTypeResourceProcessors.stream()
+                    .filter(processor -> processor.supports(resourceType))
+                    .findFirst()
+                    .ifPresent(processor -> processorsByType.put(resourceType, processor));
+        }
+        return processorsByType;
     }
 
     private boolean isValidBundleType(Bundle bundle) {
@@ -384,4 +679,48 @@ public class HealthDataProcessor {
         Optional<Identifier> identifier = getAffinityDomainIdentifier(hfrAffinityDomains, organization);
         return  identifier.isPresent() ? Optional.of(Pair.of(identifier.get().getValue(), organization.getName())) : Optional.empty();
     }
+
+    private static class EntryOutcome {
+        private final List<String> errors;
+        private final StatusResponse statusResponse;
+        private final HealthDataRecord record;
+
+        private EntryOutcome(List<String> errors, StatusResponse statusResponse, HealthDataRecord record) {
+            this.errors = errors;
+            this.statusResponse = statusResponse;
+            this.record = record;
+        }
+
+        static EntryOutcome succeeded(Entry entry, HealthDataRecord record) {
+            return new EntryOutcome(List.of(),
+                    statusResponseFor(entry, HiStatus.OK, "Data received successfully"),
+                    record);
+        }
+
+        static EntryOutcome failed(List<String> errors, Entry entry, HealthDataRecord record) {
+            return new EntryOutcome(errors,
+                    statusResponseFor(entry, HiStatus.ERRORED, COULD_NOT_RECEIVE_DATA),
+                    record);
+        }
+
+        List<String> getErrors() {
+            return errors;
+        }
+
+        StatusResponse getStatusResponse() {
+            return statusResponse;
+        }
+
+        HealthDataRecord getRecord() {
+            return record;
+        }
+
+        private static StatusResponse statusResponseFor(Entry entry, HiStatus hiStatus, String msg) {
+            return StatusResponse.builder()
+                    .careContextReference(entry.getCareContextReference())
+                    .hiStatus(hiStatus)
+                    .description(msg)
+                    .build();
+        }
+    }
 }
@@ -1,17 +1,22 @@
 package in.org.projecteka.hiu.dataprocessor;
 
 import in.org.projecteka.hiu.dataprocessor.model.EntryStatus;
+import in.org.projecteka.hiu.dataprocessor.model.HealthDataRecord;
 import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.Tuple;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static in.org.projecteka.hiu.dataprocessor.model.EntryStatus.ERRORED;
 import static in.org.projecteka.hiu.dataprocessor.model.EntryStatus.SUCCEEDED;
+import static java.util.stream.Collectors.toList;
 
 @AllArgsConstructor
 public class HealthDataRepository {
@@ -23,6 +28,8 @@ public class HealthDataRepository {
             = "INSERT INTO health_information " +
             "(transaction_id, part_number, data, status, latest_res_date, care_context_reference, doc_origin, doc_id, doc_type) " +
             "VALUES ($1, $2, $3, $4, $5, $6, $7, $8, $9)";
+    private static final String SELECT_ENTRY_STATUSES = "SELECT part_number, care_context_reference, status " +
+            "FROM health_information WHERE transaction_id = $1";
 
     private final PgPool readWriteClient;
 
@@ -59,4 +66,70 @@ public class HealthDataRepository {
                 SUCCEEDED, latestResourceDate, careContextReference,
                 docOrigin, resourceId, docType);
     }
+
+    /**
+     * Inserts all records with a single batched prepared statement inside one transaction, so either the whole
+     * batch is recorded or none of it is.
+     */
+    public Mono<Void> insertBatch(List<HealthDataRecord> records) {
+        if (records.isEmpty()) {
+            return Mono.empty();
+        }
+        List<Tuple> batch = records.stream().map(this::toTuple).collect(toList());
+        return Mono.create(monoSink ->
+                readWriteClient.begin(beginHandler -> {
+                    if (beginHandler.failed()) {
+                        logger.error(beginHandler.cause().getMessage(), beginHandler.cause());
+                        monoSink.error(new Exception("Failed to insert health information"));
+                        return;
+                    }
+                    var transaction = beginHandler.result();
+                    transaction.preparedQuery(INSERT_HEALTH_DATA)
+                            .executeBatch(batch,
+                                    handler -> {
+                                        if (handler.failed()) {
+                                            logger.error(handler.cause().getMessage(), handler.cause());
+                                            transaction.rollback();
+                                            monoSink.error(new Exception("Failed to insert health information"));
+                                            return;
+                                        }
+                                        transaction.commit(commitHandler -> {
+                                            if (commitHandler.failed()) {
+                                                logger.error(commitHandler.cause().getMessage(),
+                                                        commitHandler.cause());
+                                                monoSink.error(new Exception("Failed to insert health information"));
+                                                return;
+                                            }
+                                            monoSink.success();
+                                        });
+                                    });
+                }));
+    }
+
+    public Flux<HealthDataRecord> getEntryStatuses(String transactionId) {
+        return Flux.create(fluxSink -> readWriteClient.preparedQuery(SELECT_ENTRY_STATUSES)
+                .execute(Tuple.of(transactionId),
+                        handler -> {
+                            if (handler.failed()) {
+                                logger.error(handler.cause().getMessage(), handler.cause());
+                                fluxSink.error(new Exception("Failed to fetch health information status"));
+                                return;
+                            }
+                            for (Row row : handler.result()) {
+                                fluxSink.next(HealthDataRecord.builder()
+                                        .transactionId(transactionId)
+                                        .dataPartNumber(row.getString("part_number"))
+                                        .careContextReference(row.getString("care_context_reference"))
+                                        .status(EntryStatus.valueOf(row.getString("status")))
+                                        .build());
+                            }
+                            fluxSink.complete();
+                        }));
+    }
+
+    private Tuple toTuple(HealthDataRecord record) {
+        return Tuple.of(record.getTransactionId(), record.getDataPartNumber(), record.getData(),
+                record.getStatus().toString(), record.getLatestResourceDate(), record.getCareContextReference(),
+                record.getDocOrigin(), record.getDocId(), record.getDocType());
+    }
 }
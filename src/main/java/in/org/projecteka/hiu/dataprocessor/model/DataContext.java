@@ -23,6 +23,7 @@ public class DataContext {
     private List<TrackedResourceReference> trackedResources;
     private String hipId;
     private String consentId;
+    private int numberOfEntries;
     private static final Logger logger = LoggerFactory.getLogger(DataContext.class);
 
     public Path getLocalStoragePath() {
@@ -55,10 +56,12 @@ public class DataContext {
             logger.info("There are no notified data in this transaction.");
             return 0;
         }
-        if (notifiedData.getEntries() == null ) {
+        if (notifiedData.getEntries() != null) {
+            return notifiedData.getEntries().size();
+        }
+        if (numberOfEntries == 0) {
             logger.info("Notified data does not have any entry");
-            return 0;
         }
-        return notifiedData.getEntries().size();
+        return numberOfEntries;
     }
 }
@@ -0,0 +1,32 @@
+package in.org.projecteka.hiu.dataprocessor.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+@Builder
+@Value
+public class HealthDataRecord {
+    String transactionId;
+    String dataPartNumber;
+    String data;
+    EntryStatus status;
+    LocalDateTime latestResourceDate;
+    String careContextReference;
+    String docOrigin;
+    String docId;
+    String docType;
+
+    public static HealthDataRecord errored(String transactionId, String dataPartNumber, String careContextReference) {
+        return HealthDataRecord.builder()
+                .transactionId(transactionId)
+                .dataPartNumber(dataPartNumber)
+                .data("")
+                .status(EntryStatus.ERRORED)
+                .careContextReference(careContextReference)
+                .build();
+    }
+}
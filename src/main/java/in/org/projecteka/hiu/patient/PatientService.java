@@ -5,8 +5,8 @@ import in.org.projecteka.hiu.GatewayProperties;
 import in.org.projecteka.hiu.HiuProperties;
 import in.org.projecteka.hiu.clients.GatewayServiceClient;
 import in.org.projecteka.hiu.clients.Patient;
-import in.org.projecteka.hiu.common.DelayTimeoutException;
 import in.org.projecteka.hiu.common.cache.CacheAdapter;
+import in.org.projecteka.hiu.common.correlation.CorrelationRegistry;
 import in.org.projecteka.hiu.patient.model.FindPatientQuery;
 import in.org.projecteka.hiu.patient.model.FindPatientRequest;
 import in.org.projecteka.hiu.patient.model.PatientSearchGatewayResponse;
@@ -17,7 +17,9 @@ import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Supplier;
 
@@ -25,7 +27,6 @@ import static in.org.projecteka.hiu.ClientError.gatewayTimeOut;
 import static in.org.projecteka.hiu.ClientError.unknownError;
 import static in.org.projecteka.hiu.ErrorCode.PATIENT_NOT_FOUND;
 import static in.org.projecteka.hiu.common.Constants.getCmSuffix;
-import static in.org.projecteka.hiu.common.CustomScheduler.scheduleThis;
 import static in.org.projecteka.hiu.common.ErrorMappings.get;
 import static java.time.Duration.ofMillis;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -43,6 +44,8 @@ public class PatientService {
     private final HiuProperties hiuProperties;
     private final GatewayProperties gatewayProperties;
     private final CacheAdapter<String, PatientSearchGatewayResponse> gatewayResponseCache;
+    private final CorrelationRegistry<PatientSearchGatewayResponse> findPatientResponses;
+    private final Map<String, Mono<Patient>> lookupsInFlight = new ConcurrentHashMap<>();
 
     private static Mono<Patient> apply(PatientSearchGatewayResponse response) {
         if (response.getPatient() != null) {
@@ -67,17 +70,28 @@ public class PatientService {
                         });
     }
 
+    /**
+     * Concurrent lookups of the same patient share a single one, so a patient listed in many consent requests is
+     * asked of the gateway once.
+     */
     public Mono<Patient> findPatientWith(String id) {
+        return defer(() -> lookupsInFlight.computeIfAbsent(id, key -> lookup(key)
+                .doFinally(signal -> lookupsInFlight.remove(key))
+                .cache()));
+    }
+
+    private Mono<Patient> lookup(String id) {
         return getFromCache(id, () ->
         {
             logger.info("about to get patient details from CM for: {}", id);
             var cmSuffix = getCmSuffix(id);
             var request = getFindPatientRequest(id);
-            return scheduleThis(gatewayServiceClient.findPatientWith(request, cmSuffix))
-                    .timeout(ofMillis(gatewayProperties.getRequestTimeout()))
-                    .responseFrom(discard -> defer(() -> getFromCache(request.getRequestId())))
-                    .onErrorResume(DelayTimeoutException.class, discard -> error(gatewayTimeOut()))
-                    .onErrorResume(TimeoutException.class, discard -> error(gatewayTimeOut()))
+            return findPatientResponses.awaitResponse(request.getRequestId().toString(),
+                    gatewayServiceClient.findPatientWith(request, cmSuffix),
+                    ofMillis(gatewayProperties.getRequestTimeout()))
+                    // the response may have been missed while this node was not subscribed to callbacks
+                    .onErrorResume(TimeoutException.class, discard -> getFromCache(request.getRequestId())
+                            .switchIfEmpty(error(gatewayTimeOut())))
                     .flatMap(PatientService::apply);
         });
     }
@@ -110,6 +124,7 @@ public class PatientService {
 
         return justOrEmpty(response.getPatient())
                 .flatMap(patient -> cache.put(patient.getId(), patient.toPatient()))
-                .then(defer(() -> gatewayResponseCache.put(response.getResp().getRequestId(), response)));
+                .then(defer(() -> gatewayResponseCache.put(response.getResp().getRequestId(), response)))
+                .then(defer(() -> findPatientResponses.complete(response.getResp().getRequestId(), response)));
     }
 }
@@ -18,12 +18,4 @@ public class PatientSearchGatewayResponse {
     private PatientRepresentation patient;
     private RespError error;
     private GatewayResponse resp;
-
-    public static PatientSearchGatewayResponse empty() {
-        return PatientSearchGatewayResponse
-                .builder()
-                .patient(PatientRepresentation.builder().build())
-                .resp(GatewayResponse.builder().build())
-                .build();
-    }
 }
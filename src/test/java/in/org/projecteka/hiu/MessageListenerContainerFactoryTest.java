@@ -0,0 +1,129 @@
+package in.org.projecteka.hiu;
+
+import com.rabbitmq.client.Channel;
+import in.org.projecteka.hiu.ListenerContainerProperties.ContainerSettings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class MessageListenerContainerFactoryTest {
+    @Mock
+    private ConnectionFactory connectionFactory;
+
+    @Mock
+    private Channel channel;
+
+    private MessageListenerContainerFactory factory;
+
+    @BeforeEach
+    void setUp() {
+        initMocks(this);
+        var containerSettings = Map.of("process-queue", new ContainerSettings(4, 8, 1, 10, true));
+        factory = new MessageListenerContainerFactory(connectionFactory,
+                new Jackson2JsonMessageConverter(),
+                containerSettings);
+    }
+
+    @Test
+    void shouldApplyQueueSettingsToContainer() {
+        factory.createMessageListenerContainer("process-queue");
+
+        var statuses = factory.containerStatuses();
+
+        assertThat(statuses).hasSize(1);
+        var status = statuses.get(0);
+        assertThat(status.getQueueName()).isEqualTo("process-queue");
+        assertThat(status.getConcurrentConsumers()).isEqualTo(4);
+        assertThat(status.getMaxConcurrentConsumers()).isEqualTo(8);
+        assertThat(status.getPrefetchCount()).isEqualTo(1);
+        assertThat(status.getBatchSize()).isEqualTo(10);
+        assertThat(status.isConsumerBatchEnabled()).isTrue();
+        assertThat(status.isRunning()).isFalse();
+    }
+
+    @Test
+    void shouldUseSingleConsumerForQueueWithoutSettings() {
+        factory.createMessageListenerContainer("request-queue");
+
+        var status = factory.containerStatuses().get(0);
+
+        assertThat(status.getConcurrentConsumers()).isEqualTo(1);
+        assertThat(status.getMaxConcurrentConsumers()).isEqualTo(1);
+        assertThat(status.getBatchSize()).isEqualTo(1);
+        assertThat(status.isConsumerBatchEnabled()).isFalse();
+    }
+
+    @Test
+    void shouldDeliverBatchToPerMessageListenerOneByOne() throws IOException {
+        var container = (SimpleMessageListenerContainer) factory.createMessageListenerContainer("process-queue");
+        List<Message> received = new ArrayList<>();
+        container.setupMessageListener((MessageListener) received::add);
+        var first = message(1);
+        var second = message(2);
+
+        ((ChannelAwareMessageListener) container.getMessageListener()).onMessageBatch(List.of(first, second), channel);
+
+        assertThat(received).containsExactly(first, second);
+        assertThat(container.getAcknowledgeMode()).isEqualTo(AcknowledgeMode.MANUAL);
+        verify(channel).basicAck(1, false);
+        verify(channel).basicAck(2, false);
+    }
+
+    @Test
+    void shouldRejectOnlyFailedMessageOfBatch() throws IOException {
+        var container = (SimpleMessageListenerContainer) factory.createMessageListenerContainer("process-queue");
+        var failing = message(1);
+        var succeeding = message(2);
+        container.setupMessageListener((MessageListener) message -> {
+            if (message == failing) {
+                throw new AmqpRejectAndDontRequeueException("cannot process");
+            }
+        });
+
+        ((ChannelAwareMessageListener) container.getMessageListener())
+                .onMessageBatch(List.of(failing, succeeding), channel);
+
+        verify(channel).basicReject(1, false);
+        verify(channel, never()).basicAck(eq(1L), anyBoolean());
+        verify(channel).basicAck(2, false);
+    }
+
+    @Test
+    void shouldLeaveAcknowledgementToContainerWithoutConsumerBatching() {
+        var container = (SimpleMessageListenerContainer) factory.createMessageListenerContainer("request-queue");
+        MessageListener listener = message -> {
+        };
+
+        container.setupMessageListener(listener);
+
+        assertThat(container.getMessageListener()).isSameAs(listener);
+        assertThat(container.getAcknowledgeMode()).isEqualTo(AcknowledgeMode.AUTO);
+    }
+
+    private static Message message(long deliveryTag) {
+        var properties = new MessageProperties();
+        properties.setDeliveryTag(deliveryTag);
+        return new Message(String.valueOf(deliveryTag).getBytes(), properties);
+    }
+}
@@ -0,0 +1,91 @@
+package in.org.projecteka.hiu.common;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+import in.org.projecteka.hiu.GatewayProperties;
+import in.org.projecteka.hiu.clients.GatewayAuthenticationClient;
+import in.org.projecteka.hiu.clients.Token;
+import in.org.projecteka.hiu.common.cache.CacheAdapter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static reactor.test.StepVerifier.create;
+
+class GatewayTest {
+    @Mock
+    GatewayAuthenticationClient gatewayAuthenticationClient;
+
+    @Mock
+    CacheAdapter<String, String> accessTokenCache;
+
+    private Gateway gateway;
+
+    @BeforeEach
+    void setUp() {
+        initMocks(this);
+        var gatewayProperties = new GatewayProperties("http://gateway", 1000, "hiu", "secret", "", 10, 60);
+        gateway = new Gateway(gatewayProperties, gatewayAuthenticationClient, accessTokenCache);
+        when(accessTokenCache.get(anyString())).thenReturn(Mono.empty());
+        when(accessTokenCache.put(anyString(), anyString())).thenReturn(Mono.empty());
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.stop();
+    }
+
+    @Test
+    void shouldRequestOneTokenForConcurrentCallers() {
+        var token = MonoProcessor.<Token>create();
+        when(gatewayAuthenticationClient.getTokenFor("hiu", "secret")).thenReturn(token);
+
+        var first = gateway.token().toProcessor();
+        var second = gateway.token().toProcessor();
+        token.onNext(new Token("Bearer token"));
+
+        assertThat(first.block()).isEqualTo("Bearer token");
+        assertThat(second.block()).isEqualTo("Bearer token");
+        verify(gatewayAuthenticationClient, times(1)).getTokenFor("hiu", "secret");
+        verify(accessTokenCache, times(1)).put(anyString(), eq("Bearer token"));
+        assertThat(gateway.metrics().getRefreshes()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldTakeExpiryFromToken() {
+        var expiry = Instant.now().plus(5, ChronoUnit.MINUTES).truncatedTo(ChronoUnit.SECONDS);
+        var jwt = new PlainJWT(new JWTClaimsSet.Builder().expirationTime(Date.from(expiry)).build()).serialize();
+        when(gatewayAuthenticationClient.getTokenFor("hiu", "secret"))
+                .thenReturn(Mono.just(new Token("Bearer " + jwt)));
+
+        create(gateway.token()).expectNext("Bearer " + jwt).verifyComplete();
+
+        assertThat(gateway.metrics().getExpiresAt()).isEqualTo(expiry);
+    }
+
+    @Test
+    void shouldRequestTokenAgainAfterFailure() {
+        when(gatewayAuthenticationClient.getTokenFor("hiu", "secret"))
+                .thenReturn(Mono.error(new RuntimeException("unavailable")), Mono.just(new Token("Bearer token")));
+
+        create(gateway.token()).verifyError();
+        create(gateway.token()).expectNext("Bearer token").verifyComplete();
+
+        assertThat(gateway.metrics().getFailures()).isEqualTo(1);
+        assertThat(gateway.metrics().getRefreshes()).isEqualTo(1);
+    }
+}
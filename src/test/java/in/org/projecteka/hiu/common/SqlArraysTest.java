@@ -0,0 +1,24 @@
+package in.org.projecteka.hiu.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlArraysTest {
+    @Test
+    void shouldBindValuesAsTextArray() {
+        assertThat(SqlArrays.textArray(List.of("a", "b"))).containsExactly("a", "b");
+    }
+
+    @Test
+    void shouldLeaveOutValuesThatAreNotUUIDs() {
+        var dataRequestId = UUID.randomUUID();
+
+        var uuids = SqlArrays.uuidArray(List.of(dataRequestId.toString(), "not-a-uuid"));
+
+        assertThat(uuids).containsExactly(dataRequestId);
+    }
+}
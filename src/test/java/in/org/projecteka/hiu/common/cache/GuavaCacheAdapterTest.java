@@ -0,0 +1,68 @@
+package in.org.projecteka.hiu.common.cache;
+
+import com.google.common.cache.CacheBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static in.org.projecteka.hiu.common.TestBuilders.string;
+import static org.assertj.core.api.Assertions.assertThat;
+import static reactor.test.StepVerifier.create;
+
+class GuavaCacheAdapterTest {
+    private GuavaCacheAdapter<String> cacheAdapter;
+
+    @BeforeEach
+    void setUp() {
+        cacheAdapter = new GuavaCacheAdapter<>(CacheBuilder.newBuilder()
+                .concurrencyLevel(1)
+                .maximumSize(2)
+                .recordStats()
+                .build());
+    }
+
+    @Test
+    void shouldReadPutValue() {
+        var key = string();
+        var value = string();
+
+        create(cacheAdapter.put(key, value).then(cacheAdapter.get(key)))
+                .expectNext(value)
+                .verifyComplete();
+        create(cacheAdapter.exists(key)).expectNext(true).verifyComplete();
+    }
+
+    @Test
+    void shouldNotStoreAnythingForMissingKey() {
+        var key = string();
+
+        create(cacheAdapter.get(key)).verifyComplete();
+        create(cacheAdapter.exists(key)).expectNext(false).verifyComplete();
+
+        var metrics = cacheAdapter.metrics("test");
+        assertThat(metrics.getSize()).isZero();
+        assertThat(metrics.getMisses()).isEqualTo(1);
+        assertThat(metrics.getHits()).isZero();
+    }
+
+    @Test
+    void shouldForgetInvalidatedKey() {
+        var key = string();
+
+        create(cacheAdapter.put(key, string())
+                .then(cacheAdapter.invalidate(key))
+                .then(cacheAdapter.get(key)))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldEvictBeyondMaximumSize() {
+        create(cacheAdapter.put(string(), string())
+                .then(cacheAdapter.put(string(), string()))
+                .then(cacheAdapter.put(string(), string())))
+                .verifyComplete();
+
+        var metrics = cacheAdapter.metrics("test");
+        assertThat(metrics.getSize()).isEqualTo(2);
+        assertThat(metrics.getEvictions()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,144 @@
+package in.org.projecteka.hiu.common.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.data.redis.connection.ReactiveSubscription.ChannelMessage;
+import org.springframework.data.redis.core.ReactiveRedisOperations;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static in.org.projecteka.hiu.common.TestBuilders.string;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static reactor.test.StepVerifier.create;
+
+class TieredCacheAdapterTest {
+    private static final String CHANNEL = "changes";
+
+    @Mock
+    RedisGenericAdapter<String> remoteCache;
+
+    @Mock
+    ReactiveRedisOperations<String, String> redisOperations;
+
+    private final DirectProcessor<ChannelMessage<String, String>> announcements = DirectProcessor.create();
+
+    private TieredCacheAdapter<String> tieredCache;
+
+    @BeforeEach
+    void setUp() {
+        initMocks(this);
+        doReturn(announcements).when(redisOperations).listenToChannel(CHANNEL);
+        when(redisOperations.convertAndSend(eq(CHANNEL), anyString())).thenReturn(Mono.just(1L));
+        when(remoteCache.timeToLive(anyString())).thenReturn(Mono.just(Duration.ZERO));
+        tieredCache = new TieredCacheAdapter<>(100,
+                Duration.ofMinutes(1),
+                remoteCache,
+                redisOperations,
+                CHANNEL);
+        tieredCache.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tieredCache.stop();
+    }
+
+    @Test
+    void shouldReadRemoteCacheOnlyOnceForHotKey() {
+        var key = string();
+        var value = string();
+        when(remoteCache.get(key)).thenReturn(Mono.just(value));
+
+        create(tieredCache.get(key)).expectNext(value).verifyComplete();
+        create(tieredCache.get(key)).expectNext(value).verifyComplete();
+
+        verify(remoteCache, times(1)).get(key);
+        assertThat(tieredCache.metrics("tokens"))
+                .extracting(CacheMetrics::getName, CacheMetrics::getHits, CacheMetrics::getMisses)
+                .containsExactly(
+                        tuple("tokens.near", 1L, 1L),
+                        tuple("tokens.remote", 1L, 0L));
+    }
+
+    @Test
+    void shouldNotKeepNearCopyLongerThanRemoteTimeToLive() throws InterruptedException {
+        var key = string();
+        var value = string();
+        when(remoteCache.get(key)).thenReturn(Mono.just(value));
+        when(remoteCache.timeToLive(key)).thenReturn(Mono.just(Duration.ofMillis(1)));
+        create(tieredCache.get(key)).expectNext(value).verifyComplete();
+
+        Thread.sleep(10);
+
+        create(tieredCache.get(key)).expectNext(value).verifyComplete();
+        verify(remoteCache, times(2)).get(key);
+    }
+
+    @Test
+    void shouldNotKeepNearCopyOfKeyExpiringWhileRead() {
+        var key = string();
+        var value = string();
+        when(remoteCache.get(key)).thenReturn(Mono.just(value));
+        when(remoteCache.timeToLive(key)).thenReturn(Mono.empty());
+
+        create(tieredCache.get(key)).expectNext(value).verifyComplete();
+        create(tieredCache.get(key)).expectNext(value).verifyComplete();
+
+        verify(remoteCache, times(2)).get(key);
+    }
+
+    @Test
+    void shouldDropNearCopyWhenAnotherNodeChangesKey() {
+        var key = string();
+        var value = string();
+        var newValue = string();
+        when(remoteCache.get(key)).thenReturn(Mono.just(value), Mono.just(newValue));
+        create(tieredCache.get(key)).expectNext(value).verifyComplete();
+
+        announcements.onNext(new ChannelMessage<>(CHANNEL, "another-node:" + key));
+
+        create(tieredCache.get(key)).expectNext(newValue).verifyComplete();
+        verify(remoteCache, times(2)).get(key);
+    }
+
+    @Test
+    void shouldKeepNearCopyOfOwnPut() {
+        var key = string();
+        var value = string();
+        when(remoteCache.put(key, value)).thenReturn(Mono.empty());
+
+        create(tieredCache.put(key, value)).verifyComplete();
+        create(tieredCache.get(key)).expectNext(value).verifyComplete();
+
+        verify(redisOperations).convertAndSend(eq(CHANNEL), anyString());
+        verify(remoteCache, never()).get(key);
+    }
+
+    @Test
+    void shouldInvalidateBothTiers() {
+        var key = string();
+        var value = string();
+        when(remoteCache.put(key, value)).thenReturn(Mono.empty());
+        when(remoteCache.invalidate(key)).thenReturn(Mono.empty());
+        when(remoteCache.get(key)).thenReturn(Mono.empty());
+        create(tieredCache.put(key, value)).verifyComplete();
+
+        create(tieredCache.invalidate(key)).verifyComplete();
+
+        create(tieredCache.get(key)).verifyComplete();
+        verify(remoteCache).invalidate(key);
+    }
+}
@@ -0,0 +1,86 @@
+package in.org.projecteka.hiu.common.database;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.PreparedQuery;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class MeteredPgPoolTest {
+    @Mock
+    private PgPool pgPool;
+
+    @Mock
+    private SqlConnection connection;
+
+    @Mock
+    private PreparedQuery<RowSet<Row>> preparedQuery;
+
+    private MeteredPgPool meteredPgPool;
+
+    @BeforeEach
+    void setUp() {
+        initMocks(this);
+        meteredPgPool = new MeteredPgPool("readWriteClient", 1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldCountConnectionAsHeldUntilClosed() {
+        ArgumentCaptor<Handler<AsyncResult<SqlConnection>>> handlerCaptor = ArgumentCaptor.forClass(Handler.class);
+        var pool = meteredPgPool.wrap(pgPool);
+        SqlConnection[] acquired = new SqlConnection[1];
+
+        pool.getConnection(result -> acquired[0] = result.result());
+        pool.getConnection(result -> { });
+
+        assertThat(meteredPgPool.metrics().getEstimatedInUse()).isEqualTo(1);
+        assertThat(meteredPgPool.metrics().getEstimatedWaiting()).isEqualTo(1);
+
+        verify(pgPool, times(2)).getConnection(handlerCaptor.capture());
+        handlerCaptor.getAllValues().get(0).handle(Future.succeededFuture(connection));
+
+        assertThat(meteredPgPool.metrics().getHeldConnections()).isEqualTo(1);
+        assertThat(meteredPgPool.metrics().getAcquisitions()).isEqualTo(1);
+
+        acquired[0].close();
+        acquired[0].close();
+
+        verify(connection, times(2)).close();
+        assertThat(meteredPgPool.metrics().getHeldConnections()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldCountQueriesRunOnThePool() {
+        ArgumentCaptor<Handler<AsyncResult<RowSet<Row>>>> handlerCaptor = ArgumentCaptor.forClass(Handler.class);
+        when(pgPool.preparedQuery("SELECT 1")).thenReturn(preparedQuery);
+        var pool = meteredPgPool.wrap(pgPool);
+
+        pool.preparedQuery("SELECT 1").execute(Tuple.tuple(), result -> { });
+
+        assertThat(meteredPgPool.metrics().getEstimatedInUse()).isEqualTo(1);
+        verify(preparedQuery).execute(any(Tuple.class), handlerCaptor.capture());
+        handlerCaptor.getValue().handle(Future.succeededFuture());
+
+        var metrics = meteredPgPool.metrics();
+        assertThat(metrics.getEstimatedInUse()).isZero();
+        assertThat(metrics.getQueries()).isEqualTo(1);
+        assertThat(metrics.getName()).isEqualTo("readWriteClient");
+    }
+}
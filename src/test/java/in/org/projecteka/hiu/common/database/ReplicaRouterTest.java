@@ -0,0 +1,73 @@
+package in.org.projecteka.hiu.common.database;
+
+import io.vertx.pgclient.PgPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class ReplicaRouterTest {
+    @Mock
+    private PgPool primary;
+
+    @Mock
+    private PgPool firstReplica;
+
+    @Mock
+    private PgPool secondReplica;
+
+    @BeforeEach
+    void setUp() {
+        initMocks(this);
+    }
+
+    @Test
+    void shouldSpreadReadsOverReplicasRoundRobin() {
+        var router = new ReplicaRouter(primary, List.of(firstReplica, secondReplica), false, Duration.ofSeconds(5));
+
+        var selected = List.of(router.select(Duration.ofSeconds(1)),
+                router.select(Duration.ofSeconds(1)),
+                router.select(Duration.ofSeconds(1)));
+
+        assertThat(selected).containsExactly(firstReplica, secondReplica, firstReplica);
+    }
+
+    @Test
+    void shouldReadFromPrimaryWhileReplicationLagIsUnknown() {
+        var router = new ReplicaRouter(primary, List.of(firstReplica), true, Duration.ofSeconds(5));
+
+        assertThat(router.select(Duration.ofSeconds(30))).isEqualTo(primary);
+    }
+
+    @Test
+    void shouldReadFromPrimaryWhenLagBoundIsZero() {
+        var router = new ReplicaRouter(primary, List.of(firstReplica), false, Duration.ofSeconds(5));
+
+        assertThat(router.pool(Duration.ZERO)).isSameAs(primary);
+    }
+
+    @Test
+    void shouldNotCloseRoutedPoolsWhenRoutingPoolIsClosed() {
+        var router = new ReplicaRouter(primary, List.of(firstReplica), false, Duration.ofSeconds(5));
+
+        router.pool(Duration.ofSeconds(1)).close();
+
+        verifyNoInteractions(primary, firstReplica);
+    }
+
+    @Test
+    void shouldSendCallsToSelectedPool() {
+        var router = new ReplicaRouter(primary, List.of(firstReplica), false, Duration.ofSeconds(5));
+
+        router.pool(Duration.ofSeconds(1)).preparedQuery("SELECT 1");
+
+        verify(firstReplica).preparedQuery("SELECT 1");
+    }
+}
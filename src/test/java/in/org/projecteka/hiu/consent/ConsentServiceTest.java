@@ -5,14 +5,21 @@ import in.org.projecteka.hiu.clients.GatewayServiceClient;
 import in.org.projecteka.hiu.clients.Patient;
 import in.org.projecteka.hiu.common.cache.CacheAdapter;
 import in.org.projecteka.hiu.consent.model.ConsentRequestData;
+import in.org.projecteka.hiu.consent.model.ConsentRequestRepresentation;
+import in.org.projecteka.hiu.consent.model.ConsentStatus;
+import in.org.projecteka.hiu.patient.PatientService;
 import in.org.projecteka.hiu.patient.model.PatientSearchGatewayResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.MonoSink;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 import static in.org.projecteka.hiu.common.TestBuilders.dateRange;
@@ -20,15 +27,19 @@ import static in.org.projecteka.hiu.common.TestBuilders.gatewayResponse;
 import static in.org.projecteka.hiu.common.TestBuilders.string;
 import static in.org.projecteka.hiu.consent.TestBuilders.consentArtefact;
 import static in.org.projecteka.hiu.consent.TestBuilders.consentArtefactResponse;
+import static in.org.projecteka.hiu.consent.TestBuilders.consentRequest;
 import static in.org.projecteka.hiu.consent.TestBuilders.consentRequestDetails;
 import static in.org.projecteka.hiu.consent.TestBuilders.consentStatusDetail;
 import static in.org.projecteka.hiu.consent.TestBuilders.consentStatusRequest;
 import static in.org.projecteka.hiu.consent.TestBuilders.gatewayConsentArtefactResponse;
 import static in.org.projecteka.hiu.consent.TestBuilders.hiuProperties;
+import static in.org.projecteka.hiu.consent.TestBuilders.patient;
 import static in.org.projecteka.hiu.consent.TestBuilders.permission;
 import static in.org.projecteka.hiu.consent.TestBuilders.randomString;
 import static in.org.projecteka.hiu.consent.model.ConsentStatus.DENIED;
 import static in.org.projecteka.hiu.consent.model.ConsentStatus.GRANTED;
+import static in.org.projecteka.hiu.consent.model.ConsentStatus.POSTED;
+import static in.org.projecteka.hiu.consent.model.ConsentStatus.REQUESTED;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.times;
@@ -65,6 +76,8 @@ class ConsentServiceTest {
     private GatewayServiceClient gatewayServiceClient;
     @Mock
     private HiuProperties hiuProperties;
+    @Mock
+    private PatientService patientService;
     private ConsentService consentService;
 
     @BeforeEach
@@ -76,7 +89,7 @@ class ConsentServiceTest {
                 consentRepository,
                 dataFlowRequestPublisher,
                 null,
-                null,
+                patientService,
                 healthInformationPublisher,
                 conceptValidator,
                 gatewayServiceClient,
@@ -182,4 +195,79 @@ class ConsentServiceTest {
                 .verifyComplete();
         verify(consentRepository).getConsentRequestStatus(consentRequest.getConsentRequest().getId());
     }
+
+    @Test
+    void shouldKeepRequestStatusWhilePostedOrWithoutArtefact() {
+        var requesterId = randomString();
+        var patientId = randomString();
+        var posted = requestResult(patientId, POSTED, GRANTED);
+        var withoutArtefact = requestResult(patientId, REQUESTED, null);
+        var withArtefact = requestResult(patientId, REQUESTED, GRANTED);
+        when(consentServiceProperties.getDefaultPageSize()).thenReturn(20L);
+        when(consentRepository.requestsOf(requesterId, 20L))
+                .thenReturn(Flux.just(posted, withoutArtefact, withArtefact));
+        when(patientService.tryFind(patientId)).thenReturn(just(patient().build()));
+
+        StepVerifier.create(consentService.requestsOf(requesterId).map(ConsentRequestRepresentation::getStatus))
+                .expectNext(POSTED, REQUESTED, GRANTED)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldListRequestsInQueryOrderLookingEachPatientUpOnce() {
+        var requesterId = randomString();
+        var slowPatientId = randomString();
+        var patientId = randomString();
+        var first = requestResult(slowPatientId, REQUESTED, null);
+        var second = requestResult(patientId, REQUESTED, null);
+        var third = requestResult(slowPatientId, REQUESTED, null);
+        when(consentServiceProperties.getDefaultPageSize()).thenReturn(20L);
+        when(consentRepository.requestsOf(requesterId, 20L)).thenReturn(Flux.just(first, second, third));
+        when(patientService.tryFind(slowPatientId))
+                .thenReturn(just(patient().build()).delayElement(Duration.ofMillis(50)));
+        when(patientService.tryFind(patientId)).thenReturn(just(patient().build()));
+
+        StepVerifier.create(consentService.requestsOf(requesterId).map(ConsentRequestRepresentation::getId))
+                .expectNext(idOf(first), idOf(second), idOf(third))
+                .verifyComplete();
+        verify(patientService, times(1)).tryFind(slowPatientId);
+        verify(patientService, times(1)).tryFind(patientId);
+    }
+
+    @Test
+    void shouldLeaveOutRequestsOfUnknownPatients() {
+        var requesterId = randomString();
+        var unknownPatientId = randomString();
+        var patientId = randomString();
+        var known = requestResult(patientId, GRANTED, null);
+        when(consentServiceProperties.getDefaultPageSize()).thenReturn(20L);
+        when(consentRepository.requestsOf(requesterId, 20L))
+                .thenReturn(Flux.just(requestResult(unknownPatientId, REQUESTED, null), known));
+        when(patientService.tryFind(unknownPatientId)).thenReturn(empty());
+        when(patientService.tryFind(patientId)).thenReturn(just(patient().build()));
+
+        StepVerifier.create(consentService.requestsOf(requesterId).map(ConsentRequestRepresentation::getId))
+                .expectNext(idOf(known))
+                .verifyComplete();
+    }
+
+    private static Map<String, Object> requestResult(String patientId,
+                                                     ConsentStatus status,
+                                                     ConsentStatus artefactStatus) {
+        var consentRequest = consentRequest()
+                .patient(new in.org.projecteka.hiu.consent.model.Patient(patientId))
+                .build();
+        Map<String, Object> result = new HashMap<>();
+        result.put("consentRequest", consentRequest);
+        result.put("status", status);
+        result.put("consentRequestId", consentRequest.getId());
+        if (artefactStatus != null) {
+            result.put("artefactStatus", artefactStatus);
+        }
+        return result;
+    }
+
+    private static String idOf(Map<String, Object> result) {
+        return ((in.org.projecteka.hiu.consent.model.ConsentRequest) result.get("consentRequest")).getId();
+    }
 }
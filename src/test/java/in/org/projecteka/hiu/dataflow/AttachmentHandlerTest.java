@@ -0,0 +1,141 @@
+package in.org.projecteka.hiu.dataflow;
+
+import com.google.common.cache.CacheBuilder;
+import in.org.projecteka.hiu.ClientError;
+import in.org.projecteka.hiu.consent.TokenUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static in.org.projecteka.hiu.dataprocessor.AttachmentDataTypeProcessor.storeContentType;
+import static in.org.projecteka.hiu.dataprocessor.AttachmentDataTypeProcessor.storedContentType;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class AttachmentHandlerTest {
+    private static final String CONSENT_REQUEST_ID = "consent-request-id";
+    private static final String TRANSACTION_ID = "transaction-id";
+    private static final String REQUESTER = "someone@ncg";
+
+    @Mock
+    private HealthInfoManager healthInfoManager;
+
+    @TempDir
+    Path localStoragePath;
+
+    private AttachmentHandler attachmentHandler;
+
+    @BeforeEach
+    void setUp() {
+        initMocks(this);
+        var serviceProperties = new DataFlowServiceProperties();
+        serviceProperties.setLocalStoragePath(localStoragePath.toString());
+        attachmentHandler = new AttachmentHandler(healthInfoManager,
+                serviceProperties,
+                CacheBuilder.newBuilder().build());
+        when(healthInfoManager.getTransactionIdForConsentRequest(CONSENT_REQUEST_ID, REQUESTER))
+                .thenReturn(Flux.just(TRANSACTION_ID));
+    }
+
+    @Test
+    void shouldFindAttachmentAndCheckAccessOnEveryRequest() throws IOException {
+        var file = attachment("report.pdf", "%PDF-1.4");
+
+        StepVerifier.create(attachmentHandler.find(CONSENT_REQUEST_ID, "report.pdf", REQUESTER))
+                .assertNext(attachment -> {
+                    assertThat(attachment.getPath()).isEqualTo(file);
+                    assertThat(attachment.getContentType()).isEqualTo(MediaType.APPLICATION_PDF);
+                    assertThat(attachment.getSize()).isEqualTo(8);
+                    assertThat(attachment.getETag()).startsWith("\"8-");
+                })
+                .verifyComplete();
+        StepVerifier.create(attachmentHandler.find(CONSENT_REQUEST_ID, "report.pdf", REQUESTER))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(healthInfoManager, times(2)).getTransactionIdForConsentRequest(CONSENT_REQUEST_ID, REQUESTER);
+    }
+
+    @Test
+    void shouldNotServeIndexedAttachmentToRequesterWithoutAccess() throws IOException {
+        attachment("report.pdf", "%PDF-1.4");
+        var otherRequester = "someone-else@ncg";
+        when(healthInfoManager.getTransactionIdForConsentRequest(CONSENT_REQUEST_ID, otherRequester))
+                .thenReturn(Flux.error(ClientError.unauthorizedRequester()));
+        StepVerifier.create(attachmentHandler.find(CONSENT_REQUEST_ID, "report.pdf", REQUESTER))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        StepVerifier.create(attachmentHandler.find(CONSENT_REQUEST_ID, "report.pdf", otherRequester))
+                .expectError(ClientError.class)
+                .verify();
+    }
+
+    @Test
+    void shouldLookUpAgainOnceAttachmentIsGone() throws IOException {
+        var file = attachment("report.pdf", "%PDF-1.4");
+        StepVerifier.create(attachmentHandler.find(CONSENT_REQUEST_ID, "report.pdf", REQUESTER))
+                .expectNextCount(1)
+                .verifyComplete();
+        Files.delete(file);
+
+        StepVerifier.create(attachmentHandler.find(CONSENT_REQUEST_ID, "report.pdf", REQUESTER))
+                .verifyComplete();
+        StepVerifier.create(attachmentHandler.find(CONSENT_REQUEST_ID, "report.pdf", REQUESTER))
+                .verifyComplete();
+
+        verify(healthInfoManager, times(3)).getTransactionIdForConsentRequest(CONSENT_REQUEST_ID, REQUESTER);
+    }
+
+    @Test
+    void shouldNotServeFilesOutsideTheTransactionDirectory() throws IOException {
+        attachment("report.pdf", "%PDF-1.4");
+
+        StepVerifier.create(attachmentHandler.find(CONSENT_REQUEST_ID, "..", REQUESTER))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldServeContentTypeStoredWithEachLinkToSameContent() throws IOException {
+        var file = attachment("notes.txt", "a,b");
+        var otherLink = Files.createLink(
+                Files.createDirectories(localStoragePath.resolve("other-transaction")).resolve("notes.txt"),
+                file);
+        storeContentType(file, "text/csv");
+        storeContentType(otherLink, "application/json");
+
+        StepVerifier.create(attachmentHandler.find(CONSENT_REQUEST_ID, "notes.txt", REQUESTER))
+                .assertNext(attachment ->
+                        assertThat(attachment.getContentType()).isEqualTo(MediaType.parseMediaType("text/csv")))
+                .verifyComplete();
+        assertThat(storedContentType(otherLink)).contains("application/json");
+    }
+
+    @Test
+    void shouldNotServeStoredContentTypeAsAttachment() throws IOException {
+        var file = attachment("report.pdf", "%PDF-1.4");
+        storeContentType(file, "application/pdf");
+
+        StepVerifier.create(attachmentHandler.find(CONSENT_REQUEST_ID, "report.pdf.content-type", REQUESTER))
+                .verifyComplete();
+    }
+
+    private Path attachment(String fileName, String content) throws IOException {
+        var directory = localStoragePath
+                .resolve(TokenUtils.encode(CONSENT_REQUEST_ID))
+                .resolve(TokenUtils.encode(TRANSACTION_ID));
+        Files.createDirectories(directory);
+        return Files.writeString(directory.resolve(fileName), content);
+    }
+}
@@ -0,0 +1,228 @@
+package in.org.projecteka.hiu.dataflow;
+
+import in.org.projecteka.hiu.ClientError;
+import in.org.projecteka.hiu.dataflow.model.HealthInfoStatus;
+import in.org.projecteka.hiu.dataflow.model.PatientDataRequestDetail;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.PreparedQuery;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowIterator;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static in.org.projecteka.hiu.dataflow.TestBuilders.string;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static reactor.test.StepVerifier.create;
+
+class DataFlowRepositoryTest {
+    @Mock
+    private PgPool readWriteClient;
+
+    @Mock
+    private PgPool readOnlyClient;
+
+    @Mock
+    private PgPool statusReadClient;
+
+    @Mock
+    private PreparedQuery<RowSet<Row>> preparedQuery;
+
+    private DataFlowRepository dataFlowRepository;
+
+    @BeforeEach
+    void setUp() {
+        initMocks(this);
+        when(readWriteClient.preparedQuery(anyString())).thenReturn(preparedQuery);
+        when(statusReadClient.preparedQuery(anyString())).thenReturn(preparedQuery);
+        dataFlowRepository = new DataFlowRepository(readWriteClient, readOnlyClient, statusReadClient);
+    }
+
+    @Test
+    void shouldReturnOneDetailPerDataPartOfRequest() {
+        var dataRequestId = UUID.randomUUID().toString();
+        var partStatuses = new JsonObject().put("1", "SUCCEEDED").putNull("2");
+        respondWith(statusRow(dataRequestId, partStatuses));
+
+        create(dataFlowRepository.fetchPatientDataRequestDetails(Set.of(dataRequestId)))
+                .assertNext(detail -> {
+                    assertThat(detail.getDataRequestId()).isEqualTo(dataRequestId);
+                    assertThat(detail.getDataPartStatus()).isEqualTo(HealthInfoStatus.SUCCEEDED);
+                })
+                .assertNext(detail -> {
+                    assertThat(detail.getDataRequestId()).isEqualTo(dataRequestId);
+                    assertThat(detail.getDataPartStatus()).isNull();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldReturnRequestWithoutDataPartsAsOneDetail() {
+        var dataRequestId = UUID.randomUUID().toString();
+        respondWith(statusRow(dataRequestId, new JsonObject()));
+
+        create(dataFlowRepository.fetchPatientDataRequestDetails(Set.of(dataRequestId)))
+                .assertNext(detail -> {
+                    assertThat(detail.getDataRequestId()).isEqualTo(dataRequestId);
+                    assertThat(detail.getDataPartStatus()).isNull();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldReadDataRequestStatusThroughStatusReadPool() {
+        var dataRequestId = UUID.randomUUID().toString();
+        respondWith(statusRow(dataRequestId, new JsonObject()));
+
+        create(dataFlowRepository.fetchPatientDataRequestDetails(Set.of(dataRequestId))
+                .map(PatientDataRequestDetail::getDataRequestId))
+                .expectNext(dataRequestId)
+                .verifyComplete();
+
+        verify(statusReadClient).preparedQuery(anyString());
+        verifyNoInteractions(readWriteClient, readOnlyClient);
+    }
+
+    @Test
+    void shouldBindDataPartAvailabilityInStatementOrder() {
+        var transactionId = string();
+        respondWith();
+
+        create(dataFlowRepository.insertDataPartAvailability(transactionId, 3, 5, HealthInfoStatus.RECEIVED))
+                .verifyComplete();
+
+        var parameters = boundParameters();
+        assertThat(parameters.getString(0)).isEqualTo(transactionId);
+        assertThat(parameters.getString(1)).isEqualTo("3");
+        assertThat(parameters.getString(2)).isEqualTo("RECEIVED");
+        assertThat(parameters.getInteger(3)).isEqualTo(5);
+    }
+
+    @Test
+    void shouldBindProcessedDataPartStatusInStatementOrder() {
+        var transactionId = string();
+        var latestResourceDate = LocalDateTime.now();
+        respondWith();
+
+        create(dataFlowRepository.updateDataFlowWithStatus(transactionId,
+                "2",
+                "invalid entry",
+                HealthInfoStatus.PARTIAL,
+                latestResourceDate))
+                .verifyComplete();
+
+        var parameters = boundParameters();
+        assertThat(parameters.getString(0)).isEqualTo("PARTIAL");
+        assertThat(parameters.getString(1)).isEqualTo("invalid entry");
+        assertThat(parameters.getLocalDateTime(2)).isEqualTo(latestResourceDate);
+        assertThat(parameters.getString(3)).isEqualTo(transactionId);
+        assertThat(parameters.getString(4)).isEqualTo("2");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldFailWhenDataPartAvailabilityCannotBeRecorded() {
+        doAnswer(invocation -> {
+            Handler<AsyncResult<RowSet<Row>>> handler = invocation.getArgument(1);
+            handler.handle(Future.failedFuture(new RuntimeException("deadlock detected")));
+            return null;
+        }).when(preparedQuery).execute(any(Tuple.class), any(Handler.class));
+
+        create(dataFlowRepository.insertDataPartAvailability(string(), 1, 1, HealthInfoStatus.RECEIVED))
+                .verifyError(ClientError.class);
+    }
+
+    @Test
+    void shouldMapStatusOfEachDataPartAndLeaveUnknownStatusUnset() {
+        respondWith(partRow("ERRORED"), partRow("SUCCEEDED"), partRow(null));
+
+        create(dataFlowRepository.fetchDataPartDetails(List.of(string()))
+                .map(detail -> Optional.ofNullable(detail.getStatus())))
+                .expectNext(Optional.of(HealthInfoStatus.ERRORED), Optional.of(HealthInfoStatus.SUCCEEDED))
+                .expectNext(Optional.empty())
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldMapStatusOfEachDataPartInStatusProjection() {
+        var dataRequestId = UUID.randomUUID().toString();
+        var partStatuses = new JsonObject().put("1", "ERRORED").put("2", "PROCESSING").putNull("3");
+        respondWith(statusRow(dataRequestId, partStatuses));
+
+        create(dataFlowRepository.fetchPatientDataRequestDetails(Set.of(dataRequestId))
+                .map(detail -> Optional.ofNullable(detail.getDataPartStatus())))
+                .expectNext(Optional.of(HealthInfoStatus.ERRORED), Optional.of(HealthInfoStatus.PROCESSING))
+                .expectNext(Optional.empty())
+                .verifyComplete();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Tuple boundParameters() {
+        var parameters = ArgumentCaptor.forClass(Tuple.class);
+        verify(preparedQuery).execute(parameters.capture(), any(Handler.class));
+        return parameters.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void respondWith(Row... rows) {
+        RowSet<Row> rowSet = mock(RowSet.class);
+        when(rowSet.iterator()).thenAnswer(invocation -> rowIterator(List.of(rows).iterator()));
+        doAnswer(invocation -> {
+            Handler<AsyncResult<RowSet<Row>>> handler = invocation.getArgument(1);
+            handler.handle(Future.succeededFuture(rowSet));
+            return null;
+        }).when(preparedQuery).execute(any(Tuple.class), any(Handler.class));
+    }
+
+    private static RowIterator<Row> rowIterator(Iterator<Row> rows) {
+        return new RowIterator<>() {
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public Row next() {
+                return rows.next();
+            }
+        };
+    }
+
+    private static Row partRow(String status) {
+        Row row = mock(Row.class);
+        when(row.getString(anyString())).thenReturn(string());
+        when(row.getString("status")).thenReturn(status);
+        return row;
+    }
+
+    private static Row statusRow(String dataRequestId, JsonObject partStatuses) {
+        Row row = mock(Row.class);
+        when(row.getString(anyString())).thenReturn(string());
+        when(row.getString("data_request_id")).thenReturn(dataRequestId);
+        when(row.getLocalDateTime(anyString())).thenReturn(LocalDateTime.now());
+        when(row.getValue("data_part_statuses")).thenReturn(partStatuses);
+        return row;
+    }
+}
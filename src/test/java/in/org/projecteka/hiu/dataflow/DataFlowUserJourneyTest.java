@@ -1,5 +1,6 @@
 package in.org.projecteka.hiu.dataflow;
 
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nimbusds.jose.jwk.JWKSet;
@@ -16,6 +17,7 @@ import in.org.projecteka.hiu.common.GatewayTokenVerifier;
 import in.org.projecteka.hiu.consent.ConsentRepository;
 import in.org.projecteka.hiu.dataflow.model.DataEntry;
 import in.org.projecteka.hiu.dataflow.model.DataNotificationRequest;
+import in.org.projecteka.hiu.dataflow.model.DataPartHeader;
 import in.org.projecteka.hiu.dataflow.model.Entry;
 import in.org.projecteka.hiu.dataflow.model.HealthInfoStatus;
 import in.org.projecteka.hiu.dataflow.model.HealthInformation;
@@ -34,11 +36,15 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -55,9 +61,14 @@ import static in.org.projecteka.hiu.dataflow.TestBuilders.keyMaterial;
 import static in.org.projecteka.hiu.dataflow.TestBuilders.string;
 import static in.org.projecteka.hiu.user.Role.GATEWAY;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_STREAM_JSON;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -120,6 +131,7 @@ class DataFlowUserJourneyTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
+        when(dataFlowRepository.getDataRequestId(any())).thenReturn(Mono.empty());
     }
 
     @Test
@@ -140,11 +152,13 @@ class DataFlowUserJourneyTest {
         Map<String, Object> flowRequestMap = new HashMap<>();
         flowRequestMap.put("consentRequestId", "consentRequestId");
         flowRequestMap.put("consentExpiryDate", LocalDateTime.parse("9999-04-15T16:55:00"));
-        when(dataFlowRepository.insertDataPartAvailability(transactionId, 1, HealthInfoStatus.RECEIVED))
+        when(dataFlowRepository.insertDataPartAvailability(transactionId, 1, 1, HealthInfoStatus.RECEIVED))
                 .thenReturn(Mono.empty());
         when(dataFlowRepository.retrieveDataFlowRequest(transactionId)).thenReturn(Mono.just(flowRequestMap));
         when(dataAvailabilityPublisher.broadcastDataAvailability(any())).thenReturn(Mono.empty());
-        when(localDataStore.serializeDataToFile(any(), any())).thenReturn(Mono.empty());
+        when(localDataStore.writeToFile(any(), any())).thenReturn(Mono.empty());
+        when(localDataStore.readHeader(any())).thenReturn(Mono.just(new DataPartHeader(dataNotificationRequest, 1, 0)));
+        when(localDataStore.moveFile(any(), any())).thenReturn(Mono.empty());
 
         webTestClient
                 .post()
@@ -177,7 +191,7 @@ class DataFlowUserJourneyTest {
         var caller = new Caller("testUser", false, Role.ADMIN.toString(), true);
         when(authenticator.verify(token)).thenReturn(Mono.just(caller));
         Map<String, Object> healthInfo = new HashMap<>();
-        String content = "Some dummy content";
+        String content = "{\"resourceType\":\"Bundle\"}";
         healthInfo.put("data", content);
         healthInfo.put("status", EntryStatus.SUCCEEDED.toString());
         healthInfo.put("doc_id", "1.v1");
@@ -185,7 +199,7 @@ class DataFlowUserJourneyTest {
         DataEntry dataEntry = DataEntry.builder()
                                 .hipId(hipId)
                                 .hipName(hipName)
-                                .data(content)
+                                .data(Map.of("resourceType", "Bundle"))
                                 .status(EntryStatus.SUCCEEDED)
                                 .docId("1.v1")
                                 .docOriginId(hipId)
@@ -210,6 +224,47 @@ class DataFlowUserJourneyTest {
                 .value(HealthInformation::getEntries, Matchers.is(dataEntries));
     }
 
+    @Test
+    void shouldStreamHealthInformationEntries() {
+        var consentRequestId = "consentRequestId";
+        var consentId = "consentId";
+        var transactionId = "transactionId";
+        var hipId = "10000005";
+        Map<String, String> consentDetailsMap = new HashMap<>();
+        consentDetailsMap.put("consentId", consentId);
+        consentDetailsMap.put("hipId", hipId);
+        consentDetailsMap.put("hipName", "Max health care");
+        consentDetailsMap.put("requester", "testUser");
+        consentDetailsMap.put("status", "GRANTED");
+        consentDetailsMap.put("consentExpiryDate", "9999-01-15T08:47:48");
+        var token = randomString();
+        var caller = new Caller("testUser", false, Role.ADMIN.toString(), true);
+        when(authenticator.verify(token)).thenReturn(Mono.just(caller));
+        Map<String, Object> healthInfo = new HashMap<>();
+        healthInfo.put("data", "{\"resourceType\":\"Bundle\",\"id\":\"bundle-1\"}");
+        healthInfo.put("status", EntryStatus.SUCCEEDED.toString());
+        healthInfo.put("doc_id", "1.v1");
+        healthInfo.put("doc_origin", hipId);
+        when(consentRepository.getConsentDetails(consentRequestId)).thenReturn(Flux.just(consentDetailsMap));
+        when(dataFlowRepository.getTransactionId(consentId)).thenReturn(Mono.just(transactionId));
+        when(healthInformationRepository.getHealthInformation(transactionId)).thenReturn(Flux.just(healthInfo, healthInfo));
+
+        webTestClient
+                .get()
+                .uri("/health-information/fetch/consentRequestId")
+                .header("Authorization", token)
+                .accept(APPLICATION_STREAM_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(APPLICATION_STREAM_JSON)
+                .returnResult(DataEntry.class)
+                .getResponseBody()
+                .as(StepVerifier::create)
+                .expectNextMatches(dataEntry -> dataEntry.getData().equals(Map.of("resourceType", "Bundle", "id", "bundle-1")))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
     @Test
     void shouldNotFetchHealthInformationForExpiredConsent() throws JsonProcessingException {
         var consentRequestId = "consentRequestId";
@@ -285,8 +340,10 @@ class DataFlowUserJourneyTest {
         String transactionId = "transactionId";
         var dataNotificationRequest =
                 DataNotificationRequest.builder().transactionId(transactionId).entries(List.of(new Entry())).build();
-        when(dataFlowRepository.insertDataPartAvailability(transactionId, 1, HealthInfoStatus.RECEIVED))
+        when(dataFlowRepository.insertDataPartAvailability(transactionId, 1, 1, HealthInfoStatus.RECEIVED))
                 .thenReturn(Mono.empty());
+        when(localDataStore.writeToFile(any(), any())).thenReturn(Mono.empty());
+        when(localDataStore.readHeader(any())).thenReturn(Mono.just(new DataPartHeader(dataNotificationRequest, 1, 1)));
         var errorResponse = new ErrorRepresentation(new Error(
                 ErrorCode.INVALID_DATA_FLOW_ENTRY,
                 "Entry must either have content or provide a link."));
@@ -305,6 +362,115 @@ class DataFlowUserJourneyTest {
                 .json(errorResponseJson);
     }
 
+    @Test
+    void shouldStoreEachPageAsItsOwnDataPart() {
+        String transactionId = "transactionId";
+        var dataNotificationRequest = DataNotificationRequest.builder()
+                .transactionId(transactionId)
+                .pageNumber(3)
+                .pageCount(10)
+                .entries(List.of(entry().build()))
+                .build();
+        Map<String, Object> flowRequestMap = new HashMap<>();
+        flowRequestMap.put("consentRequestId", "consentRequestId");
+        flowRequestMap.put("consentExpiryDate", LocalDateTime.parse("9999-04-15T16:55:00"));
+        when(localDataStore.writeToFile(any(), any())).thenReturn(Mono.empty());
+        when(localDataStore.readHeader(any())).thenReturn(Mono.just(new DataPartHeader(dataNotificationRequest, 1, 0)));
+        when(localDataStore.moveFile(any(), any())).thenReturn(Mono.empty());
+        when(dataFlowRepository.retrieveDataFlowRequest(transactionId)).thenReturn(Mono.just(flowRequestMap));
+        when(dataFlowRepository.insertDataPartAvailability(transactionId, 3, 10, HealthInfoStatus.RECEIVED))
+                .thenReturn(Mono.empty());
+        when(dataAvailabilityPublisher.broadcastDataAvailability(any())).thenReturn(Mono.empty());
+
+        webTestClient
+                .post()
+                .uri(Constants.PATH_DATA_TRANSFER)
+                .contentType(APPLICATION_JSON)
+                .bodyValue(dataNotificationRequest)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isAccepted();
+
+        verify(localDataStore).moveFile(any(), argThat(path -> path.getFileName().toString().endsWith("_3.json")));
+        verify(dataAvailabilityPublisher).broadcastDataAvailability(argThat(contentRef ->
+                "3".equals(contentRef.get("partNumber"))));
+    }
+
+    @Test
+    void shouldGiveErrorWhenPageNumberIsMoreThanPageCount() throws JsonProcessingException {
+        String transactionId = "transactionId";
+        var dataNotificationRequest = DataNotificationRequest.builder()
+                .transactionId(transactionId)
+                .pageNumber(11)
+                .pageCount(10)
+                .entries(List.of(entry().build()))
+                .build();
+        when(localDataStore.writeToFile(any(), any())).thenReturn(Mono.empty());
+        when(localDataStore.readHeader(any())).thenReturn(Mono.just(new DataPartHeader(dataNotificationRequest, 1, 0)));
+        var errorResponse = new ErrorRepresentation(new Error(
+                ErrorCode.INVALID_REQUEST,
+                "Page number must be between 1 and page count."));
+        var errorResponseJson = new ObjectMapper().writeValueAsString(errorResponse);
+
+        webTestClient
+                .post()
+                .uri(Constants.PATH_DATA_TRANSFER)
+                .contentType(APPLICATION_JSON)
+                .bodyValue(dataNotificationRequest)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody()
+                .json(errorResponseJson);
+    }
+
+    @Test
+    void shouldGiveBadRequestWhenDataPartIsNotValidJson() throws JsonProcessingException {
+        when(localDataStore.writeToFile(any(), any())).thenReturn(Mono.empty());
+        when(localDataStore.readHeader(any()))
+                .thenReturn(Mono.error(new JsonParseException(null, "Unexpected end-of-input")));
+        var errorResponse = new ErrorRepresentation(new Error(
+                ErrorCode.INVALID_REQUEST,
+                "Data part is not a valid JSON object."));
+        var errorResponseJson = new ObjectMapper().writeValueAsString(errorResponse);
+
+        webTestClient
+                .post()
+                .uri(Constants.PATH_DATA_TRANSFER)
+                .contentType(APPLICATION_JSON)
+                .bodyValue("{\"transactionId\": ")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody()
+                .json(errorResponseJson);
+
+        verify(localDataStore, timeout(1000)).discard(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldRefuseDataPartLargerThanMaximumSize() {
+        when(localDataStore.writeToFile(any(), any())).thenAnswer(invocation ->
+                ((Flux<DataBuffer>) invocation.getArgument(0)).doOnNext(DataBufferUtils::release).then());
+
+        webTestClient
+                .post()
+                .uri(Constants.PATH_DATA_TRANSFER)
+                .contentType(APPLICATION_JSON)
+                .bodyValue("{\"transactionId\": \"" + "x".repeat(2 * 1024 * 1024) + "\"}")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+
+        verify(localDataStore, never()).readHeader(any());
+        verify(localDataStore, timeout(1000)).discard(any());
+    }
+
     @Test
     void shouldUpdateDataFlowRequest() {
         var token = string();
@@ -0,0 +1,75 @@
+package in.org.projecteka.hiu.dataflow;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataPartReaderTest {
+    private static final String DATA_PART = "{\"pageNumber\":2,\"entries\":[" +
+            "{\"content\":\"first\",\"media\":\"application/fhir+json\",\"careContextReference\":\"cc-1\"}," +
+            "{\"link\":\"http://hip/2\",\"media\":\"application/fhir+json\",\"careContextReference\":\"cc-2\"}]," +
+            "\"transactionId\":\"123456\",\"pageCount\":3," +
+            "\"keyMaterial\":{\"cryptoAlg\":\"ECDH\",\"curve\":\"curve25519\",\"nonce\":\"nonce\"}}";
+
+    @TempDir
+    Path tempDir;
+
+    private DataPartReader reader;
+    private Path dataFilePath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        reader = new DataPartReader();
+        dataFilePath = Files.writeString(tempDir.resolve("123456_2.json"), DATA_PART);
+    }
+
+    @Test
+    void shouldReadHeaderWithoutEntries() throws IOException {
+        var header = reader.readHeader(dataFilePath);
+
+        assertThat(header.getNumberOfEntries()).isEqualTo(2);
+        assertThat(header.getNotification().getTransactionId()).isEqualTo("123456");
+        assertThat(header.getNotification().getPageNumber()).isEqualTo(2);
+        assertThat(header.getNotification().getPageCount()).isEqualTo(3);
+        assertThat(header.getNotification().getKeyMaterial().getNonce()).isEqualTo("nonce");
+        assertThat(header.getNotification().getEntries()).isNull();
+        assertThat(header.getNumberOfInvalidEntries()).isZero();
+    }
+
+    @Test
+    void shouldCountEntriesWithoutContentOrLink() throws IOException {
+        var invalidDataPart = Files.writeString(tempDir.resolve("123456_3.json"),
+                "{\"transactionId\":\"123456\",\"entries\":[{\"content\":\"  \",\"media\":\"application/fhir+json\"}," +
+                        "{\"link\":\"http://hip/2\"},{\"careContextReference\":\"cc-3\"}]}");
+
+        var header = reader.readHeader(invalidDataPart);
+
+        assertThat(header.getNumberOfEntries()).isEqualTo(3);
+        assertThat(header.getNumberOfInvalidEntries()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldStreamEntriesInOrder() {
+        StepVerifier.create(reader.entries(dataFilePath))
+                .assertNext(entry -> assertThat(entry.getContent()).isEqualTo("first"))
+                .assertNext(entry -> assertThat(entry.getLink()).isEqualTo("http://hip/2"))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldVisitEveryEntry() throws IOException {
+        var careContexts = new ArrayList<String>();
+
+        reader.forEachEntry(dataFilePath, entry -> careContexts.add(entry.getCareContextReference()));
+
+        assertThat(careContexts).containsExactly("cc-1", "cc-2");
+    }
+}
@@ -12,9 +12,17 @@ import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.Security;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class DecryptorTest {
+    private static final String HIU_PRIVATE_KEY = "DrDDUf+HIXB59/ym4GxrM/TfeULHyiUVzHWkq9rFkJI=";
+    private static final String HIU_RANDOM_KEY = "pk5xT1Xk+KUlf/LC1LZawKECPNvOvIzhZNEyIdh7oJE=";
+    private static final String ENCRYPTED_STRING = "cMTT+FiiDMVXdK1nbBXmnNXP2doSbWQ11Sl8rs1d5SzVDA==";
+    private static final String SENDER_PUBLIC_KEY = "MIIBMTCB6gYHKoZIzj0CATCB3gIBATArBgcqhkjOPQEBAiB/////////////////////////////////////////7TBEBCAqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqYSRShRAQge0Je0Je0Je0Je0Je0Je0Je0Je0Je0Je0JgtenHcQyGQEQQQqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqq0kWiCuGaG4oIa04B7dLHdI0UySPU1+bXxhsinpxaJ+ztPZAiAQAAAAAAAAAAAAAAAAAAAAFN753qL3nNZYEmMaXPXT7QIBCANCAARfpkcbh0Y6Z1xcck4D2pNKLQ2DwLOxI9bO2sy8zlbJ4391xJpwYNG2STnmP9cwz0+V74B3mbcykl5J1gsXtNe+";
+    private static final String SENDER_RANDOM_KEY = "xXrM6PfCsBX0Q238uxZCP8YBpPXxsiZvbE++jX5GV5c=";
+
     private Decryptor decryptor;
 
     @BeforeEach
@@ -62,5 +70,55 @@ public class DecryptorTest {
                 .isEqualTo("\"This is a string\"");
     }
 
+    @Test
+    public void shouldDecryptEntriesWithOneSession() throws Exception {
+        var hiuPrivateKey = "DrDDUf+HIXB59/ym4GxrM/TfeULHyiUVzHWkq9rFkJI=";
+        var hiuRandomKey = "pk5xT1Xk+KUlf/LC1LZawKECPNvOvIzhZNEyIdh7oJE=";
+        var encryptedString = "cMTT+FiiDMVXdK1nbBXmnNXP2doSbWQ11Sl8rs1d5SzVDA==";
+        var senderPublicKey = "MIIBMTCB6gYHKoZIzj0CATCB3gIBATArBgcqhkjOPQEBAiB/////////////////////////////////////////7TBEBCAqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqYSRShRAQge0Je0Je0Je0Je0Je0Je0Je0Je0Je0Je0JgtenHcQyGQEQQQqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqq0kWiCuGaG4oIa04B7dLHdI0UySPU1+bXxhsinpxaJ+ztPZAiAQAAAAAAAAAAAAAAAAAAAAFN753qL3nNZYEmMaXPXT7QIBCANCAARfpkcbh0Y6Z1xcck4D2pNKLQ2DwLOxI9bO2sy8zlbJ4391xJpwYNG2STnmP9cwz0+V74B3mbcykl5J1gsXtNe+";
+        var senderRandomKey = "xXrM6PfCsBX0Q238uxZCP8YBpPXxsiZvbE++jX5GV5c=";
+        KeyMaterial receivedKeyMaterial = KeyMaterial.builder()
+                .dhPublicKey(KeyStructure.builder().keyValue(senderPublicKey).build())
+                .nonce(senderRandomKey)
+                .build();
+        DataFlowRequestKeyMaterial savedKeyMaterial = DataFlowRequestKeyMaterial.builder()
+                .randomKey(hiuRandomKey).privateKey(hiuPrivateKey)
+                .build();
+
+        var session = decryptor.session(receivedKeyMaterial, savedKeyMaterial);
+
+        assertThat(new String(session.decrypt(encryptedString), UTF_8)).isEqualTo("\"This is a string\"");
+        assertThat(new String(session.decrypt(encryptedString), UTF_8)).isEqualTo("\"This is a string\"");
+    }
+
+    @Test
+    public void shouldGiveEmptyStringForEntryThatCannotBeDecrypted() throws Exception {
+        var tamperedString = "dMTT+FiiDMVXdK1nbBXmnNXP2doSbWQ11Sl8rs1d5SzVDA==";
+
+        assertThat(decryptor.decrypt(receivedKeyMaterial(), savedKeyMaterial(HIU_PRIVATE_KEY), tamperedString))
+                .isEmpty();
+    }
+
+    @Test
+    public void shouldFailWhenKeyMaterialCannotBeUsed() {
+        var unreadablePrivateKey = "not a private key%";
 
+        assertThatThrownBy(() -> decryptor.decrypt(receivedKeyMaterial(),
+                savedKeyMaterial(unreadablePrivateKey),
+                ENCRYPTED_STRING))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static KeyMaterial receivedKeyMaterial() {
+        return KeyMaterial.builder()
+                .dhPublicKey(KeyStructure.builder().keyValue(SENDER_PUBLIC_KEY).build())
+                .nonce(SENDER_RANDOM_KEY)
+                .build();
+    }
+
+    private static DataFlowRequestKeyMaterial savedKeyMaterial(String privateKey) {
+        return DataFlowRequestKeyMaterial.builder()
+                .randomKey(HIU_RANDOM_KEY).privateKey(privateKey)
+                .build();
+    }
 }
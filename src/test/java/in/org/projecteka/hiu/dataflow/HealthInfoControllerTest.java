@@ -2,6 +2,7 @@ package in.org.projecteka.hiu.dataflow;
 
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
@@ -33,7 +34,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -45,6 +46,7 @@ import java.util.stream.Collectors;
 
 import static in.org.projecteka.hiu.common.Constants.API_PATH_FETCH_PATIENT_HEALTH_INFO;
 import static in.org.projecteka.hiu.common.Constants.API_PATH_GET_HEALTH_INFO_STATUS;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
@@ -88,6 +90,9 @@ class HealthInfoControllerTest {
     @Autowired
     private WebTestClient webTestClient;
 
+    @Autowired
+    private DataRequestStatusBroadcaster statusBroadcaster;
+
     @MockBean
     private DataFlowServiceProperties serviceProperties;
 
@@ -120,7 +125,7 @@ class HealthInfoControllerTest {
         var token = TestBuilders.string();
         var requester = "someone@ncg";
         var caller = new Caller(requester, false, null, true);
-        var healthInfoRequest = TestBuilders.healthInformationRequest().limit(10).build();
+        var healthInfoRequest = TestBuilders.healthInformationRequest().limit(10).continuationToken(null).build();
         var dataRequestMappings = TestBuilders.dataRequestMappings(2).stream()
                 .map(PatientDataRequestMapping.PatientDataRequestMappingBuilder::build)
                 .collect(Collectors.toList());
@@ -133,14 +138,15 @@ class HealthInfoControllerTest {
                 "status", "SUCCEEDED",
                 "transaction_id", transactionIds.get(0),
                 "doc_id", "1.v1",
-                "doc_origin", "hip1d-11"));
+                "doc_origin", "hip1d-11",
+                "id", 1L,
+                "total_count", 100L));
 
         when(authenticator.verify(token)).thenReturn(just(caller));
         when(patientConsentRepository.fetchConsentRequestIds(healthInfoRequest.getRequestIds())).thenReturn(Flux.fromIterable(dataRequestMappings));
         when(dataFlowRepository.fetchDataPartDetails(consentRequestIds)).thenReturn(Flux.fromIterable(dataPartDetails));
         when(healthInformationRepository.getHealthInformation(transactionIdsCaptor.capture(), eq(healthInfoRequest.getLimit()), eq(healthInfoRequest.getOffset())))
                 .thenReturn(Flux.fromIterable(healthInfo));
-        when(healthInformationRepository.getTotalCountOfEntries(transactionIdsCaptor.capture())).thenReturn(Mono.just(100));
 
         webTestClient
                 .post()
@@ -156,6 +162,166 @@ class HealthInfoControllerTest {
         assertEquals(Set.copyOf(transactionIds), Set.copyOf(transactionIdsCaptor.getValue()));
     }
 
+    @Test
+    void shouldFetchNextPageOfDataPartDetailsAfterContinuationToken() {
+        var token = TestBuilders.string();
+        var requester = "someone@ncg";
+        var caller = new Caller(requester, false, null, true);
+        var dataRequestMappings = TestBuilders.dataRequestMappings(1).stream()
+                .map(PatientDataRequestMapping.PatientDataRequestMappingBuilder::build)
+                .collect(Collectors.toList());
+        var consentRequestIds = dataRequestMappings.stream().map(PatientDataRequestMapping::getConsentRequestId).collect(Collectors.toList());
+        var dataPartDetails = TestBuilders.dataPartDetails(1, requester, HealthInfoStatus.SUCCEEDED)
+                .stream().map(DataPartDetail.DataPartDetailBuilder::build).collect(Collectors.toList());
+        var transactionId = dataPartDetails.get(0).getTransactionId();
+        var cursor = new HealthInformationCursor(transactionId, LocalDateTime.of(2020, 10, 1, 10, 0), 1L, 7);
+        var healthInfoRequest = TestBuilders.healthInformationRequest()
+                .limit(1)
+                .continuationToken(cursor.encode())
+                .build();
+        List<Map<String, Object>> healthInfo = List.of(Map.of(
+                "data", JsonNodeFactory.instance.objectNode(),
+                "status", "SUCCEEDED",
+                "transaction_id", transactionId,
+                "doc_id", "1.v1",
+                "doc_origin", "hip1d-11",
+                "id", 2L));
+
+        when(authenticator.verify(token)).thenReturn(just(caller));
+        when(patientConsentRepository.fetchConsentRequestIds(healthInfoRequest.getRequestIds())).thenReturn(Flux.fromIterable(dataRequestMappings));
+        when(dataFlowRepository.fetchDataPartDetails(consentRequestIds)).thenReturn(Flux.fromIterable(dataPartDetails));
+        when(healthInformationRepository.getHealthInformation(List.of(transactionId), 1, cursor))
+                .thenReturn(Flux.fromIterable(healthInfo));
+
+        webTestClient
+                .post()
+                .uri(API_PATH_FETCH_PATIENT_HEALTH_INFO)
+                .header("Authorization", token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(healthInfoRequest)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.size").isEqualTo(7)
+                .jsonPath("$.entries.length()").isEqualTo(1)
+                .jsonPath("$.continuationToken")
+                .isEqualTo(new HealthInformationCursor(transactionId, null, 2L, 7).encode());
+    }
+
+    @Test
+    void shouldWriteErroredEntryWithoutData() {
+        var token = TestBuilders.string();
+        var requester = "someone@ncg";
+        var caller = new Caller(requester, false, null, true);
+        var dataRequestMappings = TestBuilders.dataRequestMappings(1).stream()
+                .map(PatientDataRequestMapping.PatientDataRequestMappingBuilder::build)
+                .collect(Collectors.toList());
+        var consentRequestIds = dataRequestMappings.stream().map(PatientDataRequestMapping::getConsentRequestId).collect(Collectors.toList());
+        var dataPartDetails = TestBuilders.dataPartDetails(1, requester, HealthInfoStatus.ERRORED)
+                .stream().map(DataPartDetail.DataPartDetailBuilder::build).collect(Collectors.toList());
+        var transactionId = dataPartDetails.get(0).getTransactionId();
+        var healthInfoRequest = TestBuilders.healthInformationRequest().limit(10).offset(0).continuationToken(null).build();
+        var healthInfo = erroredHealthInfo(transactionId);
+        healthInfo.put("id", 1L);
+        healthInfo.put("total_count", 1L);
+
+        when(authenticator.verify(token)).thenReturn(just(caller));
+        when(patientConsentRepository.fetchConsentRequestIds(healthInfoRequest.getRequestIds())).thenReturn(Flux.fromIterable(dataRequestMappings));
+        when(dataFlowRepository.fetchDataPartDetails(consentRequestIds)).thenReturn(Flux.fromIterable(dataPartDetails));
+        when(healthInformationRepository.getHealthInformation(List.of(transactionId), 10, 0))
+                .thenReturn(Flux.just(healthInfo));
+
+        webTestClient
+                .post()
+                .uri(API_PATH_FETCH_PATIENT_HEALTH_INFO)
+                .header("Authorization", token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(healthInfoRequest)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.entries.length()").isEqualTo(1)
+                .jsonPath("$.entries[0].status").isEqualTo("ERRORED")
+                .jsonPath("$.entries[0].data").doesNotExist();
+    }
+
+    @Test
+    void shouldStreamErroredEntryWithoutData() {
+        var token = TestBuilders.string();
+        var requester = "someone@ncg";
+        var caller = new Caller(requester, false, null, true);
+        var dataRequestMappings = TestBuilders.dataRequestMappings(1).stream()
+                .map(PatientDataRequestMapping.PatientDataRequestMappingBuilder::build)
+                .collect(Collectors.toList());
+        var consentRequestIds = dataRequestMappings.stream().map(PatientDataRequestMapping::getConsentRequestId).collect(Collectors.toList());
+        var dataPartDetails = TestBuilders.dataPartDetails(1, requester, HealthInfoStatus.ERRORED)
+                .stream().map(DataPartDetail.DataPartDetailBuilder::build).collect(Collectors.toList());
+        var transactionId = dataPartDetails.get(0).getTransactionId();
+        var healthInfoRequest = TestBuilders.healthInformationRequest().build();
+
+        when(authenticator.verify(token)).thenReturn(just(caller));
+        when(patientConsentRepository.fetchConsentRequestIds(healthInfoRequest.getRequestIds())).thenReturn(Flux.fromIterable(dataRequestMappings));
+        when(dataFlowRepository.fetchDataPartDetails(consentRequestIds)).thenReturn(Flux.fromIterable(dataPartDetails));
+        when(healthInformationRepository.getHealthInformation(List.of(transactionId)))
+                .thenReturn(Flux.just(erroredHealthInfo(transactionId)));
+
+        var entries = webTestClient
+                .post()
+                .uri(API_PATH_FETCH_PATIENT_HEALTH_INFO)
+                .header("Authorization", token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(healthInfoRequest)
+                .accept(MediaType.APPLICATION_STREAM_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(JsonNode.class)
+                .getResponseBody();
+
+        StepVerifier.create(entries)
+                .assertNext(entry -> {
+                    assertThat(entry.get("status").asText()).isEqualTo("ERRORED");
+                    assertThat(entry.path("data").isMissingNode() || entry.path("data").isNull()).isTrue();
+                })
+                .verifyComplete();
+    }
+
+    private static Map<String, Object> erroredHealthInfo(String transactionId) {
+        Map<String, String> columns = Map.of(
+                "data", "",
+                "status", "ERRORED",
+                "transaction_id", transactionId,
+                "doc_id", "1.v1",
+                "doc_origin", "hip1d-11");
+        return HealthInformationRepository.toHealthInfo(columns::get);
+    }
+
+    @Test
+    void shouldRejectInvalidContinuationToken() {
+        var token = TestBuilders.string();
+        var caller = new Caller("someone@ncg", false, null, true);
+        var healthInfoRequest = TestBuilders.healthInformationRequest()
+                .continuationToken("not-a-token")
+                .build();
+
+        when(authenticator.verify(token)).thenReturn(just(caller));
+
+        webTestClient
+                .post()
+                .uri(API_PATH_FETCH_PATIENT_HEALTH_INFO)
+                .header("Authorization", token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(healthInfoRequest)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
     private void assertHealthInfoStatus(String token,
                                         DataRequestStatusCheckRequest request,
                                         DataRequestStatusResponse expectedResponse) throws JsonProcessingException {
@@ -460,4 +626,38 @@ class HealthInfoControllerTest {
         assertHealthInfoStatus(token, dataStatusCheckRequest, new DataRequestStatusResponse(List.of()));
         assertEquals(dataRequestIdsCaptor.getValue(), Set.copyOf(dataRequestIds));
     }
+
+    @Test
+    void shouldPushStatusChangesUntilDataRequestIsNoLongerProcessing() {
+        var token = TestBuilders.string();
+        var requester = "someone@ncg";
+        var caller = new Caller(requester, false, null, true);
+        var dataRequestId = UUID.randomUUID().toString();
+        var dataRequestDetail = TestBuilders.patientDataRequestDetail().dataRequestId(dataRequestId).patientId(requester);
+        var processing = dataRequestDetail.dataPartStatus(HealthInfoStatus.PROCESSING).build();
+        var succeeded = dataRequestDetail.dataPartStatus(HealthInfoStatus.SUCCEEDED).build();
+
+        when(authenticator.verify(token)).thenReturn(just(caller));
+        when(dataFlowRepository.fetchPatientDataRequestDetails(Set.of(dataRequestId)))
+                .thenReturn(Flux.just(processing), Flux.just(succeeded));
+
+        var statuses = webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(API_PATH_GET_HEALTH_INFO_STATUS)
+                        .queryParam("requestIds", dataRequestId)
+                        .build())
+                .header("Authorization", token)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(String.class)
+                .getResponseBody();
+
+        StepVerifier.create(statuses)
+                .assertNext(status -> assertThat(status).contains(DataRequestStatus.PROCESSING.toString()))
+                .then(() -> statusBroadcaster.publish(dataRequestId).block())
+                .assertNext(status -> assertThat(status).contains(DataRequestStatus.SUCCEEDED.toString()))
+                .verifyComplete();
+    }
 }
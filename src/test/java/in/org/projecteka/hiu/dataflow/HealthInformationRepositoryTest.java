@@ -0,0 +1,274 @@
+package in.org.projecteka.hiu.dataflow;
+
+import in.org.projecteka.hiu.ClientError;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.PreparedStatement;
+import io.vertx.sqlclient.Query;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.RowStream;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Transaction;
+import io.vertx.sqlclient.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import static in.org.projecteka.hiu.dataflow.TestBuilders.string;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static reactor.test.StepVerifier.create;
+import static reactor.test.StepVerifier.withVirtualTime;
+
+class HealthInformationRepositoryTest {
+    private static final int FETCH_SIZE = 2;
+    private static final Duration IDLE_TIMEOUT = Duration.ofSeconds(30);
+
+    @Mock
+    private PgPool readWriteClient;
+
+    @Mock
+    private PgPool readOnlyClient;
+
+    @Mock
+    private SqlConnection connection;
+
+    @Mock
+    private Transaction transaction;
+
+    @Mock
+    private Query<RowSet<Row>> readOnlyQuery;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private RowStream<Row> rowStream;
+
+    private final Deque<Row> pendingRows = new ArrayDeque<>();
+    private Handler<Row> rowHandler;
+    private Handler<Void> endHandler;
+    private Handler<Throwable> exceptionHandler;
+
+    private HealthInformationRepository healthInformationRepository;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        initMocks(this);
+        doAnswer(invocation -> {
+            Handler<AsyncResult<SqlConnection>> handler = invocation.getArgument(0);
+            handler.handle(Future.succeededFuture(connection));
+            return null;
+        }).when(readOnlyClient).getConnection(any());
+        when(connection.begin()).thenReturn(transaction);
+        when(transaction.query(anyString())).thenReturn(readOnlyQuery);
+        doAnswer(invocation -> {
+            Handler<AsyncResult<RowSet<Row>>> handler = invocation.getArgument(0);
+            handler.handle(Future.succeededFuture());
+            return null;
+        }).when(readOnlyQuery).execute(any());
+        doAnswer(invocation -> {
+            Handler<AsyncResult<PreparedStatement>> handler = invocation.getArgument(1);
+            handler.handle(Future.succeededFuture(statement));
+            return null;
+        }).when(connection).prepare(anyString(), any(Handler.class));
+        when(statement.createStream(anyInt(), any(Tuple.class))).thenReturn(rowStream);
+        when(rowStream.pause()).thenReturn(rowStream);
+        when(rowStream.exceptionHandler(any())).thenAnswer(invocation -> {
+            exceptionHandler = invocation.getArgument(0);
+            return rowStream;
+        });
+        when(rowStream.endHandler(any())).thenAnswer(invocation -> {
+            endHandler = invocation.getArgument(0);
+            return rowStream;
+        });
+        when(rowStream.handler(any())).thenAnswer(invocation -> {
+            rowHandler = invocation.getArgument(0);
+            return rowStream;
+        });
+        when(rowStream.fetch(anyLong())).thenAnswer(invocation -> {
+            long demand = invocation.getArgument(0);
+            for (long i = 0; i < demand && !pendingRows.isEmpty(); i++) {
+                rowHandler.handle(pendingRows.poll());
+            }
+            if (pendingRows.isEmpty()) {
+                endHandler.handle(null);
+            }
+            return rowStream;
+        });
+        doAnswer(invocation -> {
+            Handler<AsyncResult<Void>> handler = invocation.getArgument(0);
+            handler.handle(Future.succeededFuture());
+            return null;
+        }).when(rowStream).close(any());
+        doAnswer(invocation -> {
+            Handler<AsyncResult<Void>> handler = invocation.getArgument(0);
+            handler.handle(Future.succeededFuture());
+            return null;
+        }).when(transaction).rollback(any());
+        healthInformationRepository = repository(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStreamHealthInformationThroughCursorInReadOnlyTransaction() {
+        var transactionId = string();
+        pendingRows.add(healthInfoRow(transactionId));
+        pendingRows.add(healthInfoRow(transactionId));
+
+        create(healthInformationRepository.getHealthInformation(transactionId))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        InOrder inOrder = inOrder(connection, transaction, statement);
+        inOrder.verify(connection).begin();
+        inOrder.verify(transaction).query("SET TRANSACTION READ ONLY");
+        inOrder.verify(connection).prepare(anyString(), any(Handler.class));
+        inOrder.verify(statement).createStream(eq(FETCH_SIZE), any(Tuple.class));
+        verifyReleased();
+    }
+
+    @Test
+    void shouldFetchRowsOnlyAsRequested() {
+        var transactionId = string();
+        pendingRows.add(healthInfoRow(transactionId));
+        pendingRows.add(healthInfoRow(transactionId));
+        pendingRows.add(healthInfoRow(transactionId));
+
+        create(healthInformationRepository.getHealthInformation(List.of(transactionId)), 1)
+                .expectNextMatches(healthInfo -> transactionId.equals(healthInfo.get("transaction_id")))
+                .then(() -> verify(rowStream).fetch(1))
+                .thenRequest(2)
+                .expectNextCount(2)
+                .verifyComplete();
+
+        verify(rowStream).fetch(2);
+        verifyReleased();
+    }
+
+    @Test
+    void shouldReleaseCursorWhenSubscriberCancels() {
+        var transactionId = string();
+        pendingRows.add(healthInfoRow(transactionId));
+        pendingRows.add(healthInfoRow(transactionId));
+
+        create(healthInformationRepository.getHealthInformation(transactionId), 1)
+                .expectNextCount(1)
+                .thenCancel()
+                .verify();
+
+        verifyReleased();
+    }
+
+    @Test
+    void shouldReleaseCursorWhenStreamFails() {
+        when(rowStream.fetch(anyLong())).thenAnswer(invocation -> {
+            exceptionHandler.handle(new RuntimeException("connection reset"));
+            return rowStream;
+        });
+
+        create(healthInformationRepository.getHealthInformation(string()))
+                .verifyError(ClientError.class);
+
+        verifyReleased();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReleaseTransactionWhenStatementCannotBePrepared() {
+        doAnswer(invocation -> {
+            Handler<AsyncResult<PreparedStatement>> handler = invocation.getArgument(1);
+            handler.handle(Future.failedFuture(new RuntimeException("syntax error")));
+            return null;
+        }).when(connection).prepare(anyString(), any(Handler.class));
+
+        create(healthInformationRepository.getHealthInformation(string()))
+                .verifyError(ClientError.class);
+
+        verify(statement, never()).createStream(anyInt(), any(Tuple.class));
+        verify(transaction).rollback(any());
+        verify(connection).close();
+    }
+
+    @Test
+    void shouldReleaseCursorWhenStreamIsIdle() {
+        when(rowStream.fetch(anyLong())).thenReturn(rowStream);
+
+        withVirtualTime(() -> healthInformationRepository.getHealthInformation(string()))
+                .expectSubscription()
+                .thenAwait(IDLE_TIMEOUT)
+                .verifyError(ClientError.class);
+
+        verifyReleased();
+    }
+
+    @Test
+    void shouldRefuseStreamsBeyondOpenLimitUntilOneIsReleased() {
+        var transactionId = string();
+        pendingRows.add(healthInfoRow(transactionId));
+        pendingRows.add(healthInfoRow(transactionId));
+        var repository = repository(1);
+        var open = repository.getHealthInformation(transactionId)
+                .subscribe(healthInfo -> { }, error -> { }, () -> { }, subscription -> subscription.request(1));
+
+        create(repository.getHealthInformation(transactionId))
+                .expectErrorSatisfies(error ->
+                        assertThat(((ClientError) error).getHttpStatus()).isEqualTo(SERVICE_UNAVAILABLE))
+                .verify();
+        open.dispose();
+
+        create(repository.getHealthInformation(transactionId))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    private HealthInformationRepository repository(int maxOpenStreams) {
+        return new HealthInformationRepository(readWriteClient,
+                readOnlyClient,
+                FETCH_SIZE,
+                IDLE_TIMEOUT,
+                maxOpenStreams);
+    }
+
+    private void verifyReleased() {
+        InOrder inOrder = inOrder(rowStream, statement, transaction, connection);
+        inOrder.verify(rowStream).close(any());
+        inOrder.verify(statement).close();
+        inOrder.verify(transaction).rollback(any());
+        inOrder.verify(connection).close();
+    }
+
+    private static Row healthInfoRow(String transactionId) {
+        Row row = mock(Row.class);
+        Map.of("data", "{}",
+                "status", "SUCCEEDED",
+                "transaction_id", transactionId,
+                "doc_id", string(),
+                "doc_origin", string())
+                .forEach((column, value) -> when(row.getString(column)).thenReturn(value));
+        return row;
+    }
+}
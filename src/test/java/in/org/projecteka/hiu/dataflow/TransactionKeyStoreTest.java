@@ -0,0 +1,71 @@
+package in.org.projecteka.hiu.dataflow;
+
+import in.org.projecteka.hiu.common.cache.CacheAdapter;
+import in.org.projecteka.hiu.dataflow.model.DataFlowRequestKeyMaterial;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static in.org.projecteka.hiu.dataflow.TestBuilders.dataFlowRequestKeyMaterial;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class TransactionKeyStoreTest {
+    @Mock
+    private DataFlowRepository dataFlowRepository;
+
+    @Mock
+    private CacheAdapter<String, DataFlowRequestKeyMaterial> transactionKeyCache;
+
+    private TransactionKeyStore transactionKeyStore;
+
+    @BeforeEach
+    void setUp() {
+        initMocks(this);
+        transactionKeyStore = new TransactionKeyStore(dataFlowRepository, transactionKeyCache);
+    }
+
+    @Test
+    void shouldReturnCachedKeysWithoutReadingDatabase() {
+        var keyMaterial = dataFlowRequestKeyMaterial().build();
+        when(transactionKeyCache.get("transaction-id")).thenReturn(Mono.just(keyMaterial));
+
+        StepVerifier.create(transactionKeyStore.getKeys("transaction-id"))
+                .expectNext(keyMaterial)
+                .verifyComplete();
+
+        verify(dataFlowRepository, never()).getKeys(anyString());
+    }
+
+    @Test
+    void shouldReadKeysFromDatabaseAndCacheThemOnMiss() {
+        var keyMaterial = dataFlowRequestKeyMaterial().build();
+        when(transactionKeyCache.get("transaction-id")).thenReturn(Mono.empty());
+        when(dataFlowRepository.getKeys("transaction-id")).thenReturn(Mono.just(keyMaterial));
+        when(transactionKeyCache.put("transaction-id", keyMaterial)).thenReturn(Mono.empty());
+
+        StepVerifier.create(transactionKeyStore.getKeys("transaction-id"))
+                .expectNext(keyMaterial)
+                .verifyComplete();
+
+        verify(transactionKeyCache).put("transaction-id", keyMaterial);
+    }
+
+    @Test
+    void shouldCacheKeysWhenAdded() {
+        var keyMaterial = dataFlowRequestKeyMaterial().build();
+        when(dataFlowRepository.addKeys("transaction-id", keyMaterial)).thenReturn(Mono.empty());
+        when(transactionKeyCache.put(anyString(), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(transactionKeyStore.addKeys("transaction-id", keyMaterial))
+                .verifyComplete();
+
+        verify(transactionKeyCache).put("transaction-id", keyMaterial);
+    }
+}
@@ -0,0 +1,105 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContentAddressedStoreTest {
+    private static final byte[] CONTENT = "same report".getBytes(UTF_8);
+
+    @TempDir
+    Path localStoragePath;
+
+    private Path storePath;
+    private ContentAddressedStore attachmentStore;
+
+    @BeforeEach
+    void setUp() {
+        storePath = localStoragePath.resolve(".attachments");
+        attachmentStore = new ContentAddressedStore(storePath);
+    }
+
+    @Test
+    void shouldKeepOneCopyOfContentSharedByTransactions() throws IOException {
+        var first = Files.createDirectories(localStoragePath.resolve("first-transaction"));
+        var second = Files.createDirectories(localStoragePath.resolve("second-transaction"));
+
+        var firstFile = attachmentStore.store(CONTENT, ".pdf", first);
+        var secondFile = attachmentStore.store(new ByteArrayInputStream(CONTENT), ".pdf", second);
+
+        assertThat(firstFile.getFileName()).isEqualTo(secondFile.getFileName());
+        assertThat(firstFile.getFileName().toString()).endsWith(".pdf");
+        assertThat(Files.readAllBytes(secondFile)).isEqualTo(CONTENT);
+        assertThat(Files.isSameFile(firstFile, secondFile)).isTrue();
+        assertThat(storedCopies()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDeleteStoredCopyWithTheLastTransactionReferringToIt() throws IOException {
+        var first = Files.createDirectories(localStoragePath.resolve("first-transaction"));
+        var second = Files.createDirectories(localStoragePath.resolve("second-transaction"));
+        var firstFile = attachmentStore.store(CONTENT, ".pdf", first);
+        var secondFile = attachmentStore.store(CONTENT, ".pdf", second);
+
+        attachmentStore.release(firstFile);
+
+        assertThat(firstFile).doesNotExist();
+        assertThat(Files.readAllBytes(secondFile)).isEqualTo(CONTENT);
+        assertThat(storedCopies()).isEqualTo(1);
+
+        attachmentStore.release(secondFile);
+
+        assertThat(secondFile).doesNotExist();
+        assertThat(storedCopies()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldRemoveReceivedContentWhenStreamFails() throws IOException {
+        var transaction = Files.createDirectories(localStoragePath.resolve("transaction"));
+        var failing = new SequenceInputStream(new ByteArrayInputStream(CONTENT), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        });
+
+        assertThatThrownBy(() -> attachmentStore.store(failing, ".pdf", transaction)).isInstanceOf(IOException.class);
+
+        try (Stream<Path> received = Files.list(storePath.resolve(".incoming"))) {
+            assertThat(received).isEmpty();
+        }
+        assertThat(storedCopies()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldRemoveReceivedContentOnceStored() throws IOException {
+        var transaction = Files.createDirectories(localStoragePath.resolve("transaction"));
+
+        var file = attachmentStore.store(new ByteArrayInputStream(CONTENT), ".pdf", transaction);
+
+        assertThat(Files.readAllBytes(file)).isEqualTo(CONTENT);
+        try (Stream<Path> received = Files.list(storePath.resolve(".incoming"))) {
+            assertThat(received).isEmpty();
+        }
+    }
+
+    private long storedCopies() throws IOException {
+        try (Stream<Path> paths = Files.walk(storePath)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.getParent().getFileName().toString().equals(".incoming"))
+                    .count();
+        }
+    }
+}
@@ -1,53 +1,79 @@
 package in.org.projecteka.hiu.dataprocessor;
 
+import ca.uhn.fhir.context.FhirContext;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import in.org.projecteka.hiu.HiuProperties;
 import in.org.projecteka.hiu.LocalDicomServerProperties;
 import in.org.projecteka.hiu.clients.HealthInformationClient;
 import in.org.projecteka.hiu.common.Gateway;
 import in.org.projecteka.hiu.consent.ConsentRepository;
 import in.org.projecteka.hiu.dataflow.DataFlowRepository;
+import in.org.projecteka.hiu.dataflow.DataRequestStatusNotifier;
+import in.org.projecteka.hiu.dataflow.DecryptionSession;
+import in.org.projecteka.hiu.dataflow.TransactionKeyStore;
 import in.org.projecteka.hiu.dataflow.Decryptor;
 import in.org.projecteka.hiu.dataflow.model.DataNotificationRequest;
 import in.org.projecteka.hiu.dataflow.model.HealthInfoStatus;
 import in.org.projecteka.hiu.dataprocessor.model.DataAvailableMessage;
 import in.org.projecteka.hiu.dataprocessor.model.DataContext;
+import in.org.projecteka.hiu.dataprocessor.model.EntryStatus;
+import in.org.projecteka.hiu.dataprocessor.model.HealthDataRecord;
+import in.org.projecteka.hiu.dataprocessor.model.HealthInfoNotificationRequest;
+import in.org.projecteka.hiu.dataprocessor.model.SessionStatus;
 import in.org.projecteka.hiu.dicomweb.OrthancDicomWebServer;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.security.spec.InvalidKeySpecException;
 import java.util.Arrays;
 import java.util.List;
 
 import static in.org.projecteka.hiu.dataflow.TestBuilders.dataFlowRequestKeyMaterial;
 import static in.org.projecteka.hiu.dataprocessor.TestBuilders.string;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class HealthDataProcessorTest {
+    private static final FhirContext fhirContext = FhirContext.forR4();
+
     @Mock
     private HealthDataRepository healthDataRepository;
 
     @Mock
     private DataFlowRepository dataFlowRepository;
 
+    @Mock
+    private TransactionKeyStore transactionKeyStore;
+
     @Mock
     private Decryptor decryptor;
 
+    @Mock
+    private DecryptionSession decryptionSession;
+
     @Mock
     private HealthInformationClient healthInformationClient;
 
@@ -60,6 +86,17 @@ class HealthDataProcessorTest {
     @Mock
     private ConsentRepository consentRepository;
 
+    @Mock
+    private DataRequestStatusNotifier statusNotifier;
+
+    @Captor
+    private ArgumentCaptor<List<HealthDataRecord>> recordsCaptor;
+
+    @TempDir
+    Path attachmentStorePath;
+
+    private ContentAddressedStore attachmentStore;
+
     @AfterAll
     public static void cleanUp() throws IOException {
         /**
@@ -86,6 +123,8 @@ class HealthDataProcessorTest {
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        attachmentStore = new ContentAddressedStore(attachmentStorePath);
+        when(statusNotifier.statusChanged(anyString())).thenReturn(Mono.empty());
     }
 
     @Test
@@ -95,11 +134,124 @@ class HealthDataProcessorTest {
         //TODO
         List<HITypeResourceProcessor> resourceProcessors = Arrays.asList(
                 new CompositionResourceProcessor(),
-                new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(new LocalDicomServerProperties())),
-                new DocumentReferenceResourceProcessor(),
+                new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(new LocalDicomServerProperties()),
+                        attachmentStore),
+                new DocumentReferenceResourceProcessor(attachmentStore),
+                new MedicationRequestResourceProcessor());
+        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository, dataFlowRepository, transactionKeyStore, decryptor,
+                resourceProcessors, healthInformationClient, gateway, hiuProperties, consentRepository,
+                new DataProcessorProperties(), fhirContext, statusNotifier);
+        String transactionId = "123456";
+        String partNumber = "1";
+        DataAvailableMessage message = new DataAvailableMessage(transactionId, absolutePath, partNumber);
+        var content = getFHIRResource(message).getNotifiedData().getEntries().get(0).getContent();
+        var savedKeyMaterial = dataFlowRequestKeyMaterial().build();
+        String consentId = "consentId";
+        String cmId = "ncg";
+        String token = string();
+
+        when(healthDataRepository.insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(), eq("11123232324.UNKNOWN"), any(), any()))
+                .thenReturn(Mono.empty());
+        when(transactionKeyStore.getKeys("123456")).thenReturn(Mono.just(savedKeyMaterial));
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any()))
+                .thenReturn(Mono.empty());
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any()))
+                .thenReturn(Mono.empty());
+        when(decryptor.session(any(), any())).thenReturn(decryptionSession);
+        when(decryptionSession.decrypt(anyString())).thenReturn(content.getBytes(StandardCharsets.UTF_8));
+        when(gateway.token()).thenReturn(Mono.just(token));
+        when(hiuProperties.getId()).thenReturn(string());
+        when(dataFlowRepository.getConsentId(transactionId)).thenReturn(Mono.just(consentId));
+        when(consentRepository.getHipId(consentId)).thenReturn(Mono.just("10000005"));
+        when(consentRepository.getConsentMangerId(consentId)).thenReturn(Mono.just(cmId));
+        when(healthInformationClient.notifyHealthInfo(any(), eq(token),eq(cmId))).thenReturn(Mono.empty());
+
+        processor.process(message);
+
+        verify(healthInformationClient,times(1))
+                .notifyHealthInfo(any(),eq(token),eq(cmId));
+        verify(consentRepository,times(1))
+                .getHipId(eq(consentId));
+        verify(consentRepository,times(1))
+                .getConsentMangerId(eq(consentId));
+        verify(healthDataRepository, times(1)).insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(), eq("11123232324.UNKNOWN"), any(), eq("10000005"));
+        verify(dataFlowRepository, times(1))
+                .updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any());
+        verify(dataFlowRepository, times(1))
+                .updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any());
+    }
+
+    @Test
+    public void shouldInsertProcessedEntriesInBatch() throws Exception {
+        Path filePath = Paths.get("src", "test", "resources", "Transaction123456.json");
+        String absolutePath = filePath.toFile().getAbsolutePath();
+        List<HITypeResourceProcessor> resourceProcessors = Arrays.asList(
+                new CompositionResourceProcessor(),
+                new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(new LocalDicomServerProperties()),
+                        attachmentStore),
+                new DocumentReferenceResourceProcessor(attachmentStore),
+                new MedicationRequestResourceProcessor());
+        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository, dataFlowRepository, transactionKeyStore, decryptor,
+                resourceProcessors, healthInformationClient, gateway, hiuProperties, consentRepository,
+                new DataProcessorProperties(false, 0, 10), fhirContext, statusNotifier);
+        String transactionId = "123456";
+        String partNumber = "1";
+        DataAvailableMessage message = new DataAvailableMessage(transactionId, absolutePath, partNumber);
+        var content = getFHIRResource(message).getNotifiedData().getEntries().get(0).getContent();
+        var savedKeyMaterial = dataFlowRequestKeyMaterial().build();
+        String consentId = "consentId";
+        String cmId = "ncg";
+        String token = string();
+
+        when(healthDataRepository.insertBatch(any())).thenReturn(Mono.empty());
+        when(transactionKeyStore.getKeys("123456")).thenReturn(Mono.just(savedKeyMaterial));
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any()))
+                .thenReturn(Mono.empty());
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any()))
+                .thenReturn(Mono.empty());
+        when(decryptor.session(any(), any())).thenReturn(decryptionSession);
+        when(decryptionSession.decrypt(anyString())).thenReturn(content.getBytes(StandardCharsets.UTF_8));
+        when(gateway.token()).thenReturn(Mono.just(token));
+        when(hiuProperties.getId()).thenReturn(string());
+        when(dataFlowRepository.getConsentId(transactionId)).thenReturn(Mono.just(consentId));
+        when(consentRepository.getHipId(consentId)).thenReturn(Mono.just("10000005"));
+        when(consentRepository.getConsentMangerId(consentId)).thenReturn(Mono.just(cmId));
+        when(healthInformationClient.notifyHealthInfo(any(), eq(token),eq(cmId))).thenReturn(Mono.empty());
+
+        processor.process(message);
+
+        verify(healthInformationClient,times(1))
+                .notifyHealthInfo(any(),eq(token),eq(cmId));
+        verify(consentRepository,times(1))
+                .getHipId(eq(consentId));
+        verify(consentRepository,times(1))
+                .getConsentMangerId(eq(consentId));
+        verify(healthDataRepository, times(1)).insertBatch(recordsCaptor.capture());
+        verify(healthDataRepository, never()).insertDataFor(any(), any(), any(), any(), any(), any(), any(), any());
+        assertThat(recordsCaptor.getValue()).hasSize(1);
+        var record = recordsCaptor.getValue().get(0);
+        assertThat(record.getStatus()).isEqualTo(EntryStatus.SUCCEEDED);
+        assertThat(record.getDocId()).isEqualTo("11123232324.UNKNOWN");
+        assertThat(record.getDocOrigin()).isEqualTo("10000005");
+        verify(dataFlowRepository, times(1))
+                .updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any());
+        verify(dataFlowRepository, times(1))
+                .updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any());
+    }
+
+    @Test
+    public void shouldProcessDataNotificationRequestReactively() throws Exception {
+        Path filePath = Paths.get("src", "test", "resources", "Transaction123456.json");
+        String absolutePath = filePath.toFile().getAbsolutePath();
+        List<HITypeResourceProcessor> resourceProcessors = Arrays.asList(
+                new CompositionResourceProcessor(),
+                new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(new LocalDicomServerProperties()),
+                        attachmentStore),
+                new DocumentReferenceResourceProcessor(attachmentStore),
                 new MedicationRequestResourceProcessor());
-        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository, dataFlowRepository, decryptor,
-                resourceProcessors, healthInformationClient, gateway, hiuProperties, consentRepository);
+        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository, dataFlowRepository, transactionKeyStore, decryptor,
+                resourceProcessors, healthInformationClient, gateway, hiuProperties, consentRepository,
+                new DataProcessorProperties(true, 2, 0), fhirContext, statusNotifier);
         String transactionId = "123456";
         String partNumber = "1";
         DataAvailableMessage message = new DataAvailableMessage(transactionId, absolutePath, partNumber);
@@ -111,12 +263,13 @@ class HealthDataProcessorTest {
 
         when(healthDataRepository.insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(), eq("11123232324.UNKNOWN"), any(), any()))
                 .thenReturn(Mono.empty());
-        when(dataFlowRepository.getKeys("123456")).thenReturn(Mono.just(savedKeyMaterial));
+        when(transactionKeyStore.getKeys("123456")).thenReturn(Mono.just(savedKeyMaterial));
         when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any()))
                 .thenReturn(Mono.empty());
         when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any()))
                 .thenReturn(Mono.empty());
-        when(decryptor.decrypt(any(), any(), any())).thenReturn(content);
+        when(decryptor.session(any(), any())).thenReturn(decryptionSession);
+        when(decryptionSession.decrypt(anyString())).thenReturn(content.getBytes(StandardCharsets.UTF_8));
         when(gateway.token()).thenReturn(Mono.just(token));
         when(hiuProperties.getId()).thenReturn(string());
         when(dataFlowRepository.getConsentId(transactionId)).thenReturn(Mono.just(consentId));
@@ -139,23 +292,143 @@ class HealthDataProcessorTest {
                 .updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any());
     }
 
+    @Test
+    public void shouldNotifyConsentManagerWhenLastPartOfTransferErrors(@TempDir Path dataDirectory) throws Exception {
+        var objectMapper = new ObjectMapper();
+        var transfer = (ObjectNode) objectMapper.readTree(
+                Paths.get("src", "test", "resources", "Transaction123456.json").toFile());
+        transfer.put("pageNumber", 2).put("pageCount", 2);
+        Path dataFilePath = dataDirectory.resolve("Transaction123456-2.json");
+        objectMapper.writeValue(dataFilePath.toFile(), transfer);
+        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository, dataFlowRepository, transactionKeyStore, decryptor,
+                List.of(), healthInformationClient, gateway, hiuProperties, consentRepository,
+                new DataProcessorProperties(true, 2, 0), fhirContext, statusNotifier);
+        String transactionId = "123456";
+        String partNumber = "2";
+        DataAvailableMessage message = new DataAvailableMessage(transactionId, dataFilePath.toString(), partNumber);
+        String consentId = "consentId";
+        String cmId = "ncg";
+        String token = string();
+        ArgumentCaptor<HealthInfoNotificationRequest> notificationCaptor =
+                ArgumentCaptor.forClass(HealthInfoNotificationRequest.class);
+
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), any(), any(), any()))
+                .thenReturn(Mono.empty());
+        when(transactionKeyStore.getKeys(transactionId)).thenReturn(Mono.error(new RuntimeException("No keys")));
+        when(dataFlowRepository.claimTransferCompletion(transactionId)).thenReturn(Mono.just(true));
+        when(healthDataRepository.getEntryStatuses(transactionId)).thenReturn(Flux.empty());
+        when(gateway.token()).thenReturn(Mono.just(token));
+        when(hiuProperties.getId()).thenReturn(string());
+        when(dataFlowRepository.getConsentId(transactionId)).thenReturn(Mono.just(consentId));
+        when(consentRepository.getHipId(consentId)).thenReturn(Mono.just("10000005"));
+        when(consentRepository.getConsentMangerId(consentId)).thenReturn(Mono.just(cmId));
+        when(healthInformationClient.notifyHealthInfo(notificationCaptor.capture(), eq(token), eq(cmId)))
+                .thenReturn(Mono.empty());
+
+        processor.process(message);
+
+        verify(dataFlowRepository, times(1))
+                .updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq("No keys"), eq(HealthInfoStatus.ERRORED), any());
+        verify(dataFlowRepository, times(1)).claimTransferCompletion(transactionId);
+        assertThat(notificationCaptor.getValue().getNotification().getStatusNotification().getSessionStatus())
+                .isEqualTo(SessionStatus.FAILED);
+    }
+
+    @Test
+    public void shouldNotNotifyConsentManagerWhileOtherPartsOfTransferArePending(@TempDir Path dataDirectory)
+            throws Exception {
+        var objectMapper = new ObjectMapper();
+        var transfer = (ObjectNode) objectMapper.readTree(
+                Paths.get("src", "test", "resources", "Transaction123456.json").toFile());
+        transfer.put("pageNumber", 1).put("pageCount", 2);
+        Path dataFilePath = dataDirectory.resolve("Transaction123456-1.json");
+        objectMapper.writeValue(dataFilePath.toFile(), transfer);
+        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository, dataFlowRepository, transactionKeyStore, decryptor,
+                List.of(), healthInformationClient, gateway, hiuProperties, consentRepository,
+                new DataProcessorProperties(true, 2, 0), fhirContext, statusNotifier);
+        String transactionId = "123456";
+        String partNumber = "1";
+        DataAvailableMessage message = new DataAvailableMessage(transactionId, dataFilePath.toString(), partNumber);
+        String consentId = "consentId";
+
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), any(), any(), any()))
+                .thenReturn(Mono.empty());
+        when(transactionKeyStore.getKeys(transactionId)).thenReturn(Mono.error(new RuntimeException("No keys")));
+        when(dataFlowRepository.claimTransferCompletion(transactionId)).thenReturn(Mono.empty());
+        when(dataFlowRepository.getConsentId(transactionId)).thenReturn(Mono.just(consentId));
+        when(consentRepository.getHipId(consentId)).thenReturn(Mono.just("10000005"));
+
+        processor.process(message);
+
+        verify(dataFlowRepository, times(1)).claimTransferCompletion(transactionId);
+        verify(healthDataRepository, never()).getEntryStatuses(any());
+        verify(healthInformationClient, never()).notifyHealthInfo(any(), any(), any());
+    }
+
+    @Test
+    public void shouldFailDataPartOnceWhenDecryptionKeyCannotBeDerived() throws Exception {
+        verifyDataPartFailsOnceWhenDecryptionKeyCannotBeDerived(new DataProcessorProperties());
+    }
+
+    @Test
+    public void shouldFailDataPartOnceWhenDecryptionKeyCannotBeDerivedReactively() throws Exception {
+        verifyDataPartFailsOnceWhenDecryptionKeyCannotBeDerived(new DataProcessorProperties(true, 2, 0));
+    }
+
+    private void verifyDataPartFailsOnceWhenDecryptionKeyCannotBeDerived(DataProcessorProperties processorProperties)
+            throws Exception {
+        Path filePath = Paths.get("src", "test", "resources", "Transaction123456.json");
+        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository, dataFlowRepository, transactionKeyStore, decryptor,
+                List.of(), healthInformationClient, gateway, hiuProperties, consentRepository,
+                processorProperties, fhirContext, statusNotifier);
+        String transactionId = "123456";
+        String partNumber = "1";
+        DataAvailableMessage message = new DataAvailableMessage(transactionId,
+                filePath.toFile().getAbsolutePath(),
+                partNumber);
+        String consentId = "consentId";
+
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), any(), any(), any()))
+                .thenReturn(Mono.empty());
+        when(transactionKeyStore.getKeys(transactionId)).thenReturn(Mono.just(dataFlowRequestKeyMaterial().build()));
+        when(decryptor.session(any(), any())).thenThrow(new InvalidKeySpecException("bad key"));
+        when(dataFlowRepository.getConsentId(transactionId)).thenReturn(Mono.just(consentId));
+        when(consentRepository.getHipId(consentId)).thenReturn(Mono.just("10000005"));
+
+        processor.process(message);
+
+        verify(dataFlowRepository, times(1)).updateDataFlowWithStatus(eq(transactionId),
+                eq(partNumber),
+                eq("Could not derive decryption key: bad key"),
+                eq(HealthInfoStatus.ERRORED),
+                any());
+        verify(decryptionSession, never()).decrypt(anyString());
+        verify(healthDataRepository, never()).insertDataFor(any(), any(), any(), any(), any(), any(), any(), any());
+        verify(healthDataRepository, never()).insertBatch(any());
+    }
+
     @Test
     public void shouldDownloadFileFromUrlInPresentedForm() throws Exception {
         Path filePath = Paths.get("src", "test", "resources", "Transaction789.json");
         String absolutePath = filePath.toFile().getAbsolutePath();
         List<HITypeResourceProcessor> resourceProcessors = Arrays.asList(
                 new CompositionResourceProcessor(),
-                new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(new LocalDicomServerProperties())),
-                new DocumentReferenceResourceProcessor(),
+                new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(new LocalDicomServerProperties()),
+                        attachmentStore),
+                new DocumentReferenceResourceProcessor(attachmentStore),
                 new MedicationRequestResourceProcessor());
         HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository,
                 dataFlowRepository,
+                transactionKeyStore,
                 decryptor,
                 resourceProcessors,
                 healthInformationClient,
                 gateway,
                 hiuProperties,
-                consentRepository);
+                consentRepository,
+                new DataProcessorProperties(),
+                fhirContext,
+                statusNotifier);
         String transactionId = "123456";
         String partNumber = "1";
         DataAvailableMessage message = new DataAvailableMessage(transactionId, absolutePath, partNumber);
@@ -166,12 +439,13 @@ class HealthDataProcessorTest {
         String token = string();
 
         when(healthDataRepository.insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(), any(), any(), any())).thenReturn(Mono.empty());
-        when(dataFlowRepository.getKeys("123456")).thenReturn(Mono.just(savedKeyMaterial));
+        when(transactionKeyStore.getKeys("123456")).thenReturn(Mono.just(savedKeyMaterial));
         when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any()))
                 .thenReturn(Mono.empty());
         when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any()))
                 .thenReturn(Mono.empty());
-        when(decryptor.decrypt(any(), any(), any())).thenReturn(content);
+        when(decryptor.session(any(), any())).thenReturn(decryptionSession);
+        when(decryptionSession.decrypt(anyString())).thenReturn(content.getBytes(StandardCharsets.UTF_8));
         when(gateway.token()).thenReturn(Mono.just(token));
         when(hiuProperties.getId()).thenReturn(string());
         when(dataFlowRepository.getConsentId(transactionId)).thenReturn(Mono.just(consentId));
@@ -201,17 +475,22 @@ class HealthDataProcessorTest {
         String absolutePath = filePath.toFile().getAbsolutePath();
         List<HITypeResourceProcessor> resourceProcessors = Arrays.asList(
                 new CompositionResourceProcessor(),
-                new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(new LocalDicomServerProperties())),
-                new DocumentReferenceResourceProcessor(),
+                new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(new LocalDicomServerProperties()),
+                        attachmentStore),
+                new DocumentReferenceResourceProcessor(attachmentStore),
                 new MedicationRequestResourceProcessor());
         HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository,
                 dataFlowRepository,
+                transactionKeyStore,
                 decryptor,
                 resourceProcessors,
                 healthInformationClient,
                 gateway,
                 hiuProperties,
-                consentRepository);
+                consentRepository,
+                new DataProcessorProperties(),
+                fhirContext,
+                statusNotifier);
         String transactionId = "123456";
         String partNumber = "1";
         String consentId = "consentId";
@@ -222,12 +501,13 @@ class HealthDataProcessorTest {
         String token = string();
 
         when(healthDataRepository.insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(), any(), any(), any())).thenReturn(Mono.empty());
-        when(dataFlowRepository.getKeys("123456")).thenReturn(Mono.just(savedKeyMaterial));
+        when(transactionKeyStore.getKeys("123456")).thenReturn(Mono.just(savedKeyMaterial));
         when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any()))
                 .thenReturn(Mono.empty());
         when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any()))
                 .thenReturn(Mono.empty());
-        when(decryptor.decrypt(any(), any(), any())).thenReturn(content);
+        when(decryptor.session(any(), any())).thenReturn(decryptionSession);
+        when(decryptionSession.decrypt(anyString())).thenReturn(content.getBytes(StandardCharsets.UTF_8));
         when(gateway.token()).thenReturn(Mono.just(token));
         when(hiuProperties.getId()).thenReturn(string());
         when(dataFlowRepository.getConsentId(transactionId)).thenReturn(Mono.just(consentId));
@@ -255,9 +535,10 @@ class HealthDataProcessorTest {
     public void shouldProcessDocumentReferenceAndSaveAttachment() throws Exception {
         Path filePath = Paths.get("src", "test", "resources", "TransactionDocRef101.json");
         String absolutePath = filePath.toFile().getAbsolutePath();
-        List<HITypeResourceProcessor> resourceProcessors = Arrays.asList(new DocumentReferenceResourceProcessor());
-        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository, dataFlowRepository, decryptor,
-                resourceProcessors, healthInformationClient, gateway, hiuProperties, consentRepository);
+        List<HITypeResourceProcessor> resourceProcessors = Arrays.asList(new DocumentReferenceResourceProcessor(attachmentStore));
+        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository, dataFlowRepository, transactionKeyStore, decryptor,
+                resourceProcessors, healthInformationClient, gateway, hiuProperties, consentRepository,
+                new DataProcessorProperties(), fhirContext, statusNotifier);
         String transactionId = "101";
         String partNumber = "1";
         DataAvailableMessage message = new DataAvailableMessage(transactionId, absolutePath, partNumber);
@@ -269,12 +550,13 @@ class HealthDataProcessorTest {
 
         when(healthDataRepository.insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(), any(), any(), any()))
                 .thenReturn(Mono.empty());
-        when(dataFlowRepository.getKeys("101")).thenReturn(Mono.just(savedKeyMaterial));
+        when(transactionKeyStore.getKeys("101")).thenReturn(Mono.just(savedKeyMaterial));
         when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any()))
                 .thenReturn(Mono.empty());
         when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any()))
                 .thenReturn(Mono.empty());
-        when(decryptor.decrypt(any(), any(), any())).thenReturn(content);
+        when(decryptor.session(any(), any())).thenReturn(decryptionSession);
+        when(decryptionSession.decrypt(anyString())).thenReturn(content.getBytes(StandardCharsets.UTF_8));
         when(gateway.token()).thenReturn(Mono.just(token));
         when(hiuProperties.getId()).thenReturn(string());
         when(dataFlowRepository.getConsentId(transactionId)).thenReturn(Mono.just(consentId));
@@ -304,12 +586,14 @@ class HealthDataProcessorTest {
         String absolutePath = filePath.toFile().getAbsolutePath();
         List<HITypeResourceProcessor> resourceProcessors = Arrays.asList(
                 new CompositionResourceProcessor(),
-                new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(new LocalDicomServerProperties())),
-                new DocumentReferenceResourceProcessor(),
+                new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(new LocalDicomServerProperties()),
+                        attachmentStore),
+                new DocumentReferenceResourceProcessor(attachmentStore),
                 new MedicationRequestResourceProcessor(),
-                new BinaryResourceProcessor());
-        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository, dataFlowRepository, decryptor,
-                resourceProcessors, healthInformationClient, gateway, hiuProperties, consentRepository);
+                new BinaryResourceProcessor(attachmentStore));
+        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository, dataFlowRepository, transactionKeyStore, decryptor,
+                resourceProcessors, healthInformationClient, gateway, hiuProperties, consentRepository,
+                new DataProcessorProperties(), fhirContext, statusNotifier);
         String transactionId = "102";
         String partNumber = "1";
         DataAvailableMessage message = new DataAvailableMessage(transactionId, absolutePath, partNumber);
@@ -321,12 +605,13 @@ class HealthDataProcessorTest {
 
         when(healthDataRepository.insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(), any(), any(), any()))
                 .thenReturn(Mono.empty());
-        when(dataFlowRepository.getKeys("102")).thenReturn(Mono.just(savedKeyMaterial));
+        when(transactionKeyStore.getKeys("102")).thenReturn(Mono.just(savedKeyMaterial));
         when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any()))
                 .thenReturn(Mono.empty());
         when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any()))
                 .thenReturn(Mono.empty());
-        when(decryptor.decrypt(any(), any(), any())).thenReturn(content);
+        when(decryptor.session(any(), any())).thenReturn(decryptionSession);
+        when(decryptionSession.decrypt(anyString())).thenReturn(content.getBytes(StandardCharsets.UTF_8));
         when(gateway.token()).thenReturn(Mono.just(token));
         when(hiuProperties.getId()).thenReturn(string());
         when(dataFlowRepository.getConsentId(transactionId)).thenReturn(Mono.just(consentId));
@@ -356,12 +641,14 @@ class HealthDataProcessorTest {
         String absolutePath = filePath.toFile().getAbsolutePath();
         List<HITypeResourceProcessor> resourceProcessors = Arrays.asList(
                 new CompositionResourceProcessor(),
-                new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(new LocalDicomServerProperties())),
-                new DocumentReferenceResourceProcessor(),
+                new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(new LocalDicomServerProperties()),
+                        attachmentStore),
+                new DocumentReferenceResourceProcessor(attachmentStore),
                 new MedicationRequestResourceProcessor(),
-                new BinaryResourceProcessor());
-        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository, dataFlowRepository, decryptor,
-                resourceProcessors, healthInformationClient, gateway, hiuProperties, consentRepository);
+                new BinaryResourceProcessor(attachmentStore));
+        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository, dataFlowRepository, transactionKeyStore, decryptor,
+                resourceProcessors, healthInformationClient, gateway, hiuProperties, consentRepository,
+                new DataProcessorProperties(), fhirContext, statusNotifier);
         String transactionId = "103";
         String partNumber = "1";
         DataAvailableMessage message = new DataAvailableMessage(transactionId, absolutePath, partNumber);
@@ -373,12 +660,13 @@ class HealthDataProcessorTest {
 
         when(healthDataRepository.insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(), any(), any(), any()))
                 .thenReturn(Mono.empty());
-        when(dataFlowRepository.getKeys(transactionId)).thenReturn(Mono.just(savedKeyMaterial));
+        when(transactionKeyStore.getKeys(transactionId)).thenReturn(Mono.just(savedKeyMaterial));
         when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any()))
                 .thenReturn(Mono.empty());
         when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any()))
                 .thenReturn(Mono.empty());
-        when(decryptor.decrypt(any(), any(), any())).thenReturn(content);
+        when(decryptor.session(any(), any())).thenReturn(decryptionSession);
+        when(decryptionSession.decrypt(anyString())).thenReturn(content.getBytes(StandardCharsets.UTF_8));
         when(gateway.token()).thenReturn(Mono.just(token));
         when(hiuProperties.getId()).thenReturn(string());
         when(dataFlowRepository.getConsentId(transactionId)).thenReturn(Mono.just(consentId));
@@ -7,9 +7,12 @@ import in.org.projecteka.hiu.clients.GatewayServiceClient;
 import in.org.projecteka.hiu.clients.Patient;
 import in.org.projecteka.hiu.common.Gateway;
 import in.org.projecteka.hiu.common.cache.CacheAdapter;
+import in.org.projecteka.hiu.common.correlation.LocalCorrelationRegistry;
+import in.org.projecteka.hiu.patient.model.FindPatientRequest;
 import in.org.projecteka.hiu.patient.model.PatientSearchGatewayResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -23,8 +26,10 @@ import static in.org.projecteka.hiu.common.TestBuilders.string;
 import static in.org.projecteka.hiu.consent.TestBuilders.patient;
 import static in.org.projecteka.hiu.consent.TestBuilders.randomString;
 import static java.lang.Boolean.TRUE;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -51,9 +56,12 @@ class PatientServiceTest {
     @Mock
     GatewayServiceClient gatewayServiceClient;
 
+    private LocalCorrelationRegistry<PatientSearchGatewayResponse> findPatientResponses;
+
     @BeforeEach
     void init() {
         initMocks(this);
+        findPatientResponses = new LocalCorrelationRegistry<>();
     }
 
     @Test
@@ -67,7 +75,8 @@ class PatientServiceTest {
                 cache,
                 hiuProperties,
                 gatewayProperties,
-                patientSearchCache);
+                patientSearchCache,
+                findPatientResponses);
 
         Mono<Patient> patientPublisher = patientService.findPatientWith(patientId);
 
@@ -90,7 +99,8 @@ class PatientServiceTest {
                 cache,
                 hiuProperties,
                 gatewayProperties,
-                patientSearchCache);
+                patientSearchCache,
+                findPatientResponses);
 
         StepVerifier.create(patientService.findPatientWith(patientId))
                 .expectErrorMatches(error -> ((ClientError) error)
@@ -101,6 +111,36 @@ class PatientServiceTest {
                 .verify();
     }
 
+    @Test
+    void shouldShareConcurrentLookupsOfSamePatient() {
+        var patientId = "temp@ncg";
+        var request = ArgumentCaptor.forClass(FindPatientRequest.class);
+        var patient = patientRepresentation().id(patientId).build();
+        when(hiuProperties.getId()).thenReturn(string());
+        when(gatewayProperties.getRequestTimeout()).thenReturn(5000);
+        when(cache.get(patientId)).thenReturn(empty());
+        when(gatewayServiceClient.findPatientWith(request.capture(), any())).thenReturn(just(TRUE));
+        var patientService = new PatientService(gatewayServiceClient,
+                cache,
+                hiuProperties,
+                gatewayProperties,
+                patientSearchCache,
+                findPatientResponses);
+
+        var first = patientService.findPatientWith(patientId).toProcessor();
+        var second = patientService.findPatientWith(patientId).toProcessor();
+        var requestId = request.getValue().getRequestId().toString();
+        StepVerifier.create(findPatientResponses.complete(requestId, patientSearchGatewayResponse()
+                .patient(patient)
+                .resp(gatewayResponse().requestId(requestId).build())
+                .build()))
+                .verifyComplete();
+
+        assertThat(first.block()).isEqualTo(patient.toPatient());
+        assertThat(second.block()).isEqualTo(patient.toPatient());
+        verify(gatewayServiceClient, times(1)).findPatientWith(any(), any());
+    }
+
     @Test
     void shouldHandlePatientSearchResponse() {
         var requestId = UUID.randomUUID();
@@ -114,7 +154,8 @@ class PatientServiceTest {
                 cache,
                 hiuProperties,
                 gatewayProperties,
-                patientSearchCache);
+                patientSearchCache,
+                findPatientResponses);
 
         Mono<Void> publisher = patientService.onFindPatient(searchResponse);
 